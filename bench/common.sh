@@ -0,0 +1,51 @@
+# Shared helpers of the comparison scripts, sourced from the repository root.
+# Expects BENCH_EMAIL, BENCH_PASSWORD and optionally BENCH_USER_ID, BENCH_BASE_URL, BENCH_RATE, BENCH_DURATION.
+
+: "${BENCH_EMAIL:?set BENCH_EMAIL to an activated account}"
+: "${BENCH_PASSWORD:?set BENCH_PASSWORD}"
+BENCH_USER_ID="${BENCH_USER_ID:-1}"
+BASE_URL="${BENCH_BASE_URL:-http://localhost:8088/api/v1}"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+package_app() {
+  ./mvnw -q -DskipTests package
+  JAR=$(ls target/boot-network-*.jar | grep -v plain | head -1)
+  mkdir -p target/bench
+}
+
+wait_for_app() {
+  for _ in $(seq 1 120); do
+    if [ "$(curl -s -o /dev/null -w '%{http_code}' "$BASE_URL/auth/authenticate")" != "000" ]; then
+      return 0
+    fi
+    sleep 1
+  done
+  echo "application did not start, see $1" >&2
+  return 1
+}
+
+# run_benchmark <label> <env assignments...> -- <jvm args...>
+# starts the packaged application with the given environment and JVM arguments, runs HotPathLoadBenchmark
+# against it and stops it again; the application output goes to target/bench/app-<label>.log
+run_benchmark() {
+  local label=$1
+  shift
+  local env=()
+  while [ $# -gt 0 ] && [ "$1" != "--" ]; do
+    env+=("$1")
+    shift
+  done
+  [ $# -gt 0 ] && shift
+  local log="target/bench/app-$label.log"
+  env "${env[@]}" "$JAVA" "$@" -jar "$JAR" > "$log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+  wait_for_app "$log"
+  ./mvnw -q -Pbench test-compile exec:java \
+    -Dbench.label="$label" -Dbench.base-url="$BASE_URL" \
+    -Dbench.email="$BENCH_EMAIL" -Dbench.password="$BENCH_PASSWORD" -Dbench.user-id="$BENCH_USER_ID" \
+    ${BENCH_RATE:+-Dbench.rate=$BENCH_RATE} ${BENCH_DURATION:+-Dbench.duration-seconds=$BENCH_DURATION}
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+}
@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Compares two JMH result files written by the jmh profile and prints the change of every score, flagging the ones
+# that moved by more than the threshold (10 % by default) beyond the measurement error.
+#
+#   bench/compare-jmh.sh target/jmh/0.0.1.json target/jmh/0.0.2.json [threshold-percent]
+#
+# Requirements: jq
+set -euo pipefail
+
+BASELINE=${1:?baseline result file}
+CANDIDATE=${2:?candidate result file}
+THRESHOLD=${3:-10}
+
+scores() {
+  jq -r '.[] | [.benchmark + ((.params // {}) | to_entries | map(":" + .key + "=" + .value) | join("")),
+                .primaryMetric.score, .primaryMetric.scoreError, .primaryMetric.scoreUnit] | @tsv' "$1" | sort
+}
+
+join -t $'\t' <(scores "$BASELINE") <(scores "$CANDIDATE") | awk -F '\t' -v threshold="$THRESHOLD" '
+  {
+    change = ($5 - $2) / $2 * 100
+    # lower is better for the time modes the benchmarks use
+    flag = ""
+    if (($5 - $2) > $3 + $6 && change > threshold) { flag = "  REGRESSION"; regressions++ }
+    else if (($2 - $5) > $3 + $6 && -change > threshold) { flag = "  improvement" }
+    printf "%-75s %12.3f -> %12.3f %-6s %+7.1f %%%s\n", $1, $2, $5, $4, change, flag
+  }
+  END { exit regressions > 0 ? 1 : 0 }'
@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Runs the hot-path load benchmark with the default logging and with the lean-logging profile (sampled step logs,
+# one summary event per request) and prints both summaries.
+#
+# Requirements: the docker-compose services running and an activated account:
+#   BENCH_EMAIL=... BENCH_PASSWORD=... BENCH_USER_ID=... bench/compare-logging-modes.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+source bench/common.sh
+
+PROFILE="${SPRING_PROFILES_ACTIVE:-dev}"
+
+package_app
+run_benchmark logging-verbose SPRING_PROFILES_ACTIVE="$PROFILE"
+run_benchmark logging-lean SPRING_PROFILES_ACTIVE="$PROFILE,lean-logging"
+
+echo
+echo "log lines written: verbose=$(wc -l < target/bench/app-logging-verbose.log) lean=$(wc -l < target/bench/app-logging-lean.log)"
+echo "results: target/bench/logging-verbose.json target/bench/logging-lean.json"
@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Startup time and memory of the native executable next to the jar it is built from, both with the same profiles:
+#   jvm     the packaged jar on the JVM
+#   native  target/boot-network, the executable of the native profile
+# Runs the smoke suite against the executable first, then StartupBenchmark for both, and writes a side by side
+# summary to target/bench/native-report.md.
+#
+# Requirements: a GraalVM JDK as JAVA_HOME, jq, the docker-compose services running, the schema up to date
+# (see bench/README.md) and an activated account:
+#   BENCH_EMAIL=... BENCH_PASSWORD=... bench/compare-native.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+source bench/common.sh
+
+PROFILES=prod,fast-startup
+./mvnw -q -Pnative -DskipTests package -Dfast-startup.profiles="$PROFILES"
+JAR=$(cd target && ls boot-network-*.jar | grep -v plain | head -1)
+mkdir -p target/bench
+
+# against the in-process stand-ins, only MySQL is shared with the benchmark runs
+./mvnw -q test -Dtest=NativeSmokeTest -Dsmoke.command="$PWD/target/boot-network" \
+  -Dsmoke.args="--spring.profiles.active=$PROFILES"
+
+startup() {
+  local label=$1
+  shift
+  ./mvnw -q -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.StartupBenchmark \
+    -Dbench.label="$label" -Dbench.command="$*" -Dbench.directory=target -Dbench.base-url="$BASE_URL" \
+    -Dbench.email="$BENCH_EMAIL" -Dbench.password="$BENCH_PASSWORD" ${BENCH_RUNS:+-Dbench.runs=$BENCH_RUNS}
+}
+
+startup jvm "$JAVA" -jar "$JAR" --spring.profiles.active="$PROFILES"
+startup native ./boot-network --spring.profiles.active="$PROFILES"
+
+{
+  echo "| build | median first success (ms) | median RSS at first success (KB) | peak RSS (KB) | binary (KB) |"
+  echo "|---|---|---|---|---|"
+  for label in jvm native; do
+    size=$([ "$label" = jvm ] && du -k "target/$JAR" | cut -f1 || du -k target/boot-network | cut -f1)
+    jq -r --arg size "$size" \
+      '"| \(.label) | \(.medianFirstSuccessMs) | \(.medianRssKb) | \([.runs[].peakRssKb] | max) | \($size) |"' \
+      "target/bench/startup-$label.json"
+  done
+} > target/bench/native-report.md
+cat target/bench/native-report.md
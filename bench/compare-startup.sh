@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Time to first successful request of three builds of the same version:
+#   jar           the packaged jar with the prod profile: schema diffing and role seeding at startup
+#   fast-profile  the same jar with prod,fast-startup: no schema diffing, nothing on MySQL while the context starts
+#   aot-cds       the fast-startup build: AOT-processed context and the AppCDS archive of the training run
+# and prints the startup times of each one.
+#
+# Requirements: the docker-compose services running, the schema up to date (see bench/README.md) and an activated account:
+#   BENCH_EMAIL=... BENCH_PASSWORD=... bench/compare-startup.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+source bench/common.sh
+
+PROFILES=prod,fast-startup
+./mvnw -q -Pfast-startup -DskipTests package -Dfast-startup.profiles="$PROFILES"
+JAR=$(cd target && ls boot-network-*.jar | grep -v plain | head -1)
+
+# every variant runs from target/fast-startup, the archive only matches the class path it was recorded with
+startup() {
+  local label=$1
+  shift
+  ./mvnw -q -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.StartupBenchmark \
+    -Dbench.label="$label" -Dbench.command="$*" -Dbench.directory=target/fast-startup -Dbench.base-url="$BASE_URL" \
+    -Dbench.email="$BENCH_EMAIL" -Dbench.password="$BENCH_PASSWORD" ${BENCH_RUNS:+-Dbench.runs=$BENCH_RUNS}
+}
+
+startup jar "$JAVA" -jar "../$JAR" --spring.profiles.active=prod
+startup fast-profile "$JAVA" -jar "../$JAR" --spring.profiles.active="$PROFILES"
+startup aot-cds "$JAVA" -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar "$JAR" \
+  --spring.profiles.active="$PROFILES"
+
+echo "results: target/bench/startup-jar.json target/bench/startup-fast-profile.json target/bench/startup-aot-cds.json"
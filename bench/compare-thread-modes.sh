@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+# Runs the hot-path load benchmark against the application twice, once on platform threads and once on virtual
+# threads, and prints both summaries. The virtual run is started with -Djdk.tracePinnedThreads=short so any carrier
+# pinning shows up in target/bench/app-virtual.log.
+#
+# Requirements: a Java 21+ JAVA_HOME, the docker-compose services running, and an activated account:
+#   BENCH_EMAIL=... BENCH_PASSWORD=... BENCH_USER_ID=... bench/compare-thread-modes.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+source bench/common.sh
+
+if [ "$("$JAVA" -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')" -lt 21 ]; then
+  echo "virtual threads need a Java 21+ runtime, point JAVA_HOME at one" >&2
+  exit 1
+fi
+
+package_app
+run_benchmark platform VIRTUAL_THREADS_ENABLED=false
+run_benchmark virtual VIRTUAL_THREADS_ENABLED=true -- -Djdk.tracePinnedThreads=short
+
+echo
+echo "pinned-thread reports during the virtual run: $(grep -c '<== monitors' target/bench/app-virtual.log || true)"
+echo "results: target/bench/platform.json target/bench/virtual.json"
@@ -0,0 +1,69 @@
+package dev.maram.boot_network.jmh;
+
+import dev.maram.boot_network.courses.CourseCompletion;
+import dev.maram.boot_network.courses.CourseIndexSnapshot;
+import dev.maram.boot_network.courses.CourseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Search as you type over a generated catalog of 100k courses, autocomplete, and the cost of one course change
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@State(Scope.Benchmark)
+public class CourseIndexBenchmark {
+
+    private static final int COURSES = 100_000;
+
+    private CourseIndexSnapshot snapshot;
+    private List<CourseIndexSnapshot.Change> changes;
+    private int next;
+
+    // one letter, a word being typed, a finished word, a narrowing second word, two rare words and a miss
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        @Param({"d", "data", "data ", "advanced pyth", "quantum cryptography ", "zzzz"})
+        private String text;
+    }
+
+    @Setup
+    public void setUp() {
+        List<CourseSummary> catalog = Fixtures.courses(COURSES);
+        snapshot = CourseIndexSnapshot.build(catalog);
+        changes = catalog.subList(0, 1000).stream()
+                .map(course -> CourseIndexSnapshot.Change.of(course,
+                        new CourseSummary(course.id(), course.code(), course.title() + " Workshop", course.instructor(), course.version() + 1)))
+                .toList();
+    }
+
+    @Benchmark
+    public List<CourseSummary> search(Query query) {
+        return snapshot.search(query.text, 10);
+    }
+
+    @Benchmark
+    public List<CourseCompletion> autocomplete(Query query) {
+        return snapshot.complete(query.text, 8);
+    }
+
+    // a retitled course: the path copies of its words, each time against the same base snapshot
+    @Benchmark
+    public CourseIndexSnapshot update() {
+        return snapshot.with(List.of(changes.get(next++ % changes.size())));
+    }
+}
@@ -0,0 +1,108 @@
+package dev.maram.boot_network.jmh;
+
+import dev.maram.boot_network.courses.CourseSummary;
+import dev.maram.boot_network.role.Role;
+import dev.maram.boot_network.role.RoleRepository;
+import dev.maram.boot_network.security.AuthorityCodec;
+import dev.maram.boot_network.security.JwtService;
+import dev.maram.boot_network.user.User;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Objects shaped like the ones the application builds, without a Spring context
+final class Fixtures {
+
+    // the key and expiration of application-dev.yml
+    static final String SECRET_KEY = "55647a4f7c02d28dd27d54c250bee89714ec2e0e93e02b7e40b605a813d824d2";
+    static final long EXPIRATION = 3_600_000L;
+
+    // course title words, the first ones the most frequent: titles draw from them with a Zipf-like skew
+    private static final String[] COURSE_WORDS = ("introduction data advanced programming design systems python java "
+            + "analysis management web development science learning applied theory engineering networks security "
+            + "machine statistics databases cloud software business marketing finance principles modern digital "
+            + "mobile algorithms structures mathematics calculus physics chemistry biology history economics law "
+            + "writing communication leadership project operations research methods visual art music ethics "
+            + "psychology sociology robotics embedded distributed parallel computing graphics games linear algebra "
+            + "discrete probability optimization compilers kotlin javascript typescript rust golang spring devops "
+            + "kubernetes docker testing agile quantum cryptography blockchain").split(" ");
+
+    private Fixtures() {
+    }
+
+    static JwtService jwtService() {
+        return jwtService(JwtService.Format.COMPACT);
+    }
+
+    static JwtService jwtService(JwtService.Format format) {
+        RoleRepository roleRepository = Mockito.mock(RoleRepository.class);
+        Mockito.when(roleRepository.findAll(Mockito.any(Sort.class))).thenReturn(roles(3));
+        JwtService jwtService = new JwtService(new AuthorityCodec(roleRepository));
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", EXPIRATION);
+        ReflectionTestUtils.setField(jwtService, "format", format);
+        ReflectionTestUtils.setField(jwtService, "displayClaims", true);
+        jwtService.init();
+        return jwtService;
+    }
+
+    static User user(int id, int roleCount) {
+        return User.builder()
+                .id(id)
+                .firstName("First" + id)
+                .lastName("Last" + id)
+                .email("user" + id + "@mail.com")
+                .dateOfBirth(LocalDate.of(1990, 1, 1))
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z7eO8aLKSh1j9hYJr2j1Y0cW")
+                .enabled(true)
+                .roles(roles(roleCount))
+                .createdDate(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .version(3L)
+                .build();
+    }
+
+    private static List<Role> roles(int count) {
+        List<Role> roles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            roles.add(Role.builder().id(i + 1).name(i == 0 ? "USER" : "ROLE_" + i).build());
+        }
+        return roles;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            users.add(user(i, 1));
+        }
+        return users;
+    }
+
+    // a catalog with a realistic word distribution: a few very common words, a long tail of rare ones
+    static List<CourseSummary> courses(int count) {
+        Random random = new Random(42);
+        String[] departments = {"CS", "MATH", "BUS", "ART", "ENG", "SCI", "LAW", "MED"};
+        List<CourseSummary> courses = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            int words = 2 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(' ');
+                }
+                // skewed to the front of the list, and one word in five a rare one of the tail
+                title.append(random.nextInt(5) == 0
+                        ? "topic" + random.nextInt(count / 10)
+                        : COURSE_WORDS[(int) (COURSE_WORDS.length * Math.pow(random.nextDouble(), 2))]);
+            }
+            courses.add(new CourseSummary(id, departments[id % departments.length] + "-" + id, title.toString(),
+                    "Instructor" + random.nextInt(2000), 0));
+        }
+        return courses;
+    }
+}
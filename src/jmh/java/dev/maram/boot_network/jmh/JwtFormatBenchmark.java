@@ -0,0 +1,64 @@
+package dev.maram.boot_network.jmh;
+
+import dev.maram.boot_network.security.JwtService;
+import dev.maram.boot_network.user.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The token of /auth/authenticate in both formats, and what JwtFilter does with it on every authenticated request.
+// The token sizes are printed once per fork.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFormatBenchmark {
+
+    @Param({"STANDARD", "COMPACT"})
+    private JwtService.Format format;
+
+    @Param({"1", "3"})
+    private int roles;
+
+    private JwtService jwtService;
+    private User user;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = Fixtures.jwtService(format);
+        user = Fixtures.user(1, roles);
+        claims = Map.of(JwtService.FULL_NAME, user.fullName());
+        token = jwtService.generateToken(claims, user);
+        System.out.printf("%n%s token with %d role(s): %d bytes, %d in the Authorization header%n",
+                format, roles, token.length(), "Bearer ".length() + token.length());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(claims, user);
+    }
+
+    @Benchmark
+    public void verify(Blackhole blackhole) {
+        Claims parsed = jwtService.parse(token);
+        blackhole.consume(jwtService.isTokenValid(parsed, user));
+        blackhole.consume(jwtService.extractAuthorities(parsed));
+    }
+}
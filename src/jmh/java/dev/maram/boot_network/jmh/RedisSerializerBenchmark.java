@@ -0,0 +1,63 @@
+package dev.maram.boot_network.jmh;
+
+import dev.maram.boot_network.config.RedisConfiguration;
+import dev.maram.boot_network.user.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a cached {@link UserDto}. {@code jdk} is the value serializer of the default cache
+ * configuration the application runs with, {@code json} the Jackson one of {@link RedisConfiguration}, which is
+ * not enabled at the moment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisSerializerBenchmark {
+
+    @Param({"jdk", "json"})
+    private String serializer;
+
+    private SerializationPair<Object> pair;
+    private UserDto user;
+    private ByteBuffer serialized;
+
+    @Setup
+    public void setUp() {
+        if ("json".equals(serializer)) {
+            RedisConfiguration config = new RedisConfiguration();
+            pair = SerializationPair.fromSerializer(config.valueSerializer(config.redisObjectMapper()));
+        } else {
+            pair = RedisCacheConfiguration.defaultCacheConfig().getValueSerializationPair();
+        }
+        user = new UserDto(1, "First1", "Last1", "user1@mail.com", 3L);
+        serialized = pair.write(user);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return pair.write(user);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return pair.read(serialized.duplicate());
+    }
+}
@@ -0,0 +1,56 @@
+package dev.maram.boot_network.jmh;
+
+import dev.maram.boot_network.user.User;
+import dev.maram.boot_network.user.UserDto;
+import dev.maram.boot_network.user.UserMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Entity to DTO mapping of the single-user and list endpoints, the sizes span a page up to a full export
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+
+    private final UserMapper mapper = new UserMapper();
+    private final User user = Fixtures.user(1, 1);
+
+    @State(Scope.Benchmark)
+    public static class Page {
+
+        @Param({"1", "20", "100", "1000"})
+        private int size;
+
+        private List<User> users;
+
+        @Setup
+        public void setUp() {
+            users = Fixtures.users(size);
+        }
+    }
+
+    @Benchmark
+    public UserDto toDto() {
+        return mapper.toDto(user);
+    }
+
+    @Benchmark
+    public List<UserDto> toDtoList(Page page) {
+        return mapper.toDtoList(page.users);
+    }
+}
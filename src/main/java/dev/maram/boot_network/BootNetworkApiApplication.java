@@ -1,42 +1,22 @@
 package dev.maram.boot_network;
 
-import dev.maram.boot_network.role.Role;
-import dev.maram.boot_network.role.RoleRepository;
-import org.springframework.boot.CommandLineRunner;
+import dev.maram.boot_network.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.context.annotation.Bean;
-import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-import java.util.Optional;
-
-@SpringBootApplication
-//@EnableJpaAuditing
+@SpringBootApplication // JPA auditing is enabled by JpaConfig
 @EnableAsync
+@EnableScheduling
 @EnableCaching
+@ImportRuntimeHints(NativeHints.class) // reachability metadata of the native image, see NativeHints
 public class BootNetworkApiApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(BootNetworkApiApplication.class, args);
 	}
 
-	@Bean
-	public CommandLineRunner createUserRole(RoleRepository roleRepository) {
-		return args -> {
-
-			Optional<Role> role = roleRepository.findByName("USER");
-
-			if (role.isEmpty()) {
-				roleRepository.save(
-						Role
-								.builder()
-								.name("USER")
-								.build()
-				);
-			}
-		};
-	}
-
 }
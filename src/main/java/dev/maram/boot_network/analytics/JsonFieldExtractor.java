@@ -0,0 +1,213 @@
+package dev.maram.boot_network.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pulls a fixed set of top-level fields out of a one-line JSON object without building a tree or a map: the line is
+ * scanned once, the values of the wanted keys are recorded as byte ranges and everything else, nested objects
+ * included, is skipped. Meant for the LogstashEncoder lines of the rolled logs, where a few fields per line matter.
+ *
+ * <p>Not thread-safe, one instance per reading thread; {@link #parse(byte[], int, int)} resets it for the next line.
+ */
+final class JsonFieldExtractor {
+
+    private final byte[][] keys;
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean[] strings;
+    private byte[] line;
+
+    JsonFieldExtractor(String... keys) {
+        this.keys = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            this.keys[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+        }
+        this.starts = new int[keys.length];
+        this.ends = new int[keys.length];
+        this.strings = new boolean[keys.length];
+    }
+
+    /**
+     * Parses the line held in {@code buffer[from, to)}.
+     *
+     * @return false when the line is not a JSON object; fields missing from the line read as absent
+     */
+    boolean parse(byte[] buffer, int from, int to) {
+        this.line = buffer;
+        Arrays.fill(starts, -1);
+        int length = to;
+        int i = skipWhitespace(line, from, length);
+        if (i >= length || line[i] != '{') {
+            return false;
+        }
+        i++;
+        while (true) {
+            i = skipWhitespace(line, i, length);
+            if (i >= length || line[i] == '}') {
+                return true;
+            }
+            if (line[i] == ',') {
+                i++;
+                continue;
+            }
+            if (line[i] != '"') {
+                return false;
+            }
+            int keyStart = i + 1;
+            int keyEnd = skipString(line, i, length);
+            if (keyEnd < 0) {
+                return false;
+            }
+            i = skipWhitespace(line, keyEnd + 1, length);
+            if (i >= length || line[i] != ':') {
+                return false;
+            }
+            i = skipWhitespace(line, i + 1, length);
+            int field = field(line, keyStart, keyEnd);
+            int valueEnd = skipValue(line, i, length);
+            if (valueEnd < 0) {
+                return false;
+            }
+            if (field >= 0) {
+                boolean string = line[i] == '"';
+                strings[field] = string;
+                starts[field] = string ? i + 1 : i;
+                ends[field] = string ? valueEnd - 1 : valueEnd;
+            }
+            i = valueEnd;
+        }
+    }
+
+    boolean has(int field) {
+        return starts[field] >= 0;
+    }
+
+    // the raw value, escapes included: fine for the routes, levels and e-mails found in our logs
+    String string(int field) {
+        return has(field) ? new String(line, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8) : null;
+    }
+
+    boolean equalsAscii(int field, byte[] expected) {
+        return has(field) && Arrays.equals(line, starts[field], ends[field], expected, 0, expected.length);
+    }
+
+    long longValue(int field, long missing) {
+        if (!has(field)) {
+            return missing;
+        }
+        long value = 0;
+        boolean negative = false;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            byte b = line[i];
+            if (b == '-' && i == starts[field]) {
+                negative = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else {
+                break;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * A decimal value scaled by 1000 and rounded, parsed in place: 12.3456 gives 12346. Used for the durations in
+     * milliseconds, kept as microseconds.
+     */
+    long thousandths(int field, long missing) {
+        if (!has(field)) {
+            return missing;
+        }
+        long integer = 0;
+        long fraction = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            byte b = line[i];
+            if (b == '.') {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (fractionDigits < 0) {
+                    integer = integer * 10 + (b - '0');
+                } else if (fractionDigits < 3) {
+                    fraction = fraction * 10 + (b - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 3) {
+                    roundUp = b >= '5';
+                    fractionDigits++;
+                }
+            } else {
+                break; // exponents do not show up in the encoder output
+            }
+        }
+        for (int d = Math.max(fractionDigits, 0); d < 3; d++) {
+            fraction *= 10;
+        }
+        return integer * 1000 + fraction + (roundUp ? 1 : 0);
+    }
+
+    private int field(byte[] line, int keyStart, int keyEnd) {
+        int length = keyEnd - keyStart;
+        for (int f = 0; f < keys.length; f++) {
+            byte[] key = keys[f];
+            if (key.length == length && Arrays.equals(line, keyStart, keyEnd, key, 0, length)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    // index of the closing quote of the string starting at i
+    private static int skipString(byte[] line, int i, int length) {
+        for (int j = i + 1; j < length; j++) {
+            if (line[j] == '\\') {
+                j++;
+            } else if (line[j] == '"') {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    // index right after the value starting at i
+    private static int skipValue(byte[] line, int i, int length) {
+        if (i >= length) {
+            return -1;
+        }
+        byte first = line[i];
+        if (first == '"') {
+            int end = skipString(line, i, length);
+            return end < 0 ? -1 : end + 1;
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            for (int j = i; j < length; j++) {
+                byte b = line[j];
+                if (b == '"') {
+                    j = skipString(line, j, length);
+                    if (j < 0) {
+                        return -1;
+                    }
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return j + 1;
+                }
+            }
+            return -1;
+        }
+        int j = i;
+        while (j < length && line[j] != ',' && line[j] != '}' && line[j] != ' ' && line[j] != '\t') {
+            j++;
+        }
+        return j;
+    }
+
+    private static int skipWhitespace(byte[] line, int i, int length) {
+        while (i < length && (line[i] == ' ' || line[i] == '\t' || line[i] == '\r' || line[i] == '\n')) {
+            i++;
+        }
+        return i;
+    }
+}
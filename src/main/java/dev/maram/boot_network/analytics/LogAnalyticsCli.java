@@ -0,0 +1,171 @@
+package dev.maram.boot_network.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Latency percentiles, error rates and top users per endpoint out of the rolled JSON logs, without starting the
+ * application. Needs the request summary events, off by default: run with the {@code lean-logging} profile or set
+ * {@code application.logging.request-summary.enabled=true}.
+ *
+ * <pre>
+ * java -cp boot-network.jar -Dloader.main=dev.maram.boot_network.analytics.LogAnalyticsCli \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher [options] [file or directory...]
+ *
+ *   --from 2026-10-18 | 2026-10-18T08:00:00Z   first instant (a day starts at midnight, system time zone)
+ *   --to   2026-10-19 | ...                     end of the range, excluded
+ *   --threads 8                                 files read in parallel (default: available processors)
+ *   --top 10                                    users listed
+ *   --json report.json                          also write the report as JSON
+ * </pre>
+ * Without paths, {@code Logs} and {@code logs} are scanned for {@code *.json} and {@code *.json.gz} files.
+ */
+public final class LogAnalyticsCli {
+
+    private LogAnalyticsCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Instant from = null;
+        Instant to = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int top = 10;
+        Path json = null;
+        List<Path> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> from = instant(args[++i]);
+                    case "--to" -> to = instant(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--top" -> top = Integer.parseInt(args[++i]);
+                    case "--json" -> json = Path.of(args[++i]);
+                    default -> paths.add(Path.of(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException | DateTimeParseException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (paths.isEmpty()) {
+            paths = List.of(Path.of("Logs"), Path.of("logs"));
+        }
+
+        List<Path> files = logFiles(paths);
+        if (files.isEmpty()) {
+            System.err.println("No *.json or *.json.gz files found in " + paths);
+            System.exit(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        RequestStats stats = new LogAnalyzer(from, to).analyze(files, threads);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        Report report = Report.of(stats, top, seconds);
+        report.print(System.out);
+        if (json != null) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), report);
+        }
+    }
+
+    private static Instant instant(String value) {
+        return value.contains("T") ? Instant.parse(value) : LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static List<Path> logFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(file -> file.toString().endsWith(".json") || file.toString().endsWith(".json.gz"))
+                            .forEach(files::add);
+                }
+            }
+        }
+        // largest first, a big file started last would leave the other threads idle at the end
+        files.sort(Comparator.comparingLong(LogAnalyticsCli::size).reversed());
+        return files;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    record Report(Totals totals, List<EndpointReport> endpoints, List<UserReport> topUsers) {
+
+        static Report of(RequestStats stats, int top, double seconds) {
+            List<EndpointReport> endpoints = stats.endpoints.entrySet().stream()
+                    .map(e -> EndpointReport.of(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingLong(EndpointReport::requests).reversed())
+                    .toList();
+            List<UserReport> users = stats.users.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, RequestStats.User> e) -> e.getValue().requests).reversed())
+                    .limit(top)
+                    .map(e -> new UserReport(e.getKey(), e.getValue().requests, e.getValue().errors))
+                    .toList();
+            Totals totals = new Totals(stats.files, stats.bytes, stats.lines, stats.malformed, stats.requests, seconds,
+                    seconds > 0 ? stats.bytes / seconds / (1024 * 1024) : 0);
+            return new Report(totals, endpoints, users);
+        }
+
+        void print(PrintStream out) {
+            out.printf(Locale.ROOT, "%,d files, %,d MB, %,d lines (%,d malformed), %,d requests in %.1f s (%.0f MB/s)%n%n",
+                    totals.files(), totals.bytes() / (1024 * 1024), totals.lines(), totals.malformed(), totals.requests(),
+                    totals.seconds(), totals.megabytesPerSecond());
+            out.printf(Locale.ROOT, "%-40s %10s %8s %8s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "5xx %", "4xx %", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (EndpointReport e : endpoints) {
+                out.printf(Locale.ROOT, "%-40s %,10d %8.2f %8.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                        e.endpoint(), e.requests(), e.serverErrorRate() * 100, e.clientErrorRate() * 100,
+                        e.p50Ms(), e.p90Ms(), e.p99Ms(), e.p999Ms(), e.maxMs());
+            }
+            if (!topUsers.isEmpty()) {
+                out.printf("%n%-40s %10s %8s%n", "user", "requests", "5xx");
+                topUsers.forEach(u -> out.printf(Locale.ROOT, "%-40s %,10d %,8d%n", u.user(), u.requests(), u.serverErrors()));
+            }
+        }
+    }
+
+    record Totals(long files, long bytes, long lines, long malformed, long requests, double seconds, double megabytesPerSecond) {
+    }
+
+    record EndpointReport(String endpoint, long requests, double serverErrorRate, double clientErrorRate,
+                          double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        static EndpointReport of(String endpoint, RequestStats.Endpoint stats) {
+            Histogram h = stats.latencyMicros;
+            return new EndpointReport(endpoint, stats.count,
+                    (double) stats.serverErrors / stats.count, (double) stats.clientErrors / stats.count,
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+        }
+    }
+
+    record UserReport(String user, long requests, long serverErrors) {
+    }
+}
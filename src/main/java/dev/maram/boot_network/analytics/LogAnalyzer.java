@@ -0,0 +1,175 @@
+package dev.maram.boot_network.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the request summary events ({@code RequestSummaryFilter}) out of the JSON log files, plain or gzipped, one
+ * file per thread. Memory stays flat whatever the size of the files: lines are scanned in a reused buffer and only
+ * the aggregates (a histogram per endpoint, a counter per user) are kept.
+ */
+final class LogAnalyzer {
+
+    private static final String REQUEST_LOGGER = "dev.maram.boot_network.request";
+    private static final Pattern ROLLED_DATE = Pattern.compile("\\.(\\d{4}-\\d{2}-\\d{2})\\.\\d+\\.json(\\.gz)?$");
+
+    private static final int TIMESTAMP = 0;
+    private static final int LOGGER = 1;
+    private static final int METHOD = 2;
+    private static final int ROUTE = 3;
+    private static final int STATUS = 4;
+    private static final int DURATION = 5;
+    private static final int USER = 6;
+    private static final int MDC_USER = 7;
+
+    private static final byte[] REQUEST_LOGGER_BYTES = REQUEST_LOGGER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_USER = "none".getBytes(StandardCharsets.US_ASCII);
+
+    private final Instant from;
+    private final Instant to;
+
+    LogAnalyzer(Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    RequestStats analyze(List<Path> files, int threads) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        try {
+            List<Future<RequestStats>> results = new ArrayList<>();
+            for (Path file : files) {
+                if (mayContainRange(file)) {
+                    results.add(executor.submit(() -> analyzeFile(file)));
+                }
+            }
+            RequestStats total = new RequestStats();
+            for (Future<RequestStats> result : results) {
+                try {
+                    total.merge(result.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    RequestStats analyzeFile(Path file) {
+        RequestStats stats = new RequestStats();
+        stats.files = 1;
+        JsonFieldExtractor extractor = new JsonFieldExtractor(
+                "@timestamp", "logger_name", "method", "route", "status", "durationMs", "user", "userEmail");
+        try (InputStream in = open(file)) {
+            byte[] buffer = new byte[1 << 20];
+            int filled = 0;
+            int read;
+            while ((read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                stats.bytes += read;
+                filled += read;
+                int start = 0;
+                for (int i = start; i < filled; i++) {
+                    if (buffer[i] == '\n') {
+                        line(stats, extractor, buffer, start, i);
+                        start = i + 1;
+                    }
+                }
+                // keep the partial last line for the next read, growing the buffer for a line longer than it
+                System.arraycopy(buffer, start, buffer, 0, filled - start);
+                filled -= start;
+                if (filled == buffer.length) {
+                    byte[] larger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, filled);
+                    buffer = larger;
+                }
+            }
+            if (filled > 0) {
+                line(stats, extractor, buffer, 0, filled);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+        return stats;
+    }
+
+    private void line(RequestStats stats, JsonFieldExtractor extractor, byte[] buffer, int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return;
+        }
+        stats.lines++;
+        if (!extractor.parse(buffer, from, to)) {
+            stats.malformed++;
+            return;
+        }
+        if (!extractor.equalsAscii(LOGGER, REQUEST_LOGGER_BYTES) || !extractor.has(ROUTE) || !inRange(extractor)) {
+            return;
+        }
+        String user = null;
+        if (extractor.has(USER) && !extractor.equalsAscii(USER, NO_USER)) {
+            user = extractor.string(USER);
+        } else if (extractor.has(MDC_USER)) {
+            user = extractor.string(MDC_USER);
+        }
+        stats.record(extractor.string(METHOD) + " " + extractor.string(ROUTE),
+                (int) extractor.longValue(STATUS, 0),
+                extractor.thousandths(DURATION, 0),
+                user);
+    }
+
+    private boolean inRange(JsonFieldExtractor extractor) {
+        if (from == null && to == null) {
+            return true;
+        }
+        Instant timestamp;
+        try {
+            timestamp = OffsetDateTime.parse(extractor.string(TIMESTAMP)).toInstant();
+        } catch (DateTimeParseException | NullPointerException e) {
+            return false;
+        }
+        return (from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to));
+    }
+
+    // rolled files carry their day in the name, the ones clearly outside the range are not even opened
+    private boolean mayContainRange(Path file) {
+        Matcher matcher = ROLLED_DATE.matcher(file.getFileName().toString());
+        if (!matcher.find()) {
+            return true;
+        }
+        LocalDate day = LocalDate.parse(matcher.group(1));
+        // a day of slack either way for the time zone of the encoder
+        Instant dayStart = day.minusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant dayEnd = day.plusDays(2).atStartOfDay().toInstant(ZoneOffset.UTC);
+        return (from == null || dayEnd.isAfter(from)) && (to == null || dayStart.isBefore(to));
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        // plain files are read straight into the line buffer, which is large enough already
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+}
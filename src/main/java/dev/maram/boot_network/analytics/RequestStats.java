@@ -0,0 +1,83 @@
+package dev.maram.boot_network.analytics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Aggregates of the request summary events of one or more log files. Each file is read into its own instance,
+// the per-file results are merged at the end, so no state is shared between the reading threads.
+final class RequestStats {
+
+    // durations above are clamped, a request taking longer than that is an outlier whatever its exact value
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    final Map<String, Endpoint> endpoints = new HashMap<>();
+    final Map<String, User> users = new HashMap<>();
+    long files;
+    long bytes;
+    long lines;
+    long requests;
+    long malformed;
+
+    void record(String endpoint, int status, long durationMicros, String user) {
+        requests++;
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        stats.record(status, durationMicros);
+        if (user != null) {
+            User userStats = users.computeIfAbsent(user, u -> new User());
+            userStats.requests++;
+            if (status >= 500) {
+                userStats.errors++;
+            }
+        }
+    }
+
+    RequestStats merge(RequestStats other) {
+        other.endpoints.forEach((name, stats) -> endpoints.merge(name, stats, Endpoint::merge));
+        other.users.forEach((name, stats) -> users.merge(name, stats, User::merge));
+        files += other.files;
+        bytes += other.bytes;
+        lines += other.lines;
+        requests += other.requests;
+        malformed += other.malformed;
+        return this;
+    }
+
+    static final class Endpoint {
+        final Histogram latencyMicros = new Histogram(HIGHEST_MICROS, 3);
+        long count;
+        long clientErrors;
+        long serverErrors;
+
+        private void record(int status, long durationMicros) {
+            count++;
+            if (status >= 500) {
+                serverErrors++;
+            } else if (status >= 400) {
+                clientErrors++;
+            }
+            latencyMicros.recordValue(Math.max(0, Math.min(durationMicros, HIGHEST_MICROS)));
+        }
+
+        private Endpoint merge(Endpoint other) {
+            latencyMicros.add(other.latencyMicros);
+            count += other.count;
+            clientErrors += other.clientErrors;
+            serverErrors += other.serverErrors;
+            return this;
+        }
+    }
+
+    static final class User {
+        long requests;
+        long errors;
+
+        private User merge(User other) {
+            requests += other.requests;
+            errors += other.errors;
+            return this;
+        }
+    }
+}
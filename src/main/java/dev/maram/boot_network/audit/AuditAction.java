@@ -0,0 +1,10 @@
+package dev.maram.boot_network.audit;
+
+public enum AuditAction {
+    LOGIN,
+    LOGIN_FAILED,
+    ACCOUNT_ACTIVATED,
+    USER_CREATED,
+    USER_UPDATED,
+    USER_DELETED
+}
@@ -0,0 +1,65 @@
+package dev.maram.boot_network.audit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// An audit event on its way to the table: in the ring buffer, then in a batch, or as a record of the spool
+record AuditEntry(long epochMillis, AuditAction action, String actor, Integer userId, String detail) {
+
+    // the column lengths of audit_event: a failed login records whatever email was typed
+    static final int ACTOR_LENGTH = 255;
+    static final int DETAIL_LENGTH = 255;
+
+    AuditEntry {
+        actor = truncate(actor, ACTOR_LENGTH);
+        detail = truncate(detail, DETAIL_LENGTH);
+    }
+
+    private static String truncate(String value, int length) {
+        if (value == null || value.length() <= length) {
+            return value;
+        }
+        // not through the middle of a surrogate pair, the database would refuse the half character
+        return value.substring(0, Character.isHighSurrogate(value.charAt(length - 1)) ? length - 1 : length);
+    }
+
+    // the spool record, its timestamp field holds epochMillis
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(action.ordinal());
+            writeNullable(out, actor);
+            out.writeInt(userId == null ? -1 : userId);
+            writeNullable(out, detail);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static AuditEntry fromBytes(long epochMillis, byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            AuditAction action = AuditAction.values()[in.readUnsignedByte()];
+            String actor = readNullable(in);
+            int userId = in.readInt();
+            return new AuditEntry(epochMillis, action, actor, userId < 0 ? null : userId, readNullable(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.maram.boot_network.audit;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Append-only, rows are inserted in batches by AuditTrail and never changed
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(
+        name = "audit_event",
+        indexes = @Index(name = "idx_audit_event_user_occurred", columnList = "userId, occurredAt")
+)
+public class AuditEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) //assigned by the multi-row inserts
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private AuditAction action;
+
+    @Column(length = AuditEntry.ACTOR_LENGTH)
+    private String actor; //email of the authenticated user, or the one that was tried on a failed login
+
+    private Integer userId;
+
+    @Column(length = AuditEntry.DETAIL_LENGTH)
+    private String detail;
+}
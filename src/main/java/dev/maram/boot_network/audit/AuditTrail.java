@@ -0,0 +1,363 @@
+package dev.maram.boot_network.audit;
+
+import dev.maram.boot_network.logging.LogSpool;
+import dev.maram.boot_network.user.UserChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Audit log of logins, activations and user changes, kept off the request path: recording an event puts it in a
+// lock-free ring buffer, a single thread drains it and inserts each batch with one multi-row statement into the
+// append-only audit_event table. While the database fails or is slow, batches go to a local spool instead and are
+// inserted once it recovers; the spool survives restarts. Delivery is at least once: a crash between an insert and
+// the spool commit inserts that batch again. Rows the database refuses for their data are dead-lettered: logged and
+// counted instead of being spooled and replayed forever.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditTrail implements MeterBinder {
+
+    private static final String INSERT = "insert into audit_event (occurred_at, action, actor, user_id, detail) values ";
+    private static final String ROW = "(?, ?, ?, ?, ?)";
+    private static final String PROBE = "select occurred_at, action, actor, user_id, detail from audit_event where 1 = 0";
+
+    // what recording does when the ring buffer is full
+    public enum Overflow {
+        SPOOL, // the caller appends the event to the spool itself, no I/O wait: the spool is memory-mapped
+        BLOCK, // the caller waits up to block-timeout for room, then drops the event
+        DROP
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorAware;
+
+    @Value("${application.audit.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${application.audit.overflow:spool}")
+    private Overflow overflow;
+
+    @Value("${application.audit.block-timeout:50ms}")
+    private Duration blockTimeout;
+
+    @Value("${application.audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.audit.interval:200ms}")
+    private Duration interval;
+
+    @Value("${application.audit.slow-threshold:500ms}")
+    private Duration slowThreshold;
+
+    @Value("${application.audit.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    @Value("${application.audit.spool.directory:data/audit-spool}")
+    private String spoolDirectory;
+
+    @Value("${application.audit.spool.segment-size:4MB}")
+    private DataSize segmentSize;
+
+    @Value("${application.audit.spool.max-size:256MB}")
+    private DataSize maxSpoolSize;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    // epoch millis of the oldest event in the spool, 0 when it is empty
+    private final AtomicLong spooledSince = new AtomicLong();
+
+    private RingBuffer<AuditEntry> buffer;
+    private LogSpool spool;
+    private Thread writer;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void start() throws IOException {
+        buffer = new RingBuffer<>(bufferSize);
+        spool = LogSpool.open(Path.of(spoolDirectory), (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes()),
+                maxSpoolSize.toBytes());
+        if (spool.pendingBytes() > 0) {
+            spooledSince.set(System.currentTimeMillis());
+            log.info("{} bytes of spooled audit events left by the last run", spool.pendingBytes());
+        }
+        writer = new Thread(this::write, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // by the authenticated user, if any
+    public void record(AuditAction action, Integer userId, String detail) {
+        record(action, auditorAware.getCurrentAuditor().orElse(null), userId, detail);
+    }
+
+    public void record(AuditAction action, String actor, Integer userId, String detail) {
+        AuditEntry entry = new AuditEntry(System.currentTimeMillis(), action, actor, userId, detail);
+        if (buffer.offer(entry)) {
+            return;
+        }
+        switch (overflow) {
+            case SPOOL -> {
+                if (!spool(entry)) {
+                    dropped.increment();
+                }
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeout.toNanos();
+                while (!buffer.offer(entry)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+            case DROP -> dropped.increment();
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        AuditAction action = switch (event.type()) {
+            case CREATED -> AuditAction.USER_CREATED;
+            case UPDATED -> AuditAction.USER_UPDATED;
+            case DELETED -> AuditAction.USER_DELETED;
+        };
+        record(action, event.userId(), null);
+    }
+
+    private void write() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        long backoff = interval.toMillis();
+        long degradedUntil = System.nanoTime();
+        while (true) {
+            batch.clear();
+            buffer.drainTo(batch, batchSize);
+            boolean degraded = System.nanoTime() - degradedUntil < 0;
+            long millis;
+            try {
+                if (!batch.isEmpty() && degraded) {
+                    spoolAll(batch);
+                    continue;
+                } else if (!batch.isEmpty()) {
+                    millis = insertOrSpool(batch);
+                } else if (!degraded && !stopping && spool.pendingBytes() > 0) {
+                    millis = replaySpool();
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(this, interval.toNanos());
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Writing audit events failed, spooling them for {} ms", backoff, e);
+                degradedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+                backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+                continue;
+            }
+            if (millis > slowThreshold.toMillis()) {
+                // written, but the next batches should not wait on the database
+                log.warn("Inserting audit events took {} ms, spooling them for {} ms", millis, backoff);
+                degradedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+                backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+            } else {
+                backoff = interval.toMillis();
+            }
+        }
+    }
+
+    // milliseconds the insert took
+    private long insertOrSpool(List<AuditEntry> batch) {
+        long start = System.nanoTime();
+        int[] done = new int[1];
+        try {
+            insertIsolating(batch, done);
+        } catch (RuntimeException e) {
+            spoolAll(batch.subList(done[0], batch.size()));
+            throw e;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private long replaySpool() {
+        LogSpool.Batch batch = spool.read(batchSize, Integer.MAX_VALUE);
+        if (batch.isEmpty()) {
+            spool.commit(batch);
+            spooledSince.set(0);
+            return 0;
+        }
+        List<AuditEntry> entries = new ArrayList<>(batch.records().size());
+        for (LogSpool.Record record : batch.records()) {
+            entries.add(AuditEntry.fromBytes(record.timestampNanos(), record.line()));
+        }
+        long start = System.nanoTime();
+        insertIsolating(entries, new int[1]);
+        spool.commit(batch);
+        spooledSince.set(spool.pendingBytes() > 0 ? entries.get(entries.size() - 1).epochMillis() : 0);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    // A statement refused for its data is split in halves down to the offending rows, which are dead-lettered, the
+    // others are inserted. done counts the rows of the batch written or dead-lettered, in order, when the database
+    // fails as a whole and the exception is thrown.
+    private void insertIsolating(List<AuditEntry> rows, int[] done) {
+        NonTransientDataAccessException refusal;
+        try {
+            insert(rows);
+            done[0] += rows.size();
+            return;
+        } catch (DataIntegrityViolationException e) {
+            refusal = e;
+        } catch (BadSqlGrammarException e) {
+            // a missing table or column fails every row alike, that is an outage: the probe throws it
+            jdbcTemplate.queryForList(PROBE);
+            refusal = e;
+        }
+        if (rows.size() == 1) {
+            deadLetter(rows.get(0), refusal);
+            done[0]++;
+            return;
+        }
+        int half = rows.size() / 2;
+        insertIsolating(rows.subList(0, half), done);
+        insertIsolating(rows.subList(half, rows.size()), done);
+    }
+
+    private void deadLetter(AuditEntry entry, NonTransientDataAccessException e) {
+        deadLettered.increment();
+        log.error("Audit event refused by the database, dropped {} {} {} {} {}", kv("occurredAt", entry.epochMillis()),
+                kv("action", entry.action()), kv("actor", entry.actor()), kv("userId", entry.userId()),
+                kv("detail", entry.detail()), e);
+    }
+
+    private void insert(List<AuditEntry> batch) {
+        StringBuilder sql = new StringBuilder(INSERT.length() + batch.size() * (ROW.length() + 2)).append(INSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW);
+        }
+        jdbcTemplate.update(sql.toString(), (PreparedStatement statement) -> {
+            int parameter = 1;
+            for (AuditEntry entry : batch) {
+                statement.setTimestamp(parameter++, new Timestamp(entry.epochMillis()));
+                statement.setString(parameter++, entry.action().name());
+                statement.setString(parameter++, entry.actor());
+                setUserId(statement, parameter++, entry.userId());
+                statement.setString(parameter++, entry.detail());
+            }
+        });
+        written.add(batch.size());
+    }
+
+    private static void setUserId(PreparedStatement statement, int parameter, Integer userId) throws SQLException {
+        if (userId == null) {
+            statement.setNull(parameter, Types.INTEGER);
+        } else {
+            statement.setInt(parameter, userId);
+        }
+    }
+
+    private void spoolAll(List<AuditEntry> batch) {
+        for (AuditEntry entry : batch) {
+            if (!spool(entry)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private boolean spool(AuditEntry entry) {
+        if (!spool.append(entry.epochMillis(), entry.toBytes())) {
+            return false;
+        }
+        spooledSince.compareAndSet(0, entry.epochMillis());
+        spooled.increment();
+        return true;
+    }
+
+    // age of the oldest event not written to the table yet
+    long lagMillis() {
+        long now = System.currentTimeMillis();
+        long oldest = spooledSince.get();
+        AuditEntry next = buffer.peek();
+        if (next != null && (oldest == 0 || next.epochMillis() < oldest)) {
+            oldest = next.epochMillis();
+        }
+        return oldest == 0 ? 0 : Math.max(0, now - oldest);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("audit.lag", this, trail -> trail.lagMillis() / 1000.0)
+                .description("Age of the oldest audit event not written to the database yet")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("audit.buffer.size", this, trail -> trail.buffer.size())
+                .description("Audit events waiting in memory")
+                .register(registry);
+        Gauge.builder("audit.spool.size", this, trail -> trail.spool.pendingBytes())
+                .description("Spooled audit events not written to the database yet")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("audit.written", written, LongAdder::sum)
+                .description("Audit events inserted into the database")
+                .register(registry);
+        FunctionCounter.builder("audit.spooled", spooled, LongAdder::sum)
+                .description("Audit events that went through the spool")
+                .register(registry);
+        FunctionCounter.builder("audit.dropped", dropped, LongAdder::sum)
+                .description("Audit events lost to a full buffer or spool")
+                .register(registry);
+        FunctionCounter.builder("audit.dead.lettered", deadLettered, LongAdder::sum)
+                .description("Audit events the database refused, logged instead of written")
+                .register(registry);
+        FunctionCounter.builder("audit.write.failures", failures, LongAdder::sum)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        stopping = true;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!writer.isAlive()) {
+            // recorded while stopping, after the writer's last look at the buffer
+            List<AuditEntry> rest = new ArrayList<>();
+            buffer.drainTo(rest, buffer.capacity());
+            spoolAll(rest);
+        }
+        spool.close();
+    }
+}
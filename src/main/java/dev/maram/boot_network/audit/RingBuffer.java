@@ -0,0 +1,90 @@
+package dev.maram.boot_network.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Every slot carries a sequence number: a producer claims
+ * the next position with a CAS on the tail once the slot's sequence says it is free, stores the element and then
+ * publishes it by advancing the sequence; the consumer takes slots in order as they are published. A full buffer
+ * makes {@link #offer} return false right away, nothing ever waits.
+ */
+final class RingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    // position + 1 once published, position + capacity once consumed and free for the next lap
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // moved by the consumer only
+    private volatile long head;
+
+    RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long free = sequences.getAcquire(index) - position;
+            if (free == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.setPlain(index, element);
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+            } else if (free < 0) {
+                return false; // the consumer has not freed this slot of the previous lap yet
+            }
+            // another producer claimed the position meanwhile
+        }
+    }
+
+    // consumer only: moves up to max published elements to the list, in order
+    int drainTo(List<E> into, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+            into.add(slots.getPlain(index));
+            slots.setPlain(index, null);
+            sequences.setRelease(index, position + capacity);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    // the oldest published element without taking it; from any thread, possibly stale
+    E peek() {
+        long position = head;
+        int index = (int) (position & mask);
+        return sequences.getAcquire(index) == position + 1 ? slots.getAcquire(index) : null;
+    }
+
+    // claimed positions not consumed yet, including ones still being written
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
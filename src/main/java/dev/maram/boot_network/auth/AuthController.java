@@ -16,14 +16,22 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Authentication")
 public class AuthController {
     private final AuthService authService;
+    private final RegistrationPipeline registrationPipeline;
 
     @PostMapping("/register")
     @ResponseStatus(HttpStatus.ACCEPTED) //Response status by default
-    public ResponseEntity<?> register(
+    public ResponseEntity<RegistrationStatus> register(
             @RequestBody @Valid RegistrationRequest request
-    ) throws MessagingException {
-        authService.register(request);
-        return ResponseEntity.accepted().build();
+    ) {
+        return ResponseEntity.accepted().body(registrationPipeline.submit(request));
+    }
+
+    // polled by the client after /register until the registration is COMPLETED or FAILED
+    @GetMapping("/registrations/{registrationId}")
+    public ResponseEntity<RegistrationStatus> registrationStatus(
+            @PathVariable String registrationId
+    ) {
+        return ResponseEntity.ok(registrationPipeline.status(registrationId));
     }
 
     @PostMapping("/authenticate")
@@ -1,10 +1,17 @@
 package dev.maram.boot_network.auth;
 
+import dev.maram.boot_network.audit.AuditAction;
+import dev.maram.boot_network.audit.AuditTrail;
 import dev.maram.boot_network.email.EmailService;
+import dev.maram.boot_network.exception.InvalidTokenException;
+import dev.maram.boot_network.exception.TokenExpiredException;
+import dev.maram.boot_network.exception.UserAlreadyExistsException;
+import dev.maram.boot_network.exception.UserNotFoundException;
 import dev.maram.boot_network.email.EmailTemplateName;
 import dev.maram.boot_network.role.Role;
-import dev.maram.boot_network.role.RoleRepository;
+import dev.maram.boot_network.role.RoleService;
 import dev.maram.boot_network.security.JwtService;
+import dev.maram.boot_network.user.AfterCommit;
 import dev.maram.boot_network.user.Token;
 import dev.maram.boot_network.user.TokenRepository;
 import dev.maram.boot_network.user.User;
@@ -19,8 +26,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -39,25 +46,26 @@ public class AuthService {
     //2. create a user object + save it
     //3. send a validation email (implement an email sender service)
 
-    private final RoleRepository roleRepository;
+    private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
     private final TokenRepository tokenRepository;
     private final EmailService emailService;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final AuditTrail auditTrail;
 
     @Value("${application.mailing.frontend.activation-url}")
     private String activationUrl;
 
+    // run by the RegistrationPipeline workers, off the request thread
     public void register(RegistrationRequest request) throws MessagingException {
         log.info("Beginning user registration for email: {}", request.getEmail());
-        Role userRole = roleRepository
-                .findByName("USER")
-                .orElseThrow(() -> {
-                    log.error("USER role not found in database - initialization issue");
-                    return new IllegalArgumentException("role USER was not intialized");
-                });
+        // before the password hash, which is most of the cost of a registration
+        if (userRepository.findIdByEmail(request.getEmail()).isPresent()) {
+            throw new UserAlreadyExistsException();
+        }
+        Role userRole = roleService.userRole();
 
         log.info("Found role: {}", userRole.getName());
 
@@ -141,21 +149,28 @@ public class AuthService {
 
         log.info("Authentication attempt for email: {}", request.getEmail());
 
-        Authentication auth = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+        Authentication auth;
+        try {
+            auth = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (AuthenticationException e) {
+            auditTrail.record(AuditAction.LOGIN_FAILED, request.getEmail(), null, e.getClass().getSimpleName());
+            throw e;
+        }
 
         log.info("Authentication successful for email: {}", request.getEmail());
 
         Claims claims = Jwts.claims();
         User user = (User) auth.getPrincipal();
-        claims.put("fullName", user.fullName());
+        claims.put(JwtService.FULL_NAME, user.fullName());
 
         String jwtToken = jwtService.generateToken(claims, (UserDetails) user);
         log.info("JWT token generated for user ID: {}", user.getId());
+        auditTrail.record(AuditAction.LOGIN, user.getEmail(), user.getId(), null);
 
         return AuthenticationResponse
                 .builder()
@@ -170,7 +185,7 @@ public class AuthService {
         Token savedToken = tokenRepository.findByToken(token)
                 .orElseThrow(() -> {
                     log.error("Invalid activation token attempted: {}", token);
-                    return new RuntimeException("Invalid token!");
+                    return new InvalidTokenException();
                 });
 
         log.info("Token found for user ID: {}", savedToken.getUser().getId());
@@ -178,13 +193,13 @@ public class AuthService {
         if(LocalDateTime.now().isAfter(savedToken.getExpiresAt())) {
             log.error("Token expired for user ID: {}, sending new validation email", savedToken.getUser().getId());
             sendValidationEmail(savedToken.getUser());
-            throw new RuntimeException("Activation token has expired, A new token has been sent to the same email address");
+            throw new TokenExpiredException();
         }
 
         User user = userRepository.findById(savedToken.getUser().getId())
                 .orElseThrow(() -> {
                     log.error("User not found for token: {}", token);
-                    return new UsernameNotFoundException("User not found");
+                    return new UserNotFoundException();
                 });
 
         user.setEnabled(true);
@@ -194,5 +209,6 @@ public class AuthService {
         savedToken.setValidatedAt(LocalDateTime.now());
         tokenRepository.save(savedToken);
         log.info("Token validated at: {}", savedToken.getValidatedAt());
+        AfterCommit.run(() -> auditTrail.record(AuditAction.ACCOUNT_ACTIVATED, user.getEmail(), user.getId(), null));
     }
 }
\ No newline at end of file
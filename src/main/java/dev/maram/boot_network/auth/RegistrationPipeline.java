@@ -0,0 +1,145 @@
+package dev.maram.boot_network.auth;
+
+import dev.maram.boot_network.config.AsyncConfig;
+import dev.maram.boot_network.exception.BusinessException;
+import dev.maram.boot_network.exception.RegistrationBacklogFullException;
+import dev.maram.boot_network.exception.RegistrationNotFoundException;
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Registration in stages. The request thread only queues the validated request and answers 202 with a registration
+// id. A bounded pool of workers then hashes the password and inserts the user and its activation token, and hands
+// the activation email to the mail executor. Throughput is set by the worker count, latency of POST /auth/register
+// does not depend on BCrypt or the database, and a full queue answers 503 right away. Clients poll
+// GET /auth/registrations/{id}. The queue is in memory: registrations queued on a node that dies are lost, their
+// status stays QUEUED until it expires and the client registers again.
+@Component
+@Slf4j
+public class RegistrationPipeline implements MeterBinder {
+
+    private static final String FAILED_REASON = "Registration failed, try again later";
+
+    private final AuthService authService;
+    private final RegistrationStatuses statuses;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RegistrationPipeline(
+            AuthService authService,
+            RegistrationStatuses statuses,
+            @Qualifier(AsyncConfig.REGISTRATION_EXECUTOR) ThreadPoolTaskExecutor executor
+    ) {
+        this.authService = authService;
+        this.statuses = statuses;
+        this.executor = executor;
+    }
+
+    public RegistrationStatus submit(RegistrationRequest request) {
+        RegistrationStatus queued = RegistrationStatus.of(UUID.randomUUID().toString(), RegistrationStatus.State.QUEUED);
+        // stored before the worker can move it on
+        update(queued);
+        try {
+            executor.execute(() -> process(queued.registrationId(), request));
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            remove(queued.registrationId());
+            throw new RegistrationBacklogFullException();
+        }
+        log.info("Registration queued {}", kv("registrationId", queued.registrationId()));
+        return queued;
+    }
+
+    public RegistrationStatus status(String registrationId) {
+        RegistrationStatus status = statuses.get(registrationId);
+        if (status == null) {
+            throw new RegistrationNotFoundException();
+        }
+        return status;
+    }
+
+    private void process(String registrationId, RegistrationRequest request) {
+        update(RegistrationStatus.of(registrationId, RegistrationStatus.State.PROCESSING));
+        RegistrationStatus outcome;
+        try {
+            authService.register(request);
+            completed.increment();
+            outcome = RegistrationStatus.of(registrationId, RegistrationStatus.State.COMPLETED);
+        } catch (BusinessException e) {
+            failed.increment();
+            outcome = failure(registrationId, e.getErrorCode(), e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // the same email registered in between the check and the insert
+            failed.increment();
+            outcome = failure(registrationId, BusinessErrorCodes.USER_ALREADY_EXISTS,
+                    BusinessErrorCodes.USER_ALREADY_EXISTS.getDescription());
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Registration failed {}", kv("registrationId", registrationId), e);
+            outcome = failure(registrationId, BusinessErrorCodes.INTERNAL_ERROR, FAILED_REASON);
+        }
+        update(outcome);
+    }
+
+    private static RegistrationStatus failure(String registrationId, BusinessErrorCodes code, String reason) {
+        return new RegistrationStatus(registrationId, RegistrationStatus.State.FAILED, code.getCode(), reason);
+    }
+
+    // a status lost to an unreachable Redis costs the client its polling, not its registration
+    private void update(RegistrationStatus status) {
+        try {
+            statuses.put(status);
+        } catch (DataAccessException e) {
+            log.warn("Storing the registration status failed {} {}", kv("registrationId", status.registrationId()),
+                    kv("state", status.state()), e);
+        }
+    }
+
+    private void remove(String registrationId) {
+        try {
+            statuses.remove(registrationId);
+        } catch (DataAccessException e) {
+            log.warn("Removing the status of a rejected registration failed {}", kv("registrationId", registrationId), e);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("registrations.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Registrations waiting for a worker")
+                .register(registry);
+        Gauge.builder("registrations.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Registrations being processed")
+                .register(registry);
+        FunctionCounter.builder("registrations", completed, LongAdder::sum)
+                .description("Registrations by outcome, rejected: refused because the queue was full")
+                .tag("outcome", "completed")
+                .register(registry);
+        FunctionCounter.builder("registrations", failed, LongAdder::sum)
+                .description("Registrations by outcome, rejected: refused because the queue was full")
+                .tag("outcome", "failed")
+                .register(registry);
+        FunctionCounter.builder("registrations", rejected, LongAdder::sum)
+                .description("Registrations by outcome, rejected: refused because the queue was full")
+                .tag("outcome", "rejected")
+                .register(registry);
+    }
+}
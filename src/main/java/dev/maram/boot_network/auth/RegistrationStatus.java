@@ -0,0 +1,20 @@
+package dev.maram.boot_network.auth;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Where a registration accepted by POST /auth/register stands. A failed one carries the business error code and
+// message the synchronous registration would have answered with.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RegistrationStatus(String registrationId, State state, Integer errorCode, String reason) {
+
+    public enum State {
+        QUEUED,
+        PROCESSING,
+        COMPLETED, // the account exists and the activation email is on its way
+        FAILED
+    }
+
+    static RegistrationStatus of(String registrationId, State state) {
+        return new RegistrationStatus(registrationId, state, null, null);
+    }
+}
@@ -0,0 +1,61 @@
+package dev.maram.boot_network.auth;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+// The registration statuses, in Redis so that a client polling another node than the one it registered on finds
+// its registration. One string per registration, "state\nerror code\nreason", expiring after status-ttl: clients poll
+// for seconds, nobody keeps a registration id.
+@Component
+@RequiredArgsConstructor
+public class RegistrationStatuses {
+
+    private static final String PREFIX = "registration:";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    @Value("${application.registration.status-ttl:1h}")
+    private Duration ttl;
+
+    public void put(RegistrationStatus status) {
+        String value = status.state().name() + '\n'
+                + (status.errorCode() == null ? "" : status.errorCode()) + '\n'
+                + (status.reason() == null ? "" : status.reason());
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.stringCommands().set(key(status.registrationId()), value.getBytes(StandardCharsets.UTF_8),
+                    Expiration.from(ttl), RedisStringCommands.SetOption.upsert());
+        }
+    }
+
+    // null when unknown or expired
+    public RegistrationStatus get(String registrationId) {
+        byte[] value;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            value = connection.stringCommands().get(key(registrationId));
+        }
+        if (value == null) {
+            return null;
+        }
+        String[] fields = new String(value, StandardCharsets.UTF_8).split("\n", 3);
+        return new RegistrationStatus(registrationId, RegistrationStatus.State.valueOf(fields[0]),
+                fields[1].isEmpty() ? null : Integer.valueOf(fields[1]), fields[2].isEmpty() ? null : fields[2]);
+    }
+
+    public void remove(String registrationId) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(key(registrationId));
+        }
+    }
+
+    private static byte[] key(String registrationId) {
+        return (PREFIX + registrationId).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package dev.maram.boot_network.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@Slf4j
+public class AsyncConfig {
+
+    public static final String MAIL_EXECUTOR = "mailTaskExecutor";
+    public static final String REGISTRATION_EXECUTOR = "registrationTaskExecutor";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${application.async.mail.pool-size:4}")
+    private int mailPoolSize;
+
+    @Value("${application.async.mail.queue-capacity:500}")
+    private int mailQueueCapacity;
+
+    @Value("${application.async.registration.pool-size:0}")
+    private int registrationPoolSize;
+
+    @Value("${application.async.registration.queue-capacity:1000}")
+    private int registrationQueueCapacity;
+
+    // Jakarta Mail's SMTPTransport holds a monitor while it talks to the SMTP server, which would pin the carrier
+    // thread of a virtual thread for the whole send. Mail therefore keeps its own small pool of platform threads
+    // whatever the threading mode of the rest of the application is.
+    @Bean(name = MAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor mailTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mailPoolSize);
+        executor.setMaxPoolSize(mailPoolSize);
+        executor.setQueueCapacity(mailQueueCapacity);
+        executor.setThreadNamePrefix("mail-");
+        // a full queue makes the caller send the mail itself: registration workers slow down, no activation email is lost
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    // Registration workers spend their time in BCrypt, CPU-bound: platform threads, one per processor unless set.
+    // The queue is bounded, a full one answers 503 rather than letting registrations wait for minutes.
+    @Bean(name = REGISTRATION_EXECUTOR)
+    public ThreadPoolTaskExecutor registrationTaskExecutor() {
+        int poolSize = registrationPoolSize > 0 ? registrationPoolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(registrationQueueCapacity);
+        executor.setThreadNamePrefix("registration-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadingMode() {
+        int feature = Runtime.version().feature();
+        if (virtualThreadsEnabled && feature < 21) {
+            // Spring Boot silently falls back to platform threads below Java 21, make it visible
+            log.warn("Virtual threads were requested but the runtime is Java {}, requests are served by platform threads", feature);
+            return;
+        }
+        log.info("Request handling, @Async and @Scheduled tasks run on {} threads",
+                virtualThreadsEnabled ? "virtual" : "platform");
+    }
+}
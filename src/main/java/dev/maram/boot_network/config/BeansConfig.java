@@ -1,5 +1,7 @@
 package dev.maram.boot_network.config;
 
+import dev.maram.boot_network.metrics.HotPathStats;
+import dev.maram.boot_network.metrics.TimedPasswordEncoder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +18,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class BeansConfig {
 
     private final UserDetailsService userDetailsService;
+    private final HotPathStats hotPathStats;
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
@@ -32,7 +35,7 @@ public class BeansConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), hotPathStats.passwordHashes());
     }
 
 }
@@ -0,0 +1,67 @@
+package dev.maram.boot_network.config;
+
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import dev.maram.boot_network.auth.AuthenticationResponse;
+import dev.maram.boot_network.courses.CourseSummary;
+import dev.maram.boot_network.email.EmailTemplateName;
+import dev.maram.boot_network.handler.ExceptionResponse;
+import dev.maram.boot_network.logging.SamplingTurboFilter;
+import dev.maram.boot_network.logging.SpoolingLokiAppender;
+import dev.maram.boot_network.user.UserChange;
+import dev.maram.boot_network.user.UserChangedEvent;
+import dev.maram.boot_network.user.UserDto;
+import dev.maram.boot_network.user.UserSearchHit;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.stream.Stream;
+
+// Reachability metadata for the native image, for what the AOT processing cannot see by itself: values serialized
+// without a declared type, reflection inside libraries and resources looked up by name. Beans, JPA entities,
+// controller signatures, actuator endpoints and the classes named in logback-spring.xml are contributed by the AOT
+// processing; the GraalVM reachability metadata repository covers the MySQL driver, Lettuce and Netty.
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // JSON without a declared type: SSE change events, ResponseEntity<?> bodies and the Jackson Redis serializer.
+        // The request and response types are Lombok @Builder classes with a no-args constructor, Jackson never goes
+        // through the builders.
+        bindings.registerReflectionHints(hints.reflection(), UserChangedEvent.class, UserChange.class, UserDto.class,
+                AuthenticationResponse.class, ExceptionResponse.class);
+
+        // cache values, JDK-serialized by the default Redis cache serializer
+        Stream.of(UserDto.class, Long.class, Integer.class, Number.class, String.class)
+                .forEach(type -> hints.serialization().registerType(type));
+
+        // jjwt 0.11 instantiates its implementation classes by name, the JSON (de)serializers are passed explicitly
+        // by JwtService and not looked up through the ServiceLoader
+        Stream.of("io.jsonwebtoken.impl.DefaultJwtBuilder", "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                        "io.jsonwebtoken.impl.DefaultJwtParser", "io.jsonwebtoken.impl.DefaultClaims",
+                        "io.jsonwebtoken.impl.DefaultHeader", "io.jsonwebtoken.impl.DefaultJwsHeader")
+                .forEach(type -> hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+
+        // the email templates, read by name by Thymeleaf
+        for (EmailTemplateName template : EmailTemplateName.values()) {
+            hints.resources().registerPattern("templates/" + template.getName() + ".html");
+        }
+
+        // instantiated by Hibernate for the "select new" of the course and user search index builds
+        Stream.of(CourseSummary.class, UserSearchHit.class)
+                .forEach(type -> hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+
+        // Joran instantiates the appenders and filters and converts setter arguments with their static valueOf
+        Stream.of(SpoolingLokiAppender.class, SamplingTurboFilter.class, LogstashEncoder.class)
+                .forEach(type -> hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+        Stream.of(FileSize.class, Duration.class)
+                .forEach(type -> hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_METHODS));
+    }
+}
@@ -0,0 +1,6 @@
+package dev.maram.boot_network.courses;
+
+// Published once a course change is committed, course is null for a deletion. The events of successive changes run
+// on the committing threads, in any order: version is that of the course as changed.
+public record CourseChangedEvent(int courseId, CourseSummary course, long version) {
+}
@@ -0,0 +1,5 @@
+package dev.maram.boot_network.courses;
+
+// An autocomplete suggestion: a word of the catalog and the number of courses it appears in
+public record CourseCompletion(String term, int courses) {
+}
@@ -1,28 +1,90 @@
 package dev.maram.boot_network.courses;
 
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("courses")
+@RequiredArgsConstructor
+@Slf4j
 public class CourseController {
 
-    //private final CourseService courseService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+
+    // search as you type: courses containing every word of q, the last one as a prefix unless q ends with a space
+    @GetMapping("/search")
+    public ResponseEntity<List<CourseSummary>> searchCourses(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(courseService.search(q, limit));
+    }
+
+    // the most frequent words of the catalog that start with the last word of prefix
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<CourseCompletion>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(courseService.complete(prefix, limit));
+    }
+
+    @GetMapping("/{courseId}")
+    public ResponseEntity<CourseDto> getCourse(@PathVariable Integer courseId) {
+        log.info("GET request for course with ID: {}", courseId);
+        return ResponseEntity.ok(courseService.getCourse(courseId));
+    }
+
+    @PostMapping
+    public ResponseEntity<CourseDto> createCourse(@Valid @RequestBody CourseDto courseDto) {
+        log.info("POST request to create course with code: {}", courseDto.getCode());
+        return ResponseEntity.status(HttpStatus.CREATED).body(courseService.createCourse(courseDto));
+    }
+
+    @PutMapping("/{courseId}")
+    public ResponseEntity<CourseDto> updateCourse(@PathVariable Integer courseId,
+                                                  @Valid @RequestBody CourseDto courseDto) {
+        log.info("PUT request to update course with ID: {}", courseId);
+        courseDto.setId(courseId);
+        return ResponseEntity.ok(courseService.updateCourse(courseDto));
+    }
+
+    @DeleteMapping("/{courseId}")
+    public ResponseEntity<Void> deleteCourse(@PathVariable Integer courseId) {
+        log.info("DELETE request for course with ID: {}", courseId);
+        courseService.deleteCourse(courseId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{courseId}/seats")
+    public ResponseEntity<CourseSeats> getSeats(@PathVariable Integer courseId) {
+        return ResponseEntity.ok(enrollmentService.getSeats(courseId));
+    }
 
-//    public CourseController(final CourseService courseService) {
-//        this.courseService = courseService;
-//    }
+    // enrolls the authenticated user, 409 once the course is full. Confirmed against the seats of this node: the
+    // database may still reject it once other nodes filled the course, GET tells
+    @PostMapping("/{courseId}/enrollment")
+    public ResponseEntity<CourseSeats> enroll(@PathVariable Integer courseId, Authentication authentication) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(enrollmentService.enroll(courseId, authentication.getName()));
+    }
 
-    @GetMapping
-    public ResponseEntity<?> test() {
-        return ResponseEntity.ok("hello");
+    // PENDING, ENROLLED or REJECTED, 404 when not enrolled
+    @GetMapping("/{courseId}/enrollment")
+    public ResponseEntity<EnrollmentStatus> getEnrollment(@PathVariable Integer courseId, Authentication authentication) {
+        return ResponseEntity.ok(enrollmentService.getStatus(courseId, authentication.getName()));
     }
 
-    @GetMapping("test")
-    public ResponseEntity<String> courses(String c) {
-        return ResponseEntity.ok("testing courses");
-        //return courseService.getCourse(c);
+    @DeleteMapping("/{courseId}/enrollment")
+    public ResponseEntity<Void> cancelEnrollment(@PathVariable Integer courseId, Authentication authentication) {
+        enrollmentService.cancel(courseId, authentication.getName());
+        return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,29 @@
+package dev.maram.boot_network.courses;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseDto {
+    private Integer id;
+    @NotBlank(message = "Code is mandatory")
+    private String code;
+    @NotBlank(message = "Title is mandatory")
+    private String title;
+    @Size(max = 4000, message = "Description should be at most 4000 characters long")
+    private String description;
+    private String instructor;
+    @NotNull(message = "Capacity is mandatory")
+    @PositiveOrZero(message = "Capacity cannot be negative")
+    private Integer capacity;
+    private Long version;
+}
@@ -0,0 +1,33 @@
+package dev.maram.boot_network.courses;
+
+import dev.maram.boot_network.user.AfterCommit;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// Turns committed inserts, updates and deletes of courses into CourseChangedEvents, whoever writes them
+@Component
+@RequiredArgsConstructor
+public class CourseEventPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Course course) {
+        publish(new CourseChangedEvent(course.getId(), new CourseSummary(course.getId(), course.getCode(),
+                course.getTitle(), course.getInstructor(), course.getVersion()), course.getVersion()));
+    }
+
+    @PostRemove
+    public void deleted(Course course) {
+        publish(new CourseChangedEvent(course.getId(), null, course.getVersion()));
+    }
+
+    private void publish(CourseChangedEvent event) {
+        AfterCommit.run(() -> eventPublisher.publishEvent(event));
+    }
+}
@@ -0,0 +1,136 @@
+package dev.maram.boot_network.courses;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory search index of the course catalog. Built in the background once the application is ready by paging
+// through the table, then kept up to date by the committed course changes. Searches read the current immutable
+// snapshot and never wait for a writer; writers are serialized and publish a new snapshot per change.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CourseIndex {
+
+    private final CourseRepository courseRepository;
+
+    @Value("${application.courses.index.page-size:1000}")
+    private int pageSize;
+
+    @Value("${application.courses.index.retry-interval:10s}")
+    private Duration retryInterval;
+
+    private volatile CourseIndexSnapshot snapshot = CourseIndexSnapshot.EMPTY;
+    private volatile boolean built;
+
+    // writer side, guarded by this: the indexed version of every course, the last version of the deleted ones, and
+    // the changes that arrive while the initial build reads the table, replayed on top of it
+    private final Map<Integer, CourseSummary> indexed = new HashMap<>();
+    private final Map<Integer, Long> deleted = new HashMap<>();
+    private List<CourseChangedEvent> pending = new ArrayList<>();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() throws InterruptedException {
+        while (true) {
+            try {
+                long start = System.nanoTime();
+                Map<Integer, CourseSummary> courses = readAll();
+                publishBuilt(courses);
+                log.info("Indexed {} courses in {} ms", courses.size(), (System.nanoTime() - start) / 1_000_000);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Building the course index failed, retrying in {}s", retryInterval.toSeconds(), e);
+                Thread.sleep(retryInterval.toMillis());
+            }
+        }
+    }
+
+    private Map<Integer, CourseSummary> readAll() {
+        Map<Integer, CourseSummary> courses = new HashMap<>();
+        int afterId = Integer.MIN_VALUE;
+        List<CourseSummary> page;
+        do {
+            page = courseRepository.findSummariesAfter(afterId, Limit.of(pageSize));
+            for (CourseSummary course : page) {
+                courses.put(course.id(), course);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == pageSize);
+        return courses;
+    }
+
+    private synchronized void publishBuilt(Map<Integer, CourseSummary> courses) {
+        indexed.clear();
+        indexed.putAll(courses);
+        snapshot = CourseIndexSnapshot.build(courses.values());
+        // changes committed while the table was read, those the read already saw are dropped by their version
+        apply(pending);
+        pending = null;
+        built = true;
+    }
+
+    @EventListener
+    public synchronized void onCourseChanged(CourseChangedEvent event) {
+        if (pending != null) {
+            pending.add(event);
+        } else {
+            apply(List.of(event));
+        }
+    }
+
+    private void apply(List<CourseChangedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<CourseIndexSnapshot.Change> changes = new ArrayList<>(events.size());
+        for (CourseChangedEvent event : events) {
+            CourseSummary current = indexed.get(event.courseId());
+            long known = current != null ? current.version() : deleted.getOrDefault(event.courseId(), -1L);
+            // an event overtaken by a later change of the course, a deletion keeps the version of the last update
+            if (event.course() == null ? event.version() < known : event.version() <= known) {
+                continue;
+            }
+            CourseSummary before;
+            if (event.course() == null) {
+                deleted.put(event.courseId(), event.version());
+                before = indexed.remove(event.courseId());
+            } else {
+                before = indexed.put(event.courseId(), event.course());
+            }
+            if (before != null || event.course() != null) {
+                changes.add(CourseIndexSnapshot.Change.of(before, event.course()));
+            }
+        }
+        snapshot = snapshot.with(changes);
+    }
+
+    public List<CourseSummary> search(String query, int limit) {
+        return snapshot.search(query, limit);
+    }
+
+    public List<CourseCompletion> complete(String prefix, int limit) {
+        return snapshot.complete(prefix, limit);
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+}
@@ -0,0 +1,20 @@
+package dev.maram.boot_network.courses;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "courseIndex" in the readiness group: a replica whose index is still being built would find no courses
+@Component
+@RequiredArgsConstructor
+public class CourseIndexHealthIndicator implements HealthIndicator {
+
+    private final CourseIndex courseIndex;
+
+    @Override
+    public Health health() {
+        Health.Builder health = courseIndex.isBuilt() ? Health.up() : Health.outOfService();
+        return health.withDetail("courses", courseIndex.size()).build();
+    }
+}
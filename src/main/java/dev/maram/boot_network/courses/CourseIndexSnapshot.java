@@ -0,0 +1,373 @@
+package dev.maram.boot_network.courses;
+
+import dev.maram.boot_network.search.SearchTerms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable version of the course index: a trie of the catalog's words where the node of a word holds the
+ * courses containing it, sorted by id, and every node holds the most frequent words below it for autocomplete.
+ * Readers use a snapshot without any locking. A change produces a new snapshot that shares everything but the
+ * paths to the changed words, see {@link #with(List)}.
+ *
+ * <p>A search matches courses containing every word of the query, the last one as a prefix while it is being typed.
+ * That prefix stands for the word itself and the {@value #TOP_TERMS} most frequent words starting with it, so a
+ * short prefix finds the courses with the common completions first. Hits come in course id order and the walk over
+ * the posting lists stops at the limit, which keeps a search well under a millisecond for 100k courses.
+ */
+public final class CourseIndexSnapshot {
+
+    static final int TOP_TERMS = 10;
+
+    private static final CourseSummary[] NO_COURSES = new CourseSummary[0]; // before EMPTY, Node.EMPTY uses it
+
+    public static final CourseIndexSnapshot EMPTY = new CourseIndexSnapshot(Node.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private CourseIndexSnapshot(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static CourseIndexSnapshot build(Collection<CourseSummary> courses) {
+        Map<String, List<CourseSummary>> postings = new HashMap<>();
+        for (CourseSummary course : courses) {
+            for (String term : CourseTerms.of(course)) {
+                postings.computeIfAbsent(term, t -> new ArrayList<>()).add(course);
+            }
+        }
+        String[] terms = postings.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+        CourseSummary[][] lists = new CourseSummary[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            lists[i] = postings.get(terms[i]).toArray(NO_COURSES);
+            Arrays.sort(lists[i], Comparator.comparingInt(CourseSummary::id));
+        }
+        Node root = terms.length == 0 ? Node.EMPTY : build(terms, lists, 0, terms.length, 0);
+        return new CourseIndexSnapshot(root, courses.size());
+    }
+
+    // the node of terms[lo..hi), which all start with the same depth characters
+    private static Node build(String[] terms, CourseSummary[][] lists, int lo, int hi, int depth) {
+        CourseSummary[] postings = NO_COURSES;
+        String term = null;
+        if (terms[lo].length() == depth) {
+            term = terms[lo];
+            postings = lists[lo++];
+        }
+        List<Character> keys = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (lo < hi) {
+            char key = terms[lo].charAt(depth);
+            int end = lo;
+            while (end < hi && terms[end].charAt(depth) == key) {
+                end++;
+            }
+            keys.add(key);
+            children.add(build(terms, lists, lo, end, depth + 1));
+            lo = end;
+        }
+        char[] keyArray = new char[keys.size()];
+        for (int i = 0; i < keyArray.length; i++) {
+            keyArray[i] = keys.get(i);
+        }
+        return Node.of(term, postings, keyArray, children.toArray(Node[]::new));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<CourseSummary> search(String query, int limit) {
+        List<String> terms = SearchTerms.of(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean prefix = SearchTerms.endsInTerm(query);
+        // one clause per word: the courses of any of its posting lists match it
+        List<CourseSummary[][]> clauses = new ArrayList<>(terms.size());
+        for (int i = 0; i < terms.size(); i++) {
+            Node node = find(terms.get(i));
+            CourseSummary[][] clause = prefix && i == terms.size() - 1 ? completions(node) : exact(node);
+            if (clause.length == 0) {
+                return List.of();
+            }
+            clauses.add(clause);
+        }
+        clauses.sort(Comparator.comparingLong(CourseIndexSnapshot::courses));
+
+        // walk the smallest clause in id order and look the others up
+        CourseSummary[][] driver = clauses.get(0);
+        int[] positions = new int[driver.length];
+        List<CourseSummary> hits = new ArrayList<>(Math.min(limit, 16));
+        while (hits.size() < limit) {
+            CourseSummary next = null;
+            for (int k = 0; k < driver.length; k++) {
+                if (positions[k] < driver[k].length && (next == null || driver[k][positions[k]].id() < next.id())) {
+                    next = driver[k][positions[k]];
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            for (int k = 0; k < driver.length; k++) {
+                if (positions[k] < driver[k].length && driver[k][positions[k]].id() == next.id()) {
+                    positions[k]++;
+                }
+            }
+            if (matchesAll(clauses, next.id())) {
+                hits.add(next);
+            }
+        }
+        return hits;
+    }
+
+    public List<CourseCompletion> complete(String prefix, int limit) {
+        List<String> terms = SearchTerms.of(prefix);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Node node = find(terms.get(terms.size() - 1));
+        if (node == null) {
+            return List.of();
+        }
+        List<CourseCompletion> completions = new ArrayList<>(Math.min(limit, node.top.length));
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            completions.add(new CourseCompletion(node.top[i].term(), node.top[i].courses().length));
+        }
+        return completions;
+    }
+
+    /**
+     * A snapshot with the changes applied in order, a change with no {@code before} adds a course and one with no
+     * {@code after} removes it. Only the nodes on the paths to the words the changes touch are copied.
+     */
+    public CourseIndexSnapshot with(List<Change> changes) {
+        Map<String, List<Change>> byTerm = new LinkedHashMap<>();
+        int size = this.size;
+        for (Change change : changes) {
+            for (String term : change.beforeTerms()) {
+                byTerm.computeIfAbsent(term, t -> new ArrayList<>()).add(change);
+            }
+            for (String term : change.afterTerms()) {
+                List<Change> termChanges = byTerm.computeIfAbsent(term, t -> new ArrayList<>());
+                if (termChanges.isEmpty() || termChanges.get(termChanges.size() - 1) != change) {
+                    termChanges.add(change);
+                }
+            }
+            size += (change.after() != null ? 1 : 0) - (change.before() != null ? 1 : 0);
+        }
+        Node root = this.root;
+        for (Map.Entry<String, List<Change>> entry : byTerm.entrySet()) {
+            String term = entry.getKey();
+            root = update(root, term, 0, postings -> apply(postings, term, entry.getValue()));
+        }
+        return new CourseIndexSnapshot(root, size);
+    }
+
+    // one copy of the posting list per change, the lists of common words hold a good part of the catalog
+    private static CourseSummary[] apply(CourseSummary[] postings, String term, List<Change> changes) {
+        CourseSummary[] courses = postings;
+        for (Change change : changes) {
+            int index = indexOf(courses, change.id());
+            boolean contains = change.after() != null && change.afterTerms().contains(term);
+            if (contains && index >= 0) {
+                courses = courses.clone();
+                courses[index] = change.after();
+            } else if (contains) {
+                int at = -index - 1;
+                CourseSummary[] inserted = new CourseSummary[courses.length + 1];
+                System.arraycopy(courses, 0, inserted, 0, at);
+                System.arraycopy(courses, at, inserted, at + 1, courses.length - at);
+                inserted[at] = change.after();
+                courses = inserted;
+            } else if (index >= 0) {
+                CourseSummary[] removed = new CourseSummary[courses.length - 1];
+                System.arraycopy(courses, 0, removed, 0, index);
+                System.arraycopy(courses, index + 1, removed, index, removed.length - index);
+                courses = removed;
+            }
+        }
+        return courses;
+    }
+
+    // path copy: new nodes from the root down to the term, the rest of the trie is shared
+    private static Node update(Node node, String term, int depth, UnaryOperator<CourseSummary[]> change) {
+        if (depth == term.length()) {
+            return Node.of(term, change.apply(node.postings), node.keys, node.children);
+        }
+        char key = term.charAt(depth);
+        int i = Arrays.binarySearch(node.keys, key);
+        Node child = i >= 0 ? node.children[i] : Node.EMPTY;
+        Node updated = update(child, term, depth + 1, change);
+        char[] keys;
+        Node[] children;
+        if (i >= 0 && updated.isEmpty()) {
+            keys = new char[node.keys.length - 1];
+            children = new Node[node.children.length - 1];
+            System.arraycopy(node.keys, 0, keys, 0, i);
+            System.arraycopy(node.keys, i + 1, keys, i, keys.length - i);
+            System.arraycopy(node.children, 0, children, 0, i);
+            System.arraycopy(node.children, i + 1, children, i, children.length - i);
+        } else if (i >= 0) {
+            keys = node.keys;
+            children = node.children.clone();
+            children[i] = updated;
+        } else if (updated.isEmpty()) {
+            return node;
+        } else {
+            int at = -i - 1;
+            keys = new char[node.keys.length + 1];
+            children = new Node[node.children.length + 1];
+            System.arraycopy(node.keys, 0, keys, 0, at);
+            System.arraycopy(node.keys, at, keys, at + 1, node.keys.length - at);
+            System.arraycopy(node.children, 0, children, 0, at);
+            System.arraycopy(node.children, at, children, at + 1, node.children.length - at);
+            keys[at] = key;
+            children[at] = updated;
+        }
+        return Node.of(node.postings.length > 0 ? term.substring(0, depth) : null, node.postings, keys, children);
+    }
+
+    private Node find(String term) {
+        Node node = root;
+        for (int i = 0; i < term.length() && node != null; i++) {
+            int child = Arrays.binarySearch(node.keys, term.charAt(i));
+            node = child >= 0 ? node.children[child] : null;
+        }
+        return node;
+    }
+
+    private static CourseSummary[][] exact(Node node) {
+        return node == null || node.postings.length == 0 ? new CourseSummary[0][] : new CourseSummary[][]{node.postings};
+    }
+
+    private static CourseSummary[][] completions(Node node) {
+        if (node == null) {
+            return new CourseSummary[0][];
+        }
+        List<CourseSummary[]> lists = new ArrayList<>(node.top.length + 1);
+        if (node.postings.length > 0) {
+            lists.add(node.postings); // the word as typed, even when it is not among the most frequent
+        }
+        for (Completion completion : node.top) {
+            if (completion.courses() != node.postings) {
+                lists.add(completion.courses());
+            }
+        }
+        return lists.toArray(CourseSummary[][]::new);
+    }
+
+    private static long courses(CourseSummary[][] clause) {
+        long courses = 0;
+        for (CourseSummary[] list : clause) {
+            courses += list.length;
+        }
+        return courses;
+    }
+
+    private static boolean matchesAll(List<CourseSummary[][]> clauses, int id) {
+        for (int c = 1; c < clauses.size(); c++) {
+            boolean matches = false;
+            for (CourseSummary[] list : clauses.get(c)) {
+                if (indexOf(list, id) >= 0) {
+                    matches = true;
+                    break;
+                }
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CourseSummary[] courses, int id) {
+        int low = 0;
+        int high = courses.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = courses[mid].id();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * A course before and after a change, with the words each is indexed under.
+     */
+    public record Change(CourseSummary before, Set<String> beforeTerms, CourseSummary after, Set<String> afterTerms) {
+
+        public static Change of(CourseSummary before, CourseSummary after) {
+            return new Change(before, before == null ? Set.of() : CourseTerms.of(before),
+                    after, after == null ? Set.of() : CourseTerms.of(after));
+        }
+
+        int id() {
+            return after != null ? after.id() : before.id();
+        }
+    }
+
+    private record Completion(String term, CourseSummary[] courses) {
+    }
+
+    private static final class Node {
+
+        static final Node EMPTY = new Node(new char[0], new Node[0], NO_COURSES, new Completion[0]);
+
+        private static final Comparator<Completion> MOST_COURSES = Comparator
+                .comparingInt((Completion completion) -> -completion.courses().length)
+                .thenComparing(Completion::term);
+
+        final char[] keys; // sorted, children[i] is the child for keys[i]
+        final Node[] children;
+        final CourseSummary[] postings; // the courses containing the word that ends here, by id
+        final Completion[] top; // the most frequent words ending here or below, most courses first
+
+        private Node(char[] keys, Node[] children, CourseSummary[] postings, Completion[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.postings = postings;
+            this.top = top;
+        }
+
+        static Node of(String term, CourseSummary[] postings, char[] keys, Node[] children) {
+            int candidates = postings.length > 0 ? 1 : 0;
+            for (Node child : children) {
+                candidates += child.top.length;
+            }
+            Completion[] top = new Completion[candidates];
+            int n = 0;
+            if (postings.length > 0) {
+                top[n++] = new Completion(term, postings);
+            }
+            for (Node child : children) {
+                System.arraycopy(child.top, 0, top, n, child.top.length);
+                n += child.top.length;
+            }
+            Arrays.sort(top, MOST_COURSES);
+            return new Node(keys, children, postings, top.length > TOP_TERMS ? Arrays.copyOf(top, TOP_TERMS) : top);
+        }
+
+        boolean isEmpty() {
+            return postings.length == 0 && keys.length == 0;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package dev.maram.boot_network.courses;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CourseRepository extends JpaRepository<Course, Integer> {
+
+    boolean existsByCode(String code);
+
+    // keyset pagination on the primary key, read straight into the index's summaries without managed entities
+    @Query("""
+            select new dev.maram.boot_network.courses.CourseSummary(c.id, c.code, c.title, c.instructor, c.version)
+            from Course c
+            where c.id > :afterId
+            order by c.id
+            """)
+    List<CourseSummary> findSummariesAfter(Integer afterId, Limit limit);
+}
@@ -0,0 +1,4 @@
+package dev.maram.boot_network.courses;
+
+public record CourseSeats(int courseId, int capacity, int enrolled, int available) {
+}
@@ -1,18 +1,99 @@
 package dev.maram.boot_network.courses;
 
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
-import org.springframework.http.ResponseEntity;
+import dev.maram.boot_network.exception.CourseAlreadyExistsException;
+import dev.maram.boot_network.exception.CourseNotFoundException;
+import dev.maram.boot_network.exception.InvalidRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class CourseService {
 
-    @RateLimiter(name="getCourseRateLimiter", fallbackMethod = "fallbackGetCourse")
-    public ResponseEntity<String> getCourse(final String c) {
-        return ResponseEntity.ok("the course is " + c);
+    private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final EnrollmentRejectionRepository enrollmentRejectionRepository;
+    private final CourseIndex courseIndex;
+
+    @Value("${application.courses.search.max-limit:50}")
+    private int maxLimit;
+
+    // served by the in-memory index, the database is not involved
+    public List<CourseSummary> search(String query, int limit) {
+        checkLimit(limit);
+        return courseIndex.search(query, limit);
+    }
+
+    public List<CourseCompletion> complete(String prefix, int limit) {
+        if (limit < 1 || limit > CourseIndexSnapshot.TOP_TERMS) {
+            throw new InvalidRequestException("limit must be between 1 and " + CourseIndexSnapshot.TOP_TERMS);
+        }
+        return courseIndex.complete(prefix, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CourseDto getCourse(Integer courseId) {
+        return toDto(findCourse(courseId));
+    }
+
+    @Transactional
+    public CourseDto createCourse(CourseDto courseDto) {
+        log.info("Creating course with code: {}", courseDto.getCode());
+        if (courseRepository.existsByCode(courseDto.getCode())) {
+            throw new CourseAlreadyExistsException("Course with code " + courseDto.getCode() + " already exists");
+        }
+        Course course = Course.builder().build();
+        copy(courseDto, course);
+        return toDto(courseRepository.save(course));
+    }
+
+    @Transactional
+    public CourseDto updateCourse(CourseDto courseDto) {
+        log.info("Updating course with ID: {}", courseDto.getId());
+        Course course = findCourse(courseDto.getId());
+        if (!course.getCode().equals(courseDto.getCode()) && courseRepository.existsByCode(courseDto.getCode())) {
+            throw new CourseAlreadyExistsException("Course with code " + courseDto.getCode() + " already exists");
+        }
+        copy(courseDto, course);
+        return toDto(courseRepository.saveAndFlush(course));
+    }
+
+    @Transactional
+    public void deleteCourse(Integer courseId) {
+        log.info("Deleting course with ID: {}", courseId);
+        Course course = findCourse(courseId);
+        enrollmentRepository.deleteByCourseId(courseId);
+        enrollmentRejectionRepository.deleteByCourseId(courseId);
+        courseRepository.delete(course);
+    }
+
+    private Course findCourse(Integer courseId) {
+        return courseRepository.findById(courseId)
+                .orElseThrow(() -> new CourseNotFoundException());
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxLimit);
+        }
+    }
+
+    private static void copy(CourseDto courseDto, Course course) {
+        course.setCode(courseDto.getCode());
+        course.setTitle(courseDto.getTitle());
+        course.setDescription(courseDto.getDescription());
+        course.setInstructor(courseDto.getInstructor());
+        course.setCapacity(courseDto.getCapacity());
     }
 
-    public String fallbackGetCourse(Throwable throwable) {
-        return "Too many requests. Please try again later.";
+    private static CourseDto toDto(Course course) {
+        return new CourseDto(course.getId(), course.getCode(), course.getTitle(), course.getDescription(),
+                course.getInstructor(), course.getCapacity(), course.getVersion());
     }
 }
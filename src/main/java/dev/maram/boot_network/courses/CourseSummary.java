@@ -0,0 +1,8 @@
+package dev.maram.boot_network.courses;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// What the course index holds and search returns: the indexed fields, without the description. The version orders
+// the changes of a course, it is not returned.
+public record CourseSummary(int id, String code, String title, String instructor, @JsonIgnore long version) {
+}
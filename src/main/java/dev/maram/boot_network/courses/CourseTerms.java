@@ -0,0 +1,20 @@
+package dev.maram.boot_network.courses;
+
+import dev.maram.boot_network.search.SearchTerms;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// The words a course is found by: those of its code, title and instructor
+final class CourseTerms {
+
+    private CourseTerms() {
+    }
+
+    static Set<String> of(CourseSummary course) {
+        Set<String> terms = new LinkedHashSet<>(SearchTerms.of(course.code()));
+        terms.addAll(SearchTerms.of(course.title()));
+        terms.addAll(SearchTerms.of(course.instructor()));
+        return terms;
+    }
+}
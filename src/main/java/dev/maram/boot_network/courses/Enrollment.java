@@ -0,0 +1,35 @@
+package dev.maram.boot_network.courses;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Written in batches by EnrollmentWriter, behind the in-memory enrollments
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(Enrollment.Key.class)
+public class Enrollment {
+
+    @Id
+    private Integer courseId;
+
+    @Id
+    private Integer userId;
+
+    @Column(nullable = false)
+    private LocalDateTime enrolledDate;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer courseId;
+        private Integer userId;
+    }
+}
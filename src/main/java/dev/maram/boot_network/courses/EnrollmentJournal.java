@@ -0,0 +1,252 @@
+package dev.maram.boot_network.courses;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Enrollment changes confirmed to the students and not in the database yet, kept in memory-mapped segment files so
+ * they survive a restart or a crash of the process. Records have a fixed size and are claimed with a compare-and-set
+ * on the index of the next free one, so appending threads never wait for each other. The operation of a record is
+ * written last, with release semantics: a record without one is still being written.
+ *
+ * <p>One reader (the {@link EnrollmentWriter} thread) moves its cursor only on {@link #commit(Batch)}, once the batch
+ * is in the database, and the cursor is persisted in a mapped checkpoint file. The records read again after a restart
+ * are flagged as replayed, the database may have them already. Appending resumes on a fresh segment after a restart,
+ * so a record left half-written by a crash is skipped rather than waited for.
+ */
+final class EnrollmentJournal implements Closeable {
+
+    static final int ENROLL = 1;
+    static final int CANCEL = 2;
+
+    private static final int RECORD = 24; // [operation][course id][user id][unused][epoch millis]
+    private static final VarHandle OPERATION = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint; // [read index][records per segment]
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong next = new AtomicLong();
+    private final int maxSegments;
+
+    private int segmentRecords;
+    // records below were appended before the last start
+    private long replayLimit;
+    // reader side, only moved by commit
+    private volatile long readIndex;
+
+    private EnrollmentJournal(Path directory, int segmentRecords, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.checkpointChannel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES + Integer.BYTES);
+    }
+
+    static EnrollmentJournal open(Path directory, int segmentRecords, int maxSegments) throws IOException {
+        Files.createDirectories(directory);
+        EnrollmentJournal journal = new EnrollmentJournal(directory, segmentRecords, maxSegments);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        long checkpointIndex = checkpoint.getLong(0);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(EnrollmentJournal::isSegment).toList();
+        }
+        // the existing segments were laid out with the size they were created with
+        if (!files.isEmpty() && checkpoint.getInt(Long.BYTES) > 0) {
+            segmentRecords = checkpoint.getInt(Long.BYTES);
+        }
+        checkpoint.putInt(Long.BYTES, segmentRecords);
+
+        for (Path file : files) {
+            long sequence = sequence(file);
+            if (sequence < checkpointIndex / segmentRecords) {
+                Files.deleteIfExists(file); // in the database already
+            } else {
+                segments.put(sequence, map(file));
+            }
+        }
+        long end = segments.isEmpty() ? checkpointIndex : (segments.lastKey() + 1) * segmentRecords;
+        readIndex = segments.isEmpty() ? checkpointIndex : Math.max(checkpointIndex, segments.firstKey() * segmentRecords);
+        replayLimit = end;
+        next.set(end);
+    }
+
+    /**
+     * Appends a record, never blocks on I/O: false when the journal is full or a segment cannot be created.
+     */
+    boolean append(int operation, int courseId, int userId, long epochMillis) {
+        long index;
+        MappedByteBuffer segment;
+        do {
+            index = next.get();
+            if (index - readIndex >= (long) maxSegments * segmentRecords) {
+                return false;
+            }
+            segment = segment(index / segmentRecords);
+            if (segment == null) {
+                return false;
+            }
+        } while (!next.compareAndSet(index, index + 1));
+
+        int offset = offset(index);
+        segment.putInt(offset + Integer.BYTES, courseId);
+        segment.putInt(offset + 2 * Integer.BYTES, userId);
+        segment.putLong(offset + 4 * Integer.BYTES, epochMillis);
+        OPERATION.setRelease(segment, offset, operation);
+        return true;
+    }
+
+    private MappedByteBuffer segment(long sequence) {
+        MappedByteBuffer segment = segments.get(sequence);
+        return segment != null ? segment : createSegment(sequence);
+    }
+
+    private synchronized MappedByteBuffer createSegment(long sequence) {
+        MappedByteBuffer segment = segments.get(sequence);
+        if (segment == null) {
+            try {
+                segment = map(segmentFile(sequence));
+            } catch (IOException e) {
+                return null;
+            }
+            segments.put(sequence, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Reads the records following the read cursor, without moving it.
+     */
+    Batch read(int maxRecords) {
+        long start = readIndex;
+        long end = next.get();
+        List<Entry> entries = new ArrayList<>();
+        long index = start;
+        for (; index < end && entries.size() < maxRecords; index++) {
+            Entry entry = entry(index);
+            if (entry != null) {
+                entries.add(entry);
+            } else if (index >= replayLimit) {
+                break; // still being written
+            }
+        }
+        return new Batch(entries, start, index, start < replayLimit);
+    }
+
+    /**
+     * The records of a course not committed yet, in order. Only consistent while the reader does not commit.
+     */
+    List<Entry> pending(int courseId) {
+        List<Entry> entries = new ArrayList<>();
+        long end = next.get();
+        for (long index = readIndex; index < end; index++) {
+            Entry entry = entry(index);
+            if (entry != null && entry.courseId() == courseId) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private Entry entry(long index) {
+        MappedByteBuffer segment = segments.get(index / segmentRecords);
+        if (segment == null) {
+            return null;
+        }
+        int offset = offset(index);
+        int operation = (int) OPERATION.getAcquire(segment, offset);
+        if (operation == 0) {
+            return null;
+        }
+        return new Entry(operation, segment.getInt(offset + Integer.BYTES), segment.getInt(offset + 2 * Integer.BYTES),
+                segment.getLong(offset + 4 * Integer.BYTES));
+    }
+
+    /**
+     * Moves the read cursor past a batch written to the database and deletes the segments it finished.
+     */
+    void commit(Batch batch) {
+        readIndex = batch.end();
+        checkpoint.putLong(0, batch.end());
+        for (Map.Entry<Long, MappedByteBuffer> written : segments.headMap(batch.end() / segmentRecords).entrySet()) {
+            segments.remove(written.getKey());
+            try {
+                // the mapping itself goes away with the buffer
+                Files.deleteIfExists(segmentFile(written.getKey()));
+            } catch (IOException ignored) {
+                // deleted by the next recovery
+            }
+        }
+    }
+
+    // records appended and not committed yet
+    long pending() {
+        return next.get() - readIndex;
+    }
+
+    private int offset(long index) {
+        return (int) (index % segmentRecords) * RECORD;
+    }
+
+    private Path segmentFile(long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD);
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        checkpoint.force();
+        checkpointChannel.close();
+    }
+
+    record Entry(int operation, int courseId, int userId, long epochMillis) {
+    }
+
+    record Batch(List<Entry> entries, long start, long end, boolean replayed) {
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+    }
+}
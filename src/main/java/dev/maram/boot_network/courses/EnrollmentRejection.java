@@ -0,0 +1,27 @@
+package dev.maram.boot_network.courses;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// An enrollment confirmed by a node but refused by the table, the course was full or gone: written by
+// EnrollmentWriter so that the student finds out on any node, cleared by the next change of the same enrollment
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(Enrollment.Key.class)
+public class EnrollmentRejection {
+
+    @Id
+    private Integer courseId;
+
+    @Id
+    private Integer userId;
+
+    @Column(nullable = false)
+    private LocalDateTime rejectedDate;
+}
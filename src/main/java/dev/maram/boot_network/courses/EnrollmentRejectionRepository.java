@@ -0,0 +1,12 @@
+package dev.maram.boot_network.courses;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface EnrollmentRejectionRepository extends JpaRepository<EnrollmentRejection, Enrollment.Key> {
+
+    @Modifying
+    @Query("delete from EnrollmentRejection r where r.courseId = :courseId")
+    int deleteByCourseId(Integer courseId);
+}
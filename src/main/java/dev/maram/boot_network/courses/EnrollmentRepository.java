@@ -0,0 +1,17 @@
+package dev.maram.boot_network.courses;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface EnrollmentRepository extends JpaRepository<Enrollment, Enrollment.Key> {
+
+    @Query("select e.userId from Enrollment e where e.courseId = :courseId")
+    List<Integer> findUserIdsByCourseId(Integer courseId);
+
+    @Modifying
+    @Query("delete from Enrollment e where e.courseId = :courseId")
+    int deleteByCourseId(Integer courseId);
+}
@@ -0,0 +1,92 @@
+package dev.maram.boot_network.courses;
+
+import dev.maram.boot_network.exception.AlreadyEnrolledException;
+import dev.maram.boot_network.exception.CourseFullException;
+import dev.maram.boot_network.exception.CourseNotFoundException;
+import dev.maram.boot_network.exception.EnrollmentBacklogFullException;
+import dev.maram.boot_network.exception.EnrollmentNotFoundException;
+import dev.maram.boot_network.exception.UserNotFoundException;
+import dev.maram.boot_network.user.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// Enrollments are decided in memory against the seat counters and confirmed once journaled, no row is locked on the
+// way; see Enrollments for the engine and EnrollmentWriter for the write-behind to the enrollment table. The seat
+// counters only see the enrollments of their node: the table holds the capacity exactly, and an enrollment confirmed
+// here that would overfill it is rejected by the write-behind. The student reads that in getStatus, PENDING until
+// then.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EnrollmentService {
+
+    private final CourseRepository courseRepository;
+    private final UserRepository userRepository;
+    private final EnrollmentWriter enrollmentWriter;
+
+    @Value("${application.courses.enrollment.seat-stripes:0}")
+    private int seatStripes;
+
+    private Enrollments enrollments;
+
+    @PostConstruct
+    public void start() {
+        int stripes = seatStripes > 0 ? seatStripes : 2 * Runtime.getRuntime().availableProcessors();
+        enrollments = new Enrollments(enrollmentWriter.journal(), this::load, stripes);
+        // its seats were counted without the enrollments of other nodes
+        enrollmentWriter.onRejected(enrollments::forget);
+    }
+
+    public CourseSeats enroll(Integer courseId, String userEmail) {
+        int userId = userId(userEmail);
+        switch (enrollments.enroll(courseId, userId)) {
+            case ALREADY_ENROLLED -> throw new AlreadyEnrolledException();
+            case FULL -> throw new CourseFullException();
+            case JOURNAL_FULL -> throw new EnrollmentBacklogFullException();
+            default -> log.debug("User {} enrolled in course {}", userId, courseId);
+        }
+        return enrollments.seats(courseId);
+    }
+
+    public void cancel(Integer courseId, String userEmail) {
+        int userId = userId(userEmail);
+        switch (enrollments.cancel(courseId, userId)) {
+            case NOT_ENROLLED -> throw new EnrollmentNotFoundException();
+            case JOURNAL_FULL -> throw new EnrollmentBacklogFullException();
+            default -> log.debug("User {} cancelled the enrollment in course {}", userId, courseId);
+        }
+    }
+
+    public CourseSeats getSeats(Integer courseId) {
+        return enrollments.seats(courseId);
+    }
+
+    public EnrollmentStatus getStatus(Integer courseId, String userEmail) {
+        EnrollmentStatus.State state = enrollmentWriter.status(courseId, userId(userEmail));
+        if (state == null) {
+            throw new EnrollmentNotFoundException();
+        }
+        return new EnrollmentStatus(courseId, state);
+    }
+
+    // the events of successive changes may run in any order, the course is loaded again from the table instead
+    @EventListener
+    public void onCourseChanged(CourseChangedEvent event) {
+        enrollments.forget(event.courseId());
+    }
+
+    private Enrollments.Roster load(int courseId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new CourseNotFoundException());
+        return new Enrollments.Roster(course.getCapacity(), enrollmentWriter.students(courseId));
+    }
+
+    private int userId(String userEmail) {
+        return userRepository.findIdByEmail(userEmail)
+                .orElseThrow(() -> new UserNotFoundException());
+    }
+}
@@ -0,0 +1,11 @@
+package dev.maram.boot_network.courses;
+
+// Where the enrollment of the authenticated user in a course stands
+public record EnrollmentStatus(int courseId, State state) {
+
+    public enum State {
+        PENDING, // confirmed by the node it was made on, not in the enrollment table yet
+        ENROLLED,
+        REJECTED // the table refused it: other nodes filled the course meanwhile, or it was deleted
+    }
+}
@@ -0,0 +1,295 @@
+package dev.maram.boot_network.courses;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Write-behind of the enrollments: a single thread reads the journal in batches and writes each one to the enrollment
+// table in one transaction of batched statements, instead of a transaction per request. A batch is reduced to the
+// last change of every student and course first, and the journal is only committed once the transaction is. While
+// the database is down the journal fills up and the writer retries with backoff; nothing is lost across restarts.
+// The seat counters are per node, so the table has the last word on the capacity: the courses of a batch are locked
+// and an enrollment that would overfill its course is not inserted but rejected. The rejection is recorded in
+// enrollment_rejection, in the same transaction, for the student to find (status), and the course reloaded.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EnrollmentWriter implements MeterBinder {
+
+    private static final String DELETE = "delete from enrollment where course_id = ? and user_id = ?";
+    // a course deleted meanwhile takes the enrollments still in the journal with it, a course other nodes filled up
+    // meanwhile refuses them. The student may be in the table already, enrolled through another node or on a course
+    // state forgotten in between: a duplicate key would fail the batch, and every retry of it.
+    private static final String INSERT = """
+            insert into enrollment (course_id, user_id, enrolled_date)
+            select c.id, ?, ? from course c
+            where c.id = ? and c.capacity > (select count(*) from enrollment e where e.course_id = c.id)
+              and not exists (select 1 from enrollment e where e.course_id = c.id and e.user_id = ?)""";
+    private static final String EXISTS = "select count(*) from enrollment where course_id = ? and user_id = ?";
+    private static final String CLEAR_REJECTION = "delete from enrollment_rejection where course_id = ? and user_id = ?";
+    private static final String REJECT =
+            "insert into enrollment_rejection (course_id, user_id, rejected_date) values (?, ?, ?)";
+    private static final String REJECTED = "select count(*) from enrollment_rejection where course_id = ? and user_id = ?";
+    // the writers of all nodes take the course rows in the same order, then count the enrollments
+    private static final String LOCK_COURSES = "select id from course where id in (%s) order by id for update";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnrollmentRepository enrollmentRepository;
+
+    @Value("${application.courses.enrollment.journal.directory:data/enrollment-journal}")
+    private String directory;
+
+    @Value("${application.courses.enrollment.journal.segment-records:65536}")
+    private int segmentRecords;
+
+    @Value("${application.courses.enrollment.journal.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${application.courses.enrollment.flush.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${application.courses.enrollment.flush.interval:100ms}")
+    private Duration interval;
+
+    @Value("${application.courses.enrollment.flush.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    // held while a batch moves from the journal to the table
+    private final Object flushLock = new Object();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private EnrollmentJournal journal;
+    private volatile IntConsumer rejectionListener = courseId -> { };
+    private Thread flusher;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void start() throws IOException {
+        journal = EnrollmentJournal.open(Path.of(directory), segmentRecords, maxSegments);
+        if (journal.pending() > 0) {
+            log.info("Replaying {} journaled enrollment changes", journal.pending());
+        }
+        flusher = new Thread(this::flush, "enrollment-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    EnrollmentJournal journal() {
+        return journal;
+    }
+
+    // told the course of every rejected enrollment, once its batch is committed
+    void onRejected(IntConsumer listener) {
+        rejectionListener = listener;
+    }
+
+    // the students of a course once the journal is written: the flusher is held off so that no batch moves from the
+    // journal to the table between the two reads
+    Set<Integer> students(int courseId) {
+        synchronized (flushLock) {
+            Set<Integer> students = new HashSet<>(enrollmentRepository.findUserIdsByCourseId(courseId));
+            for (EnrollmentJournal.Entry entry : journal.pending(courseId)) {
+                if (entry.operation() == EnrollmentJournal.ENROLL) {
+                    students.add(entry.userId());
+                } else {
+                    students.remove(entry.userId());
+                }
+            }
+            return students;
+        }
+    }
+
+    // the journal of this node first: a pending change is newer than the table
+    EnrollmentStatus.State status(int courseId, int userId) {
+        synchronized (flushLock) {
+            EnrollmentJournal.Entry last = null;
+            for (EnrollmentJournal.Entry entry : journal.pending(courseId)) {
+                if (entry.userId() == userId) {
+                    last = entry;
+                }
+            }
+            if (last != null) {
+                return last.operation() == EnrollmentJournal.ENROLL ? EnrollmentStatus.State.PENDING : null;
+            }
+            if (jdbcTemplate.queryForObject(EXISTS, Integer.class, courseId, userId) > 0) {
+                return EnrollmentStatus.State.ENROLLED;
+            }
+            return jdbcTemplate.queryForObject(REJECTED, Integer.class, courseId, userId) > 0
+                    ? EnrollmentStatus.State.REJECTED : null;
+        }
+    }
+
+    private void flush() {
+        long backoff = interval.toMillis();
+        while (true) {
+            EnrollmentJournal.Batch batch = journal.read(batchSize);
+            if (batch.isEmpty()) {
+                if (batch.end() > batch.start()) {
+                    journal.commit(batch); // records a crash left unwritten
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(this, interval.toNanos());
+                }
+                continue;
+            }
+            try {
+                List<EnrollmentJournal.Entry> refused;
+                synchronized (flushLock) {
+                    refused = write(batch);
+                    journal.commit(batch);
+                }
+                written.add(batch.entries().size() - refused.size());
+                reject(refused);
+                backoff = interval.toMillis();
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (stopping) {
+                    log.warn("Leaving {} enrollment changes in the journal for the next start", journal.pending(), e);
+                    return;
+                }
+                log.warn("Writing {} enrollment changes failed, retrying in {} ms", batch.entries().size(), backoff, e);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+            }
+        }
+    }
+
+    // the enrollments the table refused
+    private List<EnrollmentJournal.Entry> write(EnrollmentJournal.Batch batch) {
+        // first and last change of every student and course in the batch
+        Map<Long, EnrollmentJournal.Entry[]> changes = new LinkedHashMap<>();
+        for (EnrollmentJournal.Entry entry : batch.entries()) {
+            EnrollmentJournal.Entry[] change = changes.computeIfAbsent(
+                    (long) entry.courseId() << 32 | (entry.userId() & 0xFFFFFFFFL), key -> new EnrollmentJournal.Entry[]{entry, null});
+            change[1] = entry;
+        }
+
+        List<EnrollmentJournal.Entry> deletes = new ArrayList<>();
+        List<EnrollmentJournal.Entry> inserts = new ArrayList<>();
+        for (EnrollmentJournal.Entry[] change : changes.values()) {
+            EnrollmentJournal.Entry first = change[0];
+            EnrollmentJournal.Entry last = change[1];
+            if (batch.replayed()) {
+                // part of the batch may be in the table already: write the final state whatever it was before
+                deletes.add(last);
+                if (last.operation() == EnrollmentJournal.ENROLL) {
+                    inserts.add(last);
+                }
+            } else if (first.operation() == last.operation()) {
+                // enrolled then cancelled, or the other way round, leaves the table as it is
+                (last.operation() == EnrollmentJournal.ENROLL ? inserts : deletes).add(last);
+            }
+        }
+
+        Set<Integer> courses = new TreeSet<>();
+        inserts.forEach(entry -> courses.add(entry.courseId()));
+        List<EnrollmentJournal.Entry> changed = new ArrayList<>(deletes);
+        changed.addAll(inserts);
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(DELETE, deletes, deletes.size(), (statement, entry) -> {
+                statement.setInt(1, entry.courseId());
+                statement.setInt(2, entry.userId());
+            });
+            // an earlier rejection is outdated by any later change of the same enrollment
+            jdbcTemplate.batchUpdate(CLEAR_REJECTION, changed, changed.size(), (statement, entry) -> {
+                statement.setInt(1, entry.courseId());
+                statement.setInt(2, entry.userId());
+            });
+            if (inserts.isEmpty()) {
+                return List.of();
+            }
+            jdbcTemplate.queryForList(LOCK_COURSES.formatted(String.join(", ", Collections.nCopies(courses.size(), "?"))),
+                    Integer.class, courses.toArray());
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT, inserts, inserts.size(), (statement, entry) -> {
+                statement.setInt(1, entry.userId());
+                statement.setTimestamp(2, new Timestamp(entry.epochMillis()));
+                statement.setInt(3, entry.courseId());
+                statement.setInt(4, entry.userId());
+            });
+            List<EnrollmentJournal.Entry> refused = new ArrayList<>();
+            for (int i = 0; i < inserts.size(); i++) {
+                // negative: a driver rewriting the batch does not tell, taken as inserted. Nothing inserted for a
+                // student already enrolled is no refusal.
+                EnrollmentJournal.Entry entry = inserts.get(i);
+                if (counts[0][i] == 0
+                        && jdbcTemplate.queryForObject(EXISTS, Integer.class, entry.courseId(), entry.userId()) == 0) {
+                    refused.add(entry);
+                }
+            }
+            jdbcTemplate.batchUpdate(REJECT, refused, refused.size(), (statement, entry) -> {
+                statement.setInt(1, entry.courseId());
+                statement.setInt(2, entry.userId());
+                statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            });
+            return refused;
+        });
+    }
+
+    private void reject(List<EnrollmentJournal.Entry> refused) {
+        Set<Integer> courses = new TreeSet<>();
+        for (EnrollmentJournal.Entry entry : refused) {
+            rejected.increment();
+            courses.add(entry.courseId());
+            log.warn("Enrollment rejected by the database, the course is full or gone {} {}",
+                    kv("courseId", entry.courseId()), kv("userId", entry.userId()));
+        }
+        courses.forEach(rejectionListener::accept);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("enrollment.journal.pending", this, writer -> writer.journal.pending())
+                .description("Confirmed enrollment changes not written to the database yet")
+                .register(registry);
+        FunctionCounter.builder("enrollment.writes", written, LongAdder::sum)
+                .description("Enrollment changes written to the database")
+                .register(registry);
+        FunctionCounter.builder("enrollment.write.failures", failures, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("enrollment.rejected", rejected, LongAdder::sum)
+                .description("Journaled enrollments the database refused, their course was filled by other nodes or deleted")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        stopping = true;
+        LockSupport.unpark(flusher);
+        // one last attempt at what the requests confirmed so far, the rest waits for the next start
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        journal.close();
+    }
+}
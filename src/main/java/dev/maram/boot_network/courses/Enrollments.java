@@ -0,0 +1,121 @@
+package dev.maram.boot_network.courses;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+// The enrollment engine: the free seats of a course in a SeatCounter and its students in a concurrent set, loaded on
+// the first use of the course. An enrollment is confirmed once it is in the journal; the database follows behind
+// (EnrollmentWriter). Changes are serialized per student, never per course, so that an enrollment and a cancellation
+// of the same student reach the journal in the order they were decided.
+final class Enrollments {
+
+    enum Outcome { ENROLLED, CANCELLED, ALREADY_ENROLLED, NOT_ENROLLED, FULL, JOURNAL_FULL }
+
+    // a course as stored: its capacity and the students enrolled once the journal is written
+    record Roster(int capacity, Collection<Integer> students) {
+    }
+
+    private static final int STUDENT_LOCKS = 256;
+
+    private final EnrollmentJournal journal;
+    private final IntFunction<Roster> loader;
+    private final int stripes;
+    private final ConcurrentHashMap<Integer, State> courses = new ConcurrentHashMap<>();
+    // bumped by every forget, a course loaded across one is not kept
+    private final AtomicLong changes = new AtomicLong();
+    private final ReentrantLock[] studentLocks = new ReentrantLock[STUDENT_LOCKS];
+
+    Enrollments(EnrollmentJournal journal, IntFunction<Roster> loader, int stripes) {
+        this.journal = journal;
+        this.loader = loader;
+        this.stripes = stripes;
+        for (int i = 0; i < STUDENT_LOCKS; i++) {
+            studentLocks[i] = new ReentrantLock();
+        }
+    }
+
+    Outcome enroll(int courseId, int userId) {
+        State course = course(courseId);
+        ReentrantLock lock = studentLock(userId);
+        lock.lock();
+        try {
+            if (course.students().contains(userId)) {
+                return Outcome.ALREADY_ENROLLED;
+            }
+            if (!course.seats().tryTake()) {
+                return Outcome.FULL;
+            }
+            if (!journal.append(EnrollmentJournal.ENROLL, courseId, userId, System.currentTimeMillis())) {
+                course.seats().release();
+                return Outcome.JOURNAL_FULL;
+            }
+            course.students().add(userId);
+            return Outcome.ENROLLED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Outcome cancel(int courseId, int userId) {
+        State course = course(courseId);
+        ReentrantLock lock = studentLock(userId);
+        lock.lock();
+        try {
+            if (!course.students().contains(userId)) {
+                return Outcome.NOT_ENROLLED;
+            }
+            if (!journal.append(EnrollmentJournal.CANCEL, courseId, userId, System.currentTimeMillis())) {
+                return Outcome.JOURNAL_FULL;
+            }
+            course.students().remove(userId);
+            course.seats().release();
+            return Outcome.CANCELLED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    CourseSeats seats(int courseId) {
+        State course = course(courseId);
+        return new CourseSeats(courseId, course.seats().capacity(), course.students().size(), course.seats().available());
+    }
+
+    // the course is loaded again on its next use
+    void forget(int courseId) {
+        changes.incrementAndGet();
+        courses.remove(courseId);
+    }
+
+    // loaded outside the map: the roster query waits for the write-behind, other courses of the bin must not
+    private State course(int courseId) {
+        State course = courses.get(courseId);
+        if (course != null) {
+            return course;
+        }
+        long seen = changes.get();
+        Roster roster = loader.apply(courseId);
+        Set<Integer> students = ConcurrentHashMap.newKeySet();
+        students.addAll(roster.students());
+        State loaded = new State(new SeatCounter(roster.capacity(), students.size(), stripes), students);
+        State raced = courses.putIfAbsent(courseId, loaded);
+        if (raced != null) {
+            return raced;
+        }
+        if (changes.get() != seen) {
+            // it may have read the capacity before the change, the next use loads it again
+            courses.remove(courseId, loaded);
+        }
+        return loaded;
+    }
+
+    private ReentrantLock studentLock(int userId) {
+        return studentLocks[(userId * 0x9E3779B9) >>> 24];
+    }
+
+    private record State(SeatCounter seats, Set<Integer> students) {
+    }
+}
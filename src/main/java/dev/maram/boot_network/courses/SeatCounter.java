@@ -0,0 +1,123 @@
+package dev.maram.boot_network.courses;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Free seats of a course split over stripes, each on its own cache line, so that concurrent enrollments decrement
+// different counters instead of all retrying a compare-and-set on the same one. A seat is only ever taken from a stripe
+// that still has one, so the enrollments never exceed the capacity; a course is only reported full once every stripe
+// was seen empty at the same time, so no free seat is missed either.
+final class SeatCounter {
+
+    private static final int PADDING = 16; // ints from one stripe to the next: a 64-byte cache line each
+
+    private final int stripeCount;
+    private final AtomicIntegerArray stripes;
+    // bumped after seats are added to the stripes, see tryTake
+    private final AtomicLong refills = new AtomicLong();
+
+    // guarded by this, as is every increment of a stripe: takes are the only lock-free operation
+    private int capacity;
+    // seats owed once the capacity went below the enrolled students, repaid by cancellations before any seat is freed
+    private int debt;
+
+    SeatCounter(int capacity, int taken, int stripeCount) {
+        this.stripeCount = Math.max(1, stripeCount);
+        this.stripes = new AtomicIntegerArray(this.stripeCount * PADDING);
+        this.capacity = capacity;
+        if (taken > capacity) {
+            debt = taken - capacity;
+        } else {
+            refill(capacity - taken);
+        }
+    }
+
+    boolean tryTake() {
+        int home = stripeCount == 1 ? 0 : ThreadLocalRandom.current().nextInt(stripeCount);
+        while (true) {
+            long seen = refills.get();
+            for (int i = 0; i < stripeCount; i++) {
+                if (take((home + i) % stripeCount * PADDING)) {
+                    return true;
+                }
+            }
+            // without a refill the stripes only shrink: all of them were empty once the last one was read
+            if (refills.get() == seen) {
+                return false;
+            }
+        }
+    }
+
+    private boolean take(int index) {
+        int seats;
+        while ((seats = stripes.get(index)) > 0) {
+            if (stripes.compareAndSet(index, seats, seats - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void release() {
+        if (debt > 0) {
+            debt--;
+        } else {
+            refill(1);
+        }
+    }
+
+    synchronized void resize(int newCapacity) {
+        int added = newCapacity - capacity;
+        capacity = newCapacity;
+        if (added >= 0) {
+            int repaid = Math.min(added, debt);
+            debt -= repaid;
+            refill(added - repaid);
+            return;
+        }
+        // takes race with the drain, but nothing refills a stripe meanwhile: what cannot be drained is owed
+        int owed = -added;
+        for (int i = 0; i < stripeCount && owed > 0; i++) {
+            owed -= drain(i * PADDING, owed);
+        }
+        debt += owed;
+    }
+
+    private int drain(int index, int max) {
+        while (true) {
+            int seats = stripes.get(index);
+            int drained = Math.min(seats, max);
+            if (drained == 0 || stripes.compareAndSet(index, seats, seats - drained)) {
+                return drained;
+            }
+        }
+    }
+
+    private void refill(int seats) {
+        if (seats == 0) {
+            return;
+        }
+        int first = stripeCount == 1 ? 0 : ThreadLocalRandom.current().nextInt(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            int share = seats / stripeCount + (i < seats % stripeCount ? 1 : 0);
+            if (share > 0) {
+                stripes.addAndGet((first + i) % stripeCount * PADDING, share);
+            }
+        }
+        refills.incrementAndGet();
+    }
+
+    synchronized int capacity() {
+        return capacity;
+    }
+
+    // exact when no enrollment is in progress, a close estimate otherwise
+    synchronized int available() {
+        int seats = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            seats += stripes.get(i * PADDING);
+        }
+        return Math.max(0, seats - debt);
+    }
+}
@@ -1,5 +1,6 @@
 package dev.maram.boot_network.email;
 
+import dev.maram.boot_network.config.AsyncConfig;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +24,7 @@ public class EmailService {
     private final JavaMailSender mailSender;
     private final SpringTemplateEngine templateEngine;
 
-    @Async
+    @Async(AsyncConfig.MAIL_EXECUTOR)
     public void sendEmail(
             String to,
             String userName,
@@ -39,7 +40,7 @@ public class EmailService {
             templateName = "confirm-email";
             log.info("Using default email template: confirm-email");
         } else {
-            templateName = emailTemplate.name();
+            templateName = emailTemplate.getName();
             log.info("Using email template: {}", templateName);
         }
 
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class AlreadyEnrolledException extends BusinessException {
+    public AlreadyEnrolledException() {
+        super(BusinessErrorCodes.ALREADY_ENROLLED);
+    }
+
+    public AlreadyEnrolledException(String message) {
+        super(BusinessErrorCodes.ALREADY_ENROLLED, message);
+    }
+}
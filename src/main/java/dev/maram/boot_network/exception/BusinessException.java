@@ -0,0 +1,27 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+import lombok.Getter;
+
+// Expected failures of a request, answered with the status and body of their error code. No stack trace is captured:
+// nobody reads it, and unknown ids or stale tokens sent by the thousand must not cost more than a successful request.
+// Thrown without a message, the error code's description is the message and GlobalExceptionHandler answers with a
+// body serialized once.
+@Getter
+public abstract class BusinessException extends RuntimeException {
+
+    private final BusinessErrorCodes errorCode;
+
+    protected BusinessException(BusinessErrorCodes errorCode) {
+        this(errorCode, errorCode.getDescription());
+    }
+
+    protected BusinessException(BusinessErrorCodes errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    public boolean hasDefaultMessage() {
+        return getMessage().equals(errorCode.getDescription());
+    }
+}
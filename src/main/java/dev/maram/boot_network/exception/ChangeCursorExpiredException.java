@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class ChangeCursorExpiredException extends BusinessException {
+    public ChangeCursorExpiredException() {
+        super(BusinessErrorCodes.CHANGE_CURSOR_EXPIRED);
+    }
+
+    public ChangeCursorExpiredException(String message) {
+        super(BusinessErrorCodes.CHANGE_CURSOR_EXPIRED, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class CourseAlreadyExistsException extends BusinessException {
+    public CourseAlreadyExistsException() {
+        super(BusinessErrorCodes.COURSE_ALREADY_EXISTS);
+    }
+
+    public CourseAlreadyExistsException(String message) {
+        super(BusinessErrorCodes.COURSE_ALREADY_EXISTS, message);
+    }
+}
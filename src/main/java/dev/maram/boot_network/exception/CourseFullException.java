@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class CourseFullException extends BusinessException {
+    public CourseFullException() {
+        super(BusinessErrorCodes.COURSE_FULL);
+    }
+
+    public CourseFullException(String message) {
+        super(BusinessErrorCodes.COURSE_FULL, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class CourseNotFoundException extends BusinessException {
+    public CourseNotFoundException() {
+        super(BusinessErrorCodes.COURSE_NOT_FOUND);
+    }
+
+    public CourseNotFoundException(String message) {
+        super(BusinessErrorCodes.COURSE_NOT_FOUND, message);
+    }
+}
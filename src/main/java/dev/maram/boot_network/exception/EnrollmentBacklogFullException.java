@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class EnrollmentBacklogFullException extends BusinessException {
+    public EnrollmentBacklogFullException() {
+        super(BusinessErrorCodes.ENROLLMENT_BACKLOG_FULL);
+    }
+
+    public EnrollmentBacklogFullException(String message) {
+        super(BusinessErrorCodes.ENROLLMENT_BACKLOG_FULL, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class EnrollmentNotFoundException extends BusinessException {
+    public EnrollmentNotFoundException() {
+        super(BusinessErrorCodes.ENROLLMENT_NOT_FOUND);
+    }
+
+    public EnrollmentNotFoundException(String message) {
+        super(BusinessErrorCodes.ENROLLMENT_NOT_FOUND, message);
+    }
+}
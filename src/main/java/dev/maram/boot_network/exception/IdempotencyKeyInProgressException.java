@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class IdempotencyKeyInProgressException extends BusinessException {
+    public IdempotencyKeyInProgressException() {
+        super(BusinessErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS);
+    }
+
+    public IdempotencyKeyInProgressException(String message) {
+        super(BusinessErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class IdempotencyKeyReusedException extends BusinessException {
+    public IdempotencyKeyReusedException() {
+        super(BusinessErrorCodes.IDEMPOTENCY_KEY_REUSED);
+    }
+
+    public IdempotencyKeyReusedException(String message) {
+        super(BusinessErrorCodes.IDEMPOTENCY_KEY_REUSED, message);
+    }
+}
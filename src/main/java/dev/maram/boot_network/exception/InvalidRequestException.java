@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class InvalidRequestException extends BusinessException {
+    public InvalidRequestException() {
+        super(BusinessErrorCodes.INVALID_REQUEST);
+    }
+
+    public InvalidRequestException(String message) {
+        super(BusinessErrorCodes.INVALID_REQUEST, message);
+    }
+}
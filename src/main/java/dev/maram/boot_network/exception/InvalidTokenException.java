@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class InvalidTokenException extends BusinessException {
+    public InvalidTokenException() {
+        super(BusinessErrorCodes.INVALID_TOKEN);
+    }
+
+    public InvalidTokenException(String message) {
+        super(BusinessErrorCodes.INVALID_TOKEN, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class RegistrationBacklogFullException extends BusinessException {
+    public RegistrationBacklogFullException() {
+        super(BusinessErrorCodes.REGISTRATION_BACKLOG_FULL);
+    }
+
+    public RegistrationBacklogFullException(String message) {
+        super(BusinessErrorCodes.REGISTRATION_BACKLOG_FULL, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class RegistrationNotFoundException extends BusinessException {
+    public RegistrationNotFoundException() {
+        super(BusinessErrorCodes.REGISTRATION_NOT_FOUND);
+    }
+
+    public RegistrationNotFoundException(String message) {
+        super(BusinessErrorCodes.REGISTRATION_NOT_FOUND, message);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.maram.boot_network.exception;
+
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class TokenExpiredException extends BusinessException {
+    public TokenExpiredException() {
+        super(BusinessErrorCodes.TOKEN_EXPIRED);
+    }
+
+    public TokenExpiredException(String message) {
+        super(BusinessErrorCodes.TOKEN_EXPIRED, message);
+    }
+}
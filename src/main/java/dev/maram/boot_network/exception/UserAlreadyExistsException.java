@@ -1,7 +1,13 @@
 package dev.maram.boot_network.exception;
 
-public class UserAlreadyExistsException extends RuntimeException {
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class UserAlreadyExistsException extends BusinessException {
+    public UserAlreadyExistsException() {
+        super(BusinessErrorCodes.USER_ALREADY_EXISTS);
+    }
+
     public UserAlreadyExistsException(String message) {
-        super(message);
+        super(BusinessErrorCodes.USER_ALREADY_EXISTS, message);
     }
 }
@@ -1,7 +1,13 @@
 package dev.maram.boot_network.exception;
 
-public class UserNotFoundException extends RuntimeException {
+import dev.maram.boot_network.handler.BusinessErrorCodes;
+
+public class UserNotFoundException extends BusinessException {
+    public UserNotFoundException() {
+        super(BusinessErrorCodes.USER_NOT_FOUND);
+    }
+
     public UserNotFoundException(String message) {
-        super(message);
+        super(BusinessErrorCodes.USER_NOT_FOUND, message);
     }
 }
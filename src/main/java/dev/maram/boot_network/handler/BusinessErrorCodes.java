@@ -11,9 +11,27 @@ public enum BusinessErrorCodes {
     NO_CODE(0, NOT_IMPLEMENTED, "No code"),
     INCORRECT_CURRENT_PASSWORD(300, BAD_REQUEST, "Current password is incorrect"),
     NEW_PASSWORD_DOES_NOT_MATCH(301, BAD_REQUEST, "Current password does not match"),
-    ACCOUNT_LOCKED(302, FORBIDDEN, "User account is locked"),
-    ACCOUNT_DISABLED(302, FORBIDDEN, "User account is disabled"),
-    BAD_CREDENTIALS(304, FORBIDDEN, "Login and/or password is inccorect")
+    ACCOUNT_LOCKED(302, UNAUTHORIZED, "User account is locked"),
+    ACCOUNT_DISABLED(302, UNAUTHORIZED, "User account is disabled"),
+    BAD_CREDENTIALS(304, UNAUTHORIZED, "Login and/or password is inccorect"),
+    USER_NOT_FOUND(305, NOT_FOUND, "User not found"),
+    USER_ALREADY_EXISTS(306, BAD_REQUEST, "User already exists"),
+    INVALID_REQUEST(307, BAD_REQUEST, "Invalid request"),
+    INVALID_TOKEN(308, BAD_REQUEST, "Invalid token"),
+    TOKEN_EXPIRED(309, BAD_REQUEST, "Activation token has expired, a new token has been sent to the same email address"),
+    CHANGE_CURSOR_EXPIRED(310, GONE, "Change cursor expired, resynchronize from the beginning"),
+    COURSE_NOT_FOUND(311, NOT_FOUND, "Course not found"),
+    COURSE_ALREADY_EXISTS(312, CONFLICT, "Course already exists"),
+    COURSE_FULL(313, CONFLICT, "No seat left in the course"),
+    ALREADY_ENROLLED(314, CONFLICT, "Already enrolled in the course"),
+    ENROLLMENT_NOT_FOUND(315, NOT_FOUND, "Not enrolled in the course"),
+    ENROLLMENT_BACKLOG_FULL(316, SERVICE_UNAVAILABLE, "Enrollments are not accepted right now, try again later"),
+    VALIDATION_FAILED(317, BAD_REQUEST, "Validation failed"),
+    IDEMPOTENCY_KEY_IN_PROGRESS(318, CONFLICT, "A request with this idempotency key is still in progress"),
+    IDEMPOTENCY_KEY_REUSED(319, UNPROCESSABLE_ENTITY, "The idempotency key was already used for another request"),
+    REGISTRATION_NOT_FOUND(320, NOT_FOUND, "Unknown or expired registration"),
+    REGISTRATION_BACKLOG_FULL(321, SERVICE_UNAVAILABLE, "Registrations are not accepted right now, try again later"),
+    INTERNAL_ERROR(500, INTERNAL_SERVER_ERROR, "Internal error")
     ;
 
 
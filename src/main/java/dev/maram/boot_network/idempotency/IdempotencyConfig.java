@@ -0,0 +1,55 @@
+package dev.maram.boot_network.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.time.Duration;
+import java.util.List;
+
+// Idempotency keys on the POST endpoints that mobile clients retry on timeouts, kept in Redis so that a retry
+// landing on another node finds them
+@Configuration
+@ConditionalOnProperty(name = "application.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "application.idempotency.store", havingValue = "redis", matchIfMissing = true)
+    public IdempotencyStore redisIdempotencyStore(RedisConnectionFactory connectionFactory) {
+        return new RedisIdempotencyStore(connectionFactory);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.idempotency.store", havingValue = "memory")
+    public IdempotencyStore inMemoryIdempotencyStore() {
+        return new InMemoryIdempotencyStore();
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore idempotencyStore,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+            MeterRegistry meterRegistry,
+            @Value("${application.idempotency.paths:/users,/auth/register}") List<String> paths,
+            @Value("${application.idempotency.ttl:24h}") Duration ttl,
+            @Value("${application.idempotency.lock-timeout:60s}") Duration lockTimeout,
+            @Value("${application.idempotency.wait-timeout:10s}") Duration waitTimeout,
+            @Value("${application.idempotency.max-body-size:64KB}") DataSize maxBodySize
+    ) {
+        FilterRegistrationBean<IdempotencyFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(new IdempotencyFilter(idempotencyStore, exceptionResolver, ttl, lockTimeout,
+                waitTimeout, (int) maxBodySize.toBytes(), meterRegistry));
+        registrationBean.setUrlPatterns(paths);
+        // right after security: keys are scoped to the authenticated user, unauthenticated requests never claim one
+        registrationBean.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registrationBean;
+    }
+}
@@ -0,0 +1,301 @@
+package dev.maram.boot_network.idempotency;
+
+import dev.maram.boot_network.exception.BusinessException;
+import dev.maram.boot_network.exception.IdempotencyKeyInProgressException;
+import dev.maram.boot_network.exception.IdempotencyKeyReusedException;
+import dev.maram.boot_network.exception.InvalidRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Makes the retry of a POST carrying an Idempotency-Key harmless. The first request with a key claims it in the
+// store and runs; its response, unless a 5xx, is stored and replayed to every later request with the same key, body
+// and caller, with an Idempotent-Replayed header. A duplicate arriving while the first one still runs waits for its
+// response, up to wait-timeout, then gets 409. The same key with another body gets 422. Keys are scoped to the
+// method, path and authenticated user, two callers never see each other's responses.
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long FIRST_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final IdempotencyStore store;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Duration waitTimeout;
+    private final int maxBodySize;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter rejected;
+    private final Counter bypassed;
+
+    public IdempotencyFilter(IdempotencyStore store, HandlerExceptionResolver exceptionResolver, Duration ttl,
+                             Duration lockTimeout, Duration waitTimeout, int maxBodySize, MeterRegistry registry) {
+        this.store = store;
+        this.exceptionResolver = exceptionResolver;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.waitTimeout = waitTimeout;
+        this.maxBodySize = maxBodySize;
+        this.executed = outcome(registry, "executed");
+        this.replayed = outcome(registry, "replayed");
+        this.rejected = outcome(registry, "rejected");
+        this.bypassed = outcome(registry, "bypassed");
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Requests carrying an Idempotency-Key, by what became of them")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        if (!isValid(idempotencyKey)) {
+            reject(request, response, new InvalidRequestException(
+                    IDEMPOTENCY_KEY + " must be 1 to " + MAX_KEY_LENGTH + " visible ASCII characters"));
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodySize + 1);
+        if (body.length > maxBodySize) {
+            reject(request, response, new InvalidRequestException(
+                    "Request bodies sent with an " + IDEMPOTENCY_KEY + " are limited to " + maxBodySize + " bytes"));
+            return;
+        }
+        HttpServletRequest cachedRequest = new CachedBodyRequest(request, body);
+        String key = scopedKey(request, idempotencyKey);
+        String fingerprint = sha256(body);
+
+        IdempotencyRecord record;
+        try {
+            record = claimOrAwait(key, fingerprint);
+        } catch (DataAccessException e) {
+            // a retry may run twice while the store is down, refusing every request would be worse
+            bypassed.increment();
+            log.warn("Idempotency store unavailable, running the request without its key {}",
+                    kv("path", request.getRequestURI()), e);
+            filterChain.doFilter(cachedRequest, response);
+            return;
+        }
+
+        if (record == null) {
+            execute(cachedRequest, response, filterChain, key, fingerprint);
+        } else if (!fingerprint.equals(record.fingerprint())) {
+            reject(request, response, new IdempotencyKeyReusedException());
+        } else if (!record.completed()) {
+            reject(request, response, new IdempotencyKeyInProgressException());
+        } else {
+            replay(response, record);
+        }
+    }
+
+    // null once this request holds the key, otherwise the record of the request holding it: completed, with another
+    // fingerprint, or still in progress at the end of the wait
+    private IdempotencyRecord claimOrAwait(String key, String fingerprint) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        long pause = FIRST_POLL_NANOS;
+        while (true) {
+            if (store.begin(key, IdempotencyRecord.inProgress(fingerprint), lockTimeout)) {
+                return null;
+            }
+            IdempotencyRecord record = store.get(key);
+            if (record == null) {
+                continue; // released by a failed first request, or expired: claim it again
+            }
+            if (record.completed() || !fingerprint.equals(record.fingerprint())
+                    || System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return record;
+            }
+            LockSupport.parkNanos(this, pause);
+            pause = Math.min(pause * 2, MAX_POLL_NANOS);
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, String fingerprint) throws ServletException, IOException {
+        executed.increment();
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            int status = cachingResponse.getStatus();
+            if (status < 500) {
+                // stored before the response leaves, a retry sent once it arrived finds it
+                completed = true;
+                store.complete(key, new IdempotencyRecord(fingerprint, status, cachingResponse.getContentType(),
+                        cachingResponse.getContentAsByteArray()), ttl);
+            }
+        } catch (DataAccessException e) {
+            // the request is done, only its retries lose the replay: they wait until the lock times out, then run
+            log.warn("Storing the response of an idempotent request failed {}", kv("path", request.getRequestURI()), e);
+        } finally {
+            if (!completed) {
+                release(key);
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private void release(String key) {
+        try {
+            store.release(key);
+        } catch (DataAccessException e) {
+            log.warn("Releasing an idempotency key failed, its retries wait until the lock times out", e);
+        }
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyRecord record) throws IOException {
+        replayed.increment();
+        response.setStatus(record.status());
+        if (record.contentType() != null) {
+            response.setContentType(record.contentType());
+        }
+        response.setHeader(REPLAYED, "true");
+        response.setContentLength(record.body().length);
+        response.getOutputStream().write(record.body());
+    }
+
+    // through the exception handlers, the same error bodies as the controllers
+    private void reject(HttpServletRequest request, HttpServletResponse response, BusinessException e) {
+        rejected.increment();
+        if (exceptionResolver.resolveException(request, response, null, e) == null) {
+            throw e;
+        }
+    }
+
+    private static boolean isValid(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x21 || c > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String scopedKey(HttpServletRequest request, String idempotencyKey) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String caller = authentication == null || authentication instanceof AnonymousAuthenticationToken
+                ? "" : authentication.getName();
+        String scope = request.getMethod() + ' ' + request.getRequestURI() + '\n' + caller + '\n' + idempotencyKey;
+        return sha256(scope.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the body was read to fingerprint it, the handler reads this copy
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package dev.maram.boot_network.idempotency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// What the store keeps for an idempotency key: the fingerprint of the request body, and once the first request is
+// done its response. No response yet: that request is still running.
+public record IdempotencyRecord(String fingerprint, int status, String contentType, byte[] body) {
+
+    private static final int IN_PROGRESS = 0;
+
+    public static IdempotencyRecord inProgress(String fingerprint) {
+        return new IdempotencyRecord(fingerprint, IN_PROGRESS, null, null);
+    }
+
+    public boolean completed() {
+        return status != IN_PROGRESS;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (body == null ? 0 : body.length));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(fingerprint);
+            out.writeShort(status);
+            out.writeUTF(contentType == null ? "" : contentType);
+            out.writeInt(body == null ? 0 : body.length);
+            if (body != null) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static IdempotencyRecord fromBytes(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            String fingerprint = in.readUTF();
+            int status = in.readUnsignedShort();
+            String contentType = in.readUTF();
+            byte[] body = in.readNBytes(in.readInt());
+            return new IdempotencyRecord(fingerprint, status, contentType.isEmpty() ? null : contentType, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package dev.maram.boot_network.idempotency;
+
+import java.time.Duration;
+
+/**
+ * Records of idempotency keys shared by every node. Each record expires: an in-progress one after the lock timeout,
+ * in case its node died, a completed one after the retention of the responses.
+ */
+public interface IdempotencyStore {
+
+    // true when the key was free and is now held by the caller, who runs the request
+    boolean begin(String key, IdempotencyRecord inProgress, Duration lockTimeout);
+
+    // null when the key is free
+    IdempotencyRecord get(String key);
+
+    void complete(String key, IdempotencyRecord completed, Duration ttl);
+
+    // frees the key of a request that failed, its retry runs again
+    void release(String key);
+}
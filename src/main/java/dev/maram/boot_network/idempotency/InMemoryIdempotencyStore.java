@@ -0,0 +1,56 @@
+package dev.maram.boot_network.idempotency;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// For a single node and for tests. Expired records are skipped on read and swept every few thousand writes.
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final int SWEEP_INTERVAL = 4096;
+
+    private record Entry(IdempotencyRecord record, long expiresAt) {
+        boolean expired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Override
+    public boolean begin(String key, IdempotencyRecord inProgress, Duration lockTimeout) {
+        sweepExpired();
+        long now = System.nanoTime();
+        Entry entry = new Entry(inProgress, now + lockTimeout.toNanos());
+        return entries.compute(key, (k, e) -> e == null || e.expired(now) ? entry : e) == entry;
+    }
+
+    @Override
+    public IdempotencyRecord get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.expired(System.nanoTime()) ? null : entry.record();
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord completed, Duration ttl) {
+        entries.put(key, new Entry(completed, System.nanoTime() + ttl.toNanos()));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.remove(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void sweepExpired() {
+        if (writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> entry.expired(now));
+        }
+    }
+}
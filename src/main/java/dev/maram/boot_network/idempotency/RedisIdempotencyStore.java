@@ -0,0 +1,55 @@
+package dev.maram.boot_network.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+// One string per key: SET NX claims it, a plain SET replaces the in-progress record by the response
+@RequiredArgsConstructor
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String PREFIX = "idempotency:";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    @Override
+    public boolean begin(String key, IdempotencyRecord inProgress, Duration lockTimeout) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            return Boolean.TRUE.equals(connection.stringCommands().set(redisKey(key), inProgress.toBytes(),
+                    Expiration.from(lockTimeout), RedisStringCommands.SetOption.ifAbsent()));
+        }
+    }
+
+    @Override
+    public IdempotencyRecord get(String key) {
+        byte[] value;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            value = connection.stringCommands().get(redisKey(key));
+        }
+        return value == null ? null : IdempotencyRecord.fromBytes(value);
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord completed, Duration ttl) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.stringCommands().set(redisKey(key), completed.toBytes(), Expiration.from(ttl),
+                    RedisStringCommands.SetOption.upsert());
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(redisKey(key));
+        }
+    }
+
+    private static byte[] redisKey(String key) {
+        return (PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package dev.maram.boot_network.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+// Spool and shipping metrics of the SpoolingLokiAppender instances attached to the root logger
+@Component
+public class LogShippingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof SpoolingLokiAppender appender) {
+                bind(registry, appender);
+            }
+        }
+    }
+
+    private static void bind(MeterRegistry registry, SpoolingLokiAppender appender) {
+        String name = appender.getName();
+        Gauge.builder("logs.spool.size", appender, SpoolingLokiAppender::pendingBytes)
+                .description("Bytes spooled and not shipped yet")
+                .baseUnit("bytes")
+                .tag("appender", name)
+                .register(registry);
+        Gauge.builder("logs.spool.segments", appender, SpoolingLokiAppender::segmentCount)
+                .tag("appender", name)
+                .register(registry);
+        FunctionCounter.builder("logs.spool.dropped", appender, SpoolingLokiAppender::dropped)
+                .description("Events dropped because the spool was full")
+                .tag("appender", name)
+                .register(registry);
+        FunctionCounter.builder("logs.shipped", appender, SpoolingLokiAppender::shipped)
+                .tag("appender", name)
+                .register(registry);
+        FunctionCounter.builder("logs.ship.failures", appender, SpoolingLokiAppender::failures)
+                .description("Pushes that failed and will be retried")
+                .tag("appender", name)
+                .register(registry);
+        FunctionCounter.builder("logs.ship.rejected", appender, SpoolingLokiAppender::rejected)
+                .description("Events Loki refused for good")
+                .tag("appender", name)
+                .register(registry);
+        FunctionTimer.builder("logs.ship.latency", appender, SpoolingLokiAppender::shipCount, SpoolingLokiAppender::shipSeconds, TimeUnit.SECONDS)
+                .description("Duration of the push requests to Loki")
+                .tag("appender", name)
+                .register(registry);
+    }
+}
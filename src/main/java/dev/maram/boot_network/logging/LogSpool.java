@@ -0,0 +1,278 @@
+package dev.maram.boot_network.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Log records waiting to be shipped, kept in memory-mapped segment files so they survive a restart or a crash of the
+ * process. A record is {@code [length][timestamp nanos][line]}; the length is written last, a torn record is therefore
+ * never visible. {@code -1} as length seals a segment, the records continue in the next one.
+ *
+ * <p>One writer side (the logging threads, serialized by a lock) and one reader (the shipper thread). The reader
+ * moves its cursor only on {@link #commit(Batch)}, after the batch was accepted, and the cursor is persisted in a
+ * mapped checkpoint file, so a batch that was being shipped when the process died is shipped again.
+ *
+ * <p>The audit trail spools its events here too while the database cannot take them.
+ */
+public final class LogSpool implements Closeable {
+
+    private static final int HEADER = Integer.BYTES + Long.BYTES;
+    private static final int SEALED = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final MappedByteBuffer checkpoint;
+    private final FileChannel checkpointChannel;
+
+    // guarded by writeLock
+    private Segment writeSegment;
+    private int writePosition;
+    // what the reader may see, replaced after each append
+    private volatile Cursor published;
+
+    // reader side, only moved by the shipper thread
+    private volatile long readSequence;
+    private volatile int readPosition;
+
+    private LogSpool(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.checkpointChannel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES + Integer.BYTES);
+    }
+
+    public static LogSpool open(Path directory, int segmentSize, long maxSpoolSize) throws IOException {
+        Files.createDirectories(directory);
+        LogSpool spool = new LogSpool(directory, segmentSize, (int) Math.min(Integer.MAX_VALUE, maxSpoolSize / segmentSize));
+        spool.recover();
+        return spool;
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(LogSpool::isSegment).toList()) {
+                long sequence = Long.parseLong(file.getFileName().toString()
+                        .substring(SEGMENT_PREFIX.length(), file.getFileName().toString().length() - SEGMENT_SUFFIX.length()));
+                segments.put(sequence, Segment.map(file, sequence, (int) Math.max(Files.size(file), HEADER)));
+            }
+        }
+
+        long checkpointSequence = checkpoint.getLong(0);
+        int checkpointPosition = checkpoint.getInt(Long.BYTES);
+        // everything before the checkpoint was shipped already
+        for (Map.Entry<Long, Segment> shipped : segments.headMap(checkpointSequence).entrySet()) {
+            delete(shipped.getValue());
+        }
+        if (segments.isEmpty()) {
+            segments.put(1L, createSegment(1L));
+        }
+        if (segments.containsKey(checkpointSequence)) {
+            readSequence = checkpointSequence;
+            readPosition = checkpointPosition;
+        } else {
+            readSequence = segments.firstKey();
+            readPosition = 0;
+        }
+
+        writeSegment = segments.lastEntry().getValue();
+        writePosition = 0;
+        MappedByteBuffer buffer = writeSegment.buffer;
+        while (writePosition + HEADER <= writeSegment.capacity) {
+            int length = buffer.getInt(writePosition);
+            if (length == SEALED) {
+                writeSegment = createSegment(writeSegment.sequence + 1);
+                segments.put(writeSegment.sequence, writeSegment);
+                writePosition = 0;
+                break;
+            }
+            if (length <= 0 || writePosition + HEADER + length > writeSegment.capacity) {
+                break;
+            }
+            writePosition += HEADER + length;
+        }
+        published = new Cursor(writeSegment.sequence, writePosition);
+    }
+
+    /**
+     * Appends a record, never blocks on I/O: false when the spool is full or the line cannot fit in a segment.
+     */
+    public boolean append(long timestampNanos, byte[] line) {
+        int recordSize = HEADER + line.length;
+        if (recordSize + Integer.BYTES > segmentSize) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            // room for the record and for the seal marker after it
+            if (writePosition + recordSize + Integer.BYTES > writeSegment.capacity && !roll()) {
+                return false;
+            }
+            MappedByteBuffer buffer = writeSegment.buffer;
+            buffer.putLong(writePosition + Integer.BYTES, timestampNanos);
+            buffer.put(writePosition + HEADER, line);
+            buffer.putInt(writePosition, line.length);
+            writePosition += recordSize;
+            published = new Cursor(writeSegment.sequence, writePosition);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean roll() {
+        if (segments.size() >= maxSegments) {
+            return false;
+        }
+        Segment next;
+        try {
+            next = createSegment(writeSegment.sequence + 1);
+        } catch (IOException e) {
+            return false;
+        }
+        segments.put(next.sequence, next);
+        writeSegment.buffer.putInt(writePosition, SEALED);
+        writeSegment = next;
+        writePosition = 0;
+        return true;
+    }
+
+    /**
+     * Reads the records following the read cursor, without moving it.
+     */
+    public Batch read(int maxRecords, int maxBytes) {
+        Cursor head = published;
+        long sequence = readSequence;
+        int position = readPosition;
+        List<Record> records = new ArrayList<>();
+        int bytes = 0;
+
+        while (records.size() < maxRecords) {
+            Segment segment = segments.get(sequence);
+            if (segment == null) {
+                break;
+            }
+            boolean current = sequence == head.sequence();
+            int limit = current ? head.position() : segment.capacity;
+            int length = position + HEADER > limit ? 0 : segment.buffer.getInt(position);
+            if (length == SEALED || length <= 0) {
+                // end of the written part, or of a segment the writer moved on from
+                Long next = current ? null : segments.higherKey(sequence);
+                if (next == null) {
+                    break;
+                }
+                sequence = next;
+                position = 0;
+                continue;
+            }
+            if (!records.isEmpty() && bytes + length > maxBytes) {
+                break;
+            }
+            byte[] line = new byte[length];
+            segment.buffer.get(position + HEADER, line);
+            records.add(new Record(segment.buffer.getLong(position + Integer.BYTES), line));
+            bytes += length;
+            position += HEADER + length;
+        }
+        return new Batch(records, sequence, position);
+    }
+
+    /**
+     * Moves the read cursor past a shipped batch and deletes the segments it finished.
+     */
+    public void commit(Batch batch) {
+        readSequence = batch.sequence();
+        readPosition = batch.position();
+        checkpoint.putLong(0, batch.sequence());
+        checkpoint.putInt(Long.BYTES, batch.position());
+        for (Map.Entry<Long, Segment> shipped : segments.headMap(batch.sequence()).entrySet()) {
+            delete(shipped.getValue());
+        }
+    }
+
+    // bytes appended and not shipped yet, counted in whole segments for the ones in between
+    public long pendingBytes() {
+        Cursor head = published;
+        long sequence = readSequence;
+        if (sequence == head.sequence()) {
+            return Math.max(0, head.position() - readPosition);
+        }
+        long pending = (long) (head.sequence() - sequence - 1) * segmentSize + head.position();
+        Segment first = segments.get(sequence);
+        return pending + (first == null ? 0 : first.capacity - readPosition);
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.sequence);
+        try {
+            // the mapping itself goes away with the buffer
+            Files.deleteIfExists(segment.file);
+        } catch (IOException ignored) {
+            // retried by the next recovery
+        }
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        return Segment.map(directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX)), sequence, segmentSize);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            writeSegment.buffer.force();
+            checkpoint.force();
+            checkpointChannel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public record Record(long timestampNanos, byte[] line) {
+    }
+
+    public record Batch(List<Record> records, long sequence, int position) {
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    private record Cursor(long sequence, int position) {
+    }
+
+    private record Segment(Path file, long sequence, int capacity, MappedByteBuffer buffer) {
+        static Segment map(Path file, long sequence, int capacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid once the channel is closed
+                return new Segment(file, sequence, capacity, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+            }
+        }
+    }
+}
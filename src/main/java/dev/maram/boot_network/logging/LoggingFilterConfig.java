@@ -1,8 +1,10 @@
 package dev.maram.boot_network.logging;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.core.Ordered;
 
 
 @Configuration
@@ -21,4 +23,17 @@ public class LoggingFilterConfig {
 
         return registrationBean;
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConditionalOnProperty(name = "application.logging.request-summary.enabled", havingValue = "true")
+    public FilterRegistrationBean<RequestSummaryFilter> requestSummaryFilter() {
+
+        FilterRegistrationBean<RequestSummaryFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(new RequestSummaryFilter());
+        registrationBean.addUrlPatterns("/*");
+        // outermost filter, the duration covers security as well
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return registrationBean;
+    }
+}
@@ -0,0 +1,111 @@
+package dev.maram.boot_network.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Loki push API over JSON, one stream per batch (the labels are static), gzipped
+final class LokiPushClient {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpClient client;
+    private final URI url;
+    private final String authorization;
+    private final byte[] streamPrefix;
+    private final Duration timeout;
+
+    LokiPushClient(String url, String username, String password, String labels, Duration timeout) {
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.url = URI.create(url);
+        this.authorization = username == null || username.isBlank() ? null
+                : "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.streamPrefix = ("{\"streams\":[{\"stream\":" + labelsJson(labels) + ",\"values\":[").getBytes(StandardCharsets.UTF_8);
+        this.timeout = timeout;
+    }
+
+    // the HTTP status of the push
+    int push(List<LogSpool.Record> records) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body(records)));
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private byte[] body(List<LogSpool.Record> records) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(records.size() * 64);
+        try (OutputStream out = new GZIPOutputStream(compressed, 8192)) {
+            out.write(streamPrefix);
+            for (int i = 0; i < records.size(); i++) {
+                LogSpool.Record record = records.get(i);
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('[');
+                out.write('"');
+                out.write(Long.toString(record.timestampNanos()).getBytes(StandardCharsets.US_ASCII));
+                out.write('"');
+                out.write(',');
+                writeJsonString(out, record.line());
+                out.write(']');
+            }
+            out.write("]}]}".getBytes(StandardCharsets.US_ASCII));
+        }
+        return compressed.toByteArray();
+    }
+
+    // "app=boot-network, env=dev" -> {"app":"boot-network","env":"dev"}
+    private static String labelsJson(String labels) {
+        StringBuilder json = new StringBuilder("{");
+        for (String label : labels.split(",")) {
+            int separator = label.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(label.substring(0, separator).trim()).append("\":\"")
+                    .append(label.substring(separator + 1).trim().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    // the lines are UTF-8 already, only quotes, backslashes and control characters need escaping
+    private static void writeJsonString(OutputStream out, byte[] utf8) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < utf8.length; i++) {
+            int b = utf8[i] & 0xff;
+            if (b >= 0x20 && b != '"' && b != '\\') {
+                continue;
+            }
+            out.write(utf8, start, i - start);
+            switch (b) {
+                case '"' -> out.write(new byte[]{'\\', '"'});
+                case '\\' -> out.write(new byte[]{'\\', '\\'});
+                case '\n' -> out.write(new byte[]{'\\', 'n'});
+                case '\r' -> out.write(new byte[]{'\\', 'r'});
+                case '\t' -> out.write(new byte[]{'\\', 't'});
+                default -> out.write(new byte[]{'\\', 'u', '0', '0', HEX[b >> 4], HEX[b & 0xf]});
+            }
+            start = i + 1;
+        }
+        out.write(utf8, start, utf8.length - start);
+        out.write('"');
+    }
+}
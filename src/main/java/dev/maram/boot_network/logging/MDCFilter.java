@@ -12,6 +12,9 @@ import java.io.IOException;
 
 public class MDCFilter implements Filter {
 
+    // read back by RequestSummaryFilter, which runs outside the security chain and cannot see the authentication
+    public static final String USER_EMAIL_ATTRIBUTE = MDCFilter.class.getName() + ".userEmail";
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -24,6 +27,7 @@ public class MDCFilter implements Filter {
 
             // Add the userId to MDC (Mapped Diagnostic Context) for logging purposes
             MDC.put("userEmail", userEmail);
+            request.setAttribute(USER_EMAIL_ATTRIBUTE, userEmail);
 
             // Continue the filter chain (process the request)
             chain.doFilter(request, response);
@@ -0,0 +1,89 @@
+package dev.maram.boot_network.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rate-based sampling of log events per category, a category being a logger name prefix. It runs before the message
+ * is formatted or handed to any appender, so a dropped event costs a map lookup and a random number.
+ * WARN and ERROR events and events carrying an exception are always kept.
+ *
+ * <pre>
+ * &lt;turboFilter class="dev.maram.boot_network.logging.SamplingTurboFilter"&gt;
+ *     &lt;defaultRate&gt;1.0&lt;/defaultRate&gt;
+ *     &lt;rule&gt;dev.maram.boot_network.security=0.01&lt;/rule&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Double> rateByLogger = new ConcurrentHashMap<>();
+    private double defaultRate = 1.0;
+
+    public void setDefaultRate(double defaultRate) {
+        this.defaultRate = checkRate(defaultRate);
+    }
+
+    // "<logger prefix>=<rate>", the rate being the fraction of events kept, between 0 and 1
+    public void addRule(String rule) {
+        int separator = rule.lastIndexOf('=');
+        if (separator <= 0) {
+            addError("Sampling rule must look like <logger prefix>=<rate>: " + rule);
+            return;
+        }
+        rules.add(new Rule(rule.substring(0, separator).trim(), checkRate(Double.parseDouble(rule.substring(separator + 1).trim()))));
+        // the most specific prefix wins
+        rules.sort(Comparator.comparingInt((Rule r) -> r.prefix().length()).reversed());
+        rateByLogger.clear();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN) || t != null || endsWithThrowable(params)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL; // disabled anyway, let the regular level check drop it
+        }
+        double rate = rateByLogger.computeIfAbsent(logger.getName(), this::rateFor);
+        if (rate >= 1.0) {
+            return FilterReply.NEUTRAL;
+        }
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private double rateFor(String loggerName) {
+        for (Rule rule : rules) {
+            if (loggerName.startsWith(rule.prefix())) {
+                return rule.rate();
+            }
+        }
+        return defaultRate;
+    }
+
+    private static boolean endsWithThrowable(Object[] params) {
+        return params != null && params.length > 0 && params[params.length - 1] instanceof Throwable;
+    }
+
+    private double checkRate(double rate) {
+        if (rate < 0.0 || rate > 1.0) {
+            addError("Sampling rate must be between 0 and 1, got " + rate);
+            return 1.0;
+        }
+        return rate;
+    }
+
+    private record Rule(String prefix, double rate) {
+    }
+}
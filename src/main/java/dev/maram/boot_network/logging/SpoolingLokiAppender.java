@@ -0,0 +1,256 @@
+package dev.maram.boot_network.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ships log events to Loki through a disk spool. Logging threads only encode the event and copy it into a
+ * memory-mapped segment (see {@link LogSpool}); a single low-priority thread reads batches, gzips them and pushes
+ * them, retrying with backoff while Loki is down. Nothing is lost on an outage or a restart until the spool is full,
+ * after which new events are dropped, and counted, rather than blocking the caller. The JSON file appender keeps
+ * everything locally in any case.
+ */
+public class SpoolingLokiAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private String url;
+    private String username;
+    private String password;
+    private String labels = "";
+    private String spoolDirectory = "Logs/spool";
+    private FileSize segmentSize = FileSize.valueOf("8MB");
+    private FileSize maxSpoolSize = FileSize.valueOf("512MB");
+    private int batchMaxRecords = 1000;
+    private FileSize batchMaxSize = FileSize.valueOf("1MB");
+    private Duration pollInterval = Duration.buildByMilliseconds(500);
+    private Duration maxBackoff = Duration.buildBySeconds(30);
+    private Duration requestTimeout = Duration.buildBySeconds(10);
+    private Duration flushTimeout = Duration.buildBySeconds(10);
+    private Encoder<ILoggingEvent> encoder;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder shipped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shipCount = new LongAdder();
+    private final LongAdder shipNanos = new LongAdder();
+
+    private LogSpool spool;
+    private LokiPushClient client;
+    private Thread shipper;
+    private volatile boolean stopping;
+
+    @Override
+    public void start() {
+        if (url == null || url.isBlank()) {
+            addError("No url set for appender [" + name + "]");
+            return;
+        }
+        if (encoder == null) {
+            addError("No encoder set for appender [" + name + "]");
+            return;
+        }
+        try {
+            spool = LogSpool.open(Path.of(spoolDirectory), (int) Math.min(Integer.MAX_VALUE, segmentSize.getSize()), maxSpoolSize.getSize());
+        } catch (IOException | RuntimeException e) {
+            addError("Cannot open log spool in " + spoolDirectory, e);
+            return;
+        }
+        client = new LokiPushClient(url, username, password, labels, java.time.Duration.ofMillis(requestTimeout.getMilliseconds()));
+        stopping = false;
+        shipper = new Thread(this::ship, "loki-shipper-" + name);
+        shipper.setDaemon(true);
+        shipper.setPriority(Thread.MIN_PRIORITY); // shipping must not compete with request threads
+        shipper.start();
+        super.start();
+        if (spool.pendingBytes() > 0) {
+            addInfo("Resuming shipment of " + spool.pendingBytes() + " spooled bytes");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        byte[] line = encoder.encode(event);
+        int length = line.length;
+        while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+            length--;
+        }
+        if (length != line.length) {
+            line = Arrays.copyOf(line, length);
+        }
+        Instant instant = event.getInstant();
+        if (!spool.append(instant.getEpochSecond() * 1_000_000_000L + instant.getNano(), line)) {
+            dropped.increment();
+        }
+    }
+
+    private void ship() {
+        long backoff = 0;
+        long deadline = Long.MAX_VALUE;
+        while (true) {
+            if (stopping) {
+                if (deadline == Long.MAX_VALUE) {
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushTimeout.getMilliseconds());
+                } else if (System.nanoTime() - deadline >= 0) {
+                    addWarn("Flush timeout reached, " + spool.pendingBytes() + " bytes stay spooled for the next start");
+                    return;
+                }
+            }
+            LogSpool.Batch batch = spool.read(batchMaxRecords, (int) Math.min(Integer.MAX_VALUE, batchMaxSize.getSize()));
+            if (batch.isEmpty()) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollInterval.getMilliseconds()));
+                continue;
+            }
+
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = client.push(batch.records());
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                return;
+            }
+            shipCount.increment();
+            shipNanos.add(System.nanoTime() - start);
+
+            if (status >= 200 && status < 300) {
+                spool.commit(batch);
+                shipped.add(batch.records().size());
+                backoff = 0;
+            } else if (status == -1 || status == 429 || status >= 500) {
+                failures.increment();
+                backoff = Math.min(maxBackoff.getMilliseconds(), backoff == 0 ? pollInterval.getMilliseconds() : backoff * 2);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(stopping ? Math.min(backoff, 100) : backoff));
+            } else {
+                // retrying a batch Loki refuses (too old, too large...) would block the spool forever
+                addWarn("Loki rejected a batch of " + batch.records().size() + " log events with status " + status);
+                rejected.add(batch.records().size());
+                spool.commit(batch);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        stopping = true;
+        LockSupport.unpark(shipper);
+        try {
+            shipper.join(flushTimeout.getMilliseconds() + requestTimeout.getMilliseconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shipper.interrupt();
+        try {
+            spool.close();
+        } catch (IOException e) {
+            addError("Cannot close log spool", e);
+        }
+    }
+
+    long pendingBytes() {
+        return spool == null ? 0 : spool.pendingBytes();
+    }
+
+    int segmentCount() {
+        return spool == null ? 0 : spool.segmentCount();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    long shipped() {
+        return shipped.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+
+    long shipCount() {
+        return shipCount.sum();
+    }
+
+    double shipSeconds() {
+        return shipNanos.sum() / 1_000_000_000.0;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    // static "name=value" pairs, comma separated
+    public void setLabels(String labels) {
+        this.labels = labels;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public void setSegmentSize(FileSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setMaxSpoolSize(FileSize maxSpoolSize) {
+        this.maxSpoolSize = maxSpoolSize;
+    }
+
+    public void setBatchMaxRecords(int batchMaxRecords) {
+        this.batchMaxRecords = batchMaxRecords;
+    }
+
+    public void setBatchMaxSize(FileSize batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public void setFlushTimeout(Duration flushTimeout) {
+        this.flushTimeout = flushTimeout;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+}
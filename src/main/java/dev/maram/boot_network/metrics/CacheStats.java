@@ -0,0 +1,93 @@
+package dev.maram.boot_network.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hits, misses, lookup time and load time of one cache. The load time is that of the value computed after a miss:
+ * with {@code @Cacheable} the cache only sees the miss and, later on the same thread, the put of the loaded value,
+ * so it is measured from the end of the miss to the put of the same key. Any other lookup or put in between means
+ * the loader threw or the value was not cached, and the miss is forgotten rather than timed up to an unrelated put.
+ */
+public final class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LatencyStats lookups = new LatencyStats(RequestPhase.CACHE);
+    private final LatencyStats loads = new LatencyStats(null);
+    private final ThreadLocal<PendingMiss> pendingMiss = ThreadLocal.withInitial(PendingMiss::new);
+
+    public void lookup(long startNanos, byte[] key, boolean hit) {
+        long now = System.nanoTime();
+        lookups.record(now - startNanos);
+        PendingMiss pending = pendingMiss.get();
+        if (hit) {
+            hits.increment();
+            pending.clear();
+        } else {
+            misses.increment();
+            pending.key = key;
+            pending.at = now;
+        }
+    }
+
+    // a miss whose value the cache loaded itself, @Cacheable(sync = true): the load is timed around the loader
+    public void loadedMiss(long startNanos) {
+        lookups.stop(startNanos);
+        misses.increment();
+        pendingMiss.get().clear();
+    }
+
+    // several keys in one round trip, the multi-get of the batch lookups
+    public void lookups(long startNanos, int hitCount, int missCount) {
+        lookups.stop(startNanos);
+        hits.add(hitCount);
+        misses.add(missCount);
+        pendingMiss.get().clear();
+    }
+
+    public void put(long startNanos, byte[] key) {
+        long now = System.nanoTime();
+        lookups.record(now - startNanos);
+        PendingMiss pending = pendingMiss.get();
+        if (pending.key != null && Arrays.equals(pending.key, key)) {
+            loads.record(startNanos - pending.at);
+        }
+        pending.clear();
+    }
+
+    // several keys in one round trip, the back-fill of the batch lookups
+    public void puts(long startNanos) {
+        lookups.stop(startNanos);
+        pendingMiss.get().clear();
+    }
+
+    public void load(long startNanos) {
+        loads.stop(startNanos);
+    }
+
+    void rotate(double intervalSeconds) {
+        lookups.rotate(intervalSeconds);
+        loads.rotate(intervalSeconds);
+    }
+
+    Snapshot snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new Snapshot(hitCount, missCount, total == 0 ? 0 : (double) hitCount / total, lookups.snapshot(), loads.snapshot());
+    }
+
+    public record Snapshot(long hits, long misses, double hitRatio, LatencyStats.Snapshot lookups,
+                           LatencyStats.Snapshot loads) {
+    }
+
+    private static final class PendingMiss {
+        private byte[] key;
+        private long at;
+
+        private void clear() {
+            key = null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package dev.maram.boot_network.metrics;
+
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+@Configuration
+public class HotPathConfig {
+
+    // the default writer of the Redis cache manager, timed
+    @Bean
+    public RedisCacheManagerBuilderCustomizer timedCacheWriter(RedisConnectionFactory connectionFactory, HotPathStats hotPathStats) {
+        return builder -> builder.cacheWriter(
+                new TimedRedisCacheWriter(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), hotPathStats));
+    }
+}
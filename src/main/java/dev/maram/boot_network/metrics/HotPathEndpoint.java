@@ -0,0 +1,95 @@
+package dev.maram.boot_network.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.maram.boot_network.config.AsyncConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// GET /actuator/hotpath: what capacity planning needs from the request path in one call
+@Component
+@Endpoint(id = "hotpath")
+public class HotPathEndpoint {
+
+    private final HotPathStats stats;
+    private final ThreadPoolTaskExecutor mailTaskExecutor;
+    private final ThreadPoolTaskExecutor registrationTaskExecutor;
+    private final ObjectProvider<DataSource> dataSource;
+    private final MeterRegistry meterRegistry;
+
+    public HotPathEndpoint(
+            HotPathStats stats,
+            @Qualifier(AsyncConfig.MAIL_EXECUTOR) ThreadPoolTaskExecutor mailTaskExecutor,
+            @Qualifier(AsyncConfig.REGISTRATION_EXECUTOR) ThreadPoolTaskExecutor registrationTaskExecutor,
+            ObjectProvider<DataSource> dataSource,
+            MeterRegistry meterRegistry
+    ) {
+        this.stats = stats;
+        this.mailTaskExecutor = mailTaskExecutor;
+        this.registrationTaskExecutor = registrationTaskExecutor;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public HotPath hotPath() {
+        return new HotPath(
+                stats.cacheSnapshots(),
+                stats.jwtVerify().snapshot(),
+                stats.userLookups().snapshot(),
+                stats.passwordHashes().snapshot(),
+                WorkQueue.of(mailTaskExecutor),
+                WorkQueue.of(registrationTaskExecutor),
+                connectionPool()
+        );
+    }
+
+    private ConnectionPool connectionPool() {
+        HikariPoolMXBean pool = null;
+        try {
+            DataSource ds = dataSource.getIfAvailable();
+            if (ds != null && ds.isWrapperFor(HikariDataSource.class)) {
+                pool = ds.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException ignored) {
+            // reported as an unknown pool below
+        }
+        // connection acquisition times, recorded by the Micrometer tracker Spring Boot installs on the pool
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        return new ConnectionPool(
+                pool == null ? -1 : pool.getActiveConnections(),
+                pool == null ? -1 : pool.getIdleConnections(),
+                pool == null ? -1 : pool.getThreadsAwaitingConnection(),
+                acquire == null ? 0 : acquire.count(),
+                acquire == null ? 0 : acquire.mean(TimeUnit.MILLISECONDS),
+                acquire == null ? 0 : acquire.max(TimeUnit.MILLISECONDS)
+        );
+    }
+
+    public record HotPath(Map<String, CacheStats.Snapshot> caches, LatencyStats.Snapshot jwtVerify,
+                          LatencyStats.Snapshot userDetailsLookups, LatencyStats.Snapshot passwordHashes,
+                          WorkQueue mailQueue, WorkQueue registrationQueue, ConnectionPool connectionPool) {
+    }
+
+    public record WorkQueue(int queued, int active, int threads, int capacity) {
+        static WorkQueue of(ThreadPoolTaskExecutor executor) {
+            return new WorkQueue(executor.getQueueSize(), executor.getActiveCount(), executor.getMaxPoolSize(),
+                    executor.getQueueCapacity());
+        }
+    }
+
+    public record ConnectionPool(int active, int idle, int waiting, long acquisitions, double acquireMeanMs,
+                                 double acquireMaxMs) {
+    }
+}
@@ -0,0 +1,54 @@
+package dev.maram.boot_network.metrics;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide statistics of the hot path, recorded by the instrumented components and read by HotPathEndpoint
+@Component
+public class HotPathStats {
+
+    private final LatencyStats jwtVerify = new LatencyStats(RequestPhase.JWT_VERIFY);
+    private final LatencyStats userLookups = new LatencyStats(RequestPhase.USER_LOAD);
+    private final LatencyStats passwordHashes = new LatencyStats(RequestPhase.PASSWORD_HASH);
+    private final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+    private long lastRotation = System.nanoTime();
+
+    public LatencyStats jwtVerify() {
+        return jwtVerify;
+    }
+
+    public LatencyStats userLookups() {
+        return userLookups;
+    }
+
+    public LatencyStats passwordHashes() {
+        return passwordHashes;
+    }
+
+    public CacheStats cache(String name) {
+        CacheStats stats = caches.get(name);
+        return stats != null ? stats : caches.computeIfAbsent(name, n -> new CacheStats());
+    }
+
+    // closes the current interval: the percentiles and rates reported are those of the interval just closed
+    @Scheduled(fixedRateString = "${application.observability.hotpath.interval:60s}")
+    public synchronized void rotate() {
+        long now = System.nanoTime();
+        double seconds = (now - lastRotation) / 1_000_000_000.0;
+        lastRotation = now;
+        jwtVerify.rotate(seconds);
+        userLookups.rotate(seconds);
+        passwordHashes.rotate(seconds);
+        caches.values().forEach(cache -> cache.rotate(seconds));
+    }
+
+    Map<String, CacheStats.Snapshot> cacheSnapshots() {
+        Map<String, CacheStats.Snapshot> snapshots = new TreeMap<>();
+        caches.forEach((name, stats) -> snapshots.put(name, stats.snapshot()));
+        return snapshots;
+    }
+}
@@ -0,0 +1,76 @@
+package dev.maram.boot_network.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, total time and latency distribution of one hot-path operation. Recording is two {@link LongAdder} adds and
+ * a wait-free {@link Recorder} write; the percentiles and the rate are those of the last completed interval, see
+ * {@link HotPathStats#rotate()}. When the operation is also a request phase, the time is added to the current
+ * request's {@link PhaseTimings} as well.
+ */
+public final class LatencyStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final RequestPhase phase;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final Recorder recorder = new Recorder(HIGHEST_MICROS, 2);
+
+    // written by rotate(), read by the endpoint
+    private volatile Histogram lastInterval;
+    private volatile double lastIntervalSeconds;
+
+    LatencyStats(RequestPhase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} value.
+     */
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    void record(long elapsedNanos) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        recorder.recordValue(Math.max(0, Math.min(elapsedNanos / 1000, HIGHEST_MICROS)));
+        if (phase != null) {
+            PhaseTimings.record(phase, elapsedNanos);
+        }
+    }
+
+    // a fresh histogram per interval, the previous one may still be read by the endpoint
+    void rotate(double intervalSeconds) {
+        lastInterval = recorder.getIntervalHistogram();
+        lastIntervalSeconds = intervalSeconds;
+    }
+
+    Snapshot snapshot() {
+        long total = count.sum();
+        long nanos = totalNanos.sum();
+        Histogram interval = lastInterval;
+        double seconds = lastIntervalSeconds;
+        if (interval == null || interval.getTotalCount() == 0) {
+            return new Snapshot(total, nanos / 1_000_000.0, 0, 0, 0, 0, 0);
+        }
+        return new Snapshot(total, nanos / 1_000_000.0,
+                seconds > 0 ? interval.getTotalCount() / seconds : 0,
+                interval.getMean() / 1000.0,
+                interval.getValueAtPercentile(50) / 1000.0,
+                interval.getValueAtPercentile(99) / 1000.0,
+                interval.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * {@code count} and {@code totalMs} since startup, the rest over the last interval.
+     */
+    public record Snapshot(long count, double totalMs, double ratePerSecond, double meanMs, double p50Ms,
+                           double p99Ms, double maxMs) {
+    }
+}
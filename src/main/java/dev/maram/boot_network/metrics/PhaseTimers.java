@@ -0,0 +1,40 @@
+package dev.maram.boot_network.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Micrometer timers "http.server.phase" per endpoint and phase, registered once and looked up by endpoint afterwards
+@RequiredArgsConstructor
+class PhaseTimers {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer[]> timersByEndpoint = new ConcurrentHashMap<>();
+
+    void record(String endpoint, PhaseTimings timings) {
+        Timer[] timers = timersByEndpoint.computeIfAbsent(endpoint, this::register);
+        for (RequestPhase phase : RequestPhase.VALUES) {
+            if (timings.seen(phase)) {
+                timers[phase.ordinal()].record(timings.nanos(phase), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer[] register(String endpoint) {
+        Timer[] timers = new Timer[RequestPhase.VALUES.length];
+        for (RequestPhase phase : RequestPhase.VALUES) {
+            timers[phase.ordinal()] = Timer.builder("http.server.phase")
+                    .description("Time spent per request phase")
+                    .tag("endpoint", endpoint)
+                    .tag("phase", phase.getName())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+}
@@ -0,0 +1,74 @@
+package dev.maram.boot_network.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Wires the phase timing: the filter that opens and records the timings, and the hooks that time the phases
+// happening outside of our own code (handler dispatch, repositories). The cache, JWT, user lookup and password
+// phases come from the HotPathStats instrumentation, which stays on either way.
+@Configuration
+@ConditionalOnProperty(name = "application.observability.phase-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class PhaseTimingConfig implements WebMvcConfigurer {
+
+    @Bean
+    public FilterRegistrationBean<PhaseTimingFilter> phaseTimingFilter(
+            MeterRegistry meterRegistry,
+            @Value("${application.observability.phase-timing.server-timing-header:false}") boolean serverTimingHeader
+    ) {
+        FilterRegistrationBean<PhaseTimingFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(new PhaseTimingFilter(new PhaseTimers(meterRegistry), serverTimingHeader));
+        registrationBean.addUrlPatterns("/*");
+        // right inside the request summary filter, "filter" then covers security and MDC
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registrationBean;
+    }
+
+    // static, a BeanPostProcessor has to exist before the repositories are created
+    @Bean
+    public static BeanPostProcessor repositoryPhaseTiming() {
+        MethodInterceptor timing = invocation -> {
+            long start = PhaseTimings.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                PhaseTimings.stop(RequestPhase.DB, start);
+            }
+        };
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(timing)));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                PhaseTimings.markHandlerStart();
+                return true;
+            }
+        });
+    }
+}
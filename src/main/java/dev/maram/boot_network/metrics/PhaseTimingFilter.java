@@ -0,0 +1,43 @@
+package dev.maram.boot_network.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Opens the PhaseTimings of a request and records them once the request is done
+@RequiredArgsConstructor
+public class PhaseTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final PhaseTimers phaseTimers;
+    private final boolean serverTimingHeader;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        PhaseTimings timings = PhaseTimings.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PhaseTimings.end();
+            timings.finish();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            phaseTimers.record(request.getMethod() + " " + (route == null ? "UNMAPPED" : route), timings);
+            // responses with a body got the header from ServerTimingAdvice, before they were committed
+            if (serverTimingHeader && !response.isCommitted() && !response.containsHeader(SERVER_TIMING)) {
+                response.setHeader(SERVER_TIMING, timings.serverTiming(System.nanoTime()));
+            }
+        }
+    }
+}
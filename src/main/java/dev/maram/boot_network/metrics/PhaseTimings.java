@@ -0,0 +1,112 @@
+package dev.maram.boot_network.metrics;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Time spent per {@link RequestPhase} by the request running on the current thread. Instrumented code brackets a
+ * phase with {@link #start()} and {@link #stop(RequestPhase, long)}; outside of a timed request (async tasks, startup,
+ * timing disabled) both are a thread-local read and nothing else.
+ */
+public final class PhaseTimings {
+
+    private static final ThreadLocal<PhaseTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    private final long[] nanos = new long[RequestPhase.VALUES.length];
+    private final boolean[] seen = new boolean[RequestPhase.VALUES.length];
+    private long handlerStartedAt;
+    private long serializeStartedAt;
+
+    private PhaseTimings() {
+    }
+
+    static PhaseTimings begin() {
+        PhaseTimings timings = new PhaseTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static long start() {
+        return CURRENT.get() != null ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(RequestPhase phase, long startedAt) {
+        if (startedAt == 0L) {
+            return;
+        }
+        PhaseTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, System.nanoTime() - startedAt);
+        }
+    }
+
+    // for timings taken anyway, by LatencyStats
+    static void record(RequestPhase phase, long elapsedNanos) {
+        PhaseTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, elapsedNanos);
+        }
+    }
+
+    static void markHandlerStart() {
+        PhaseTimings timings = CURRENT.get();
+        if (timings != null && timings.handlerStartedAt == 0L) {
+            timings.handlerStartedAt = System.nanoTime();
+            timings.add(RequestPhase.FILTER, timings.handlerStartedAt - timings.startedAt);
+        }
+    }
+
+    static void markSerializeStart() {
+        PhaseTimings timings = CURRENT.get();
+        if (timings != null && timings.serializeStartedAt == 0L) {
+            timings.serializeStartedAt = System.nanoTime();
+        }
+    }
+
+    static String currentServerTiming() {
+        PhaseTimings timings = CURRENT.get();
+        return timings == null ? null : timings.serverTiming(System.nanoTime());
+    }
+
+    void finish() {
+        long now = System.nanoTime();
+        if (serializeStartedAt != 0L) {
+            add(RequestPhase.SERIALIZE, now - serializeStartedAt);
+        }
+        add(RequestPhase.TOTAL, now - startedAt);
+    }
+
+    boolean seen(RequestPhase phase) {
+        return seen[phase.ordinal()];
+    }
+
+    long nanos(RequestPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    // the phases measured so far, "total" being the time elapsed up to now
+    String serverTiming(long now) {
+        StringJoiner header = new StringJoiner(", ");
+        for (RequestPhase phase : RequestPhase.VALUES) {
+            if (phase != RequestPhase.TOTAL && seen[phase.ordinal()]) {
+                header.add(entry(phase.getName(), nanos[phase.ordinal()]));
+            }
+        }
+        header.add(entry(RequestPhase.TOTAL.getName(), seen(RequestPhase.TOTAL) ? nanos(RequestPhase.TOTAL) : now - startedAt));
+        return header.toString();
+    }
+
+    private void add(RequestPhase phase, long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+        seen[phase.ordinal()] = true;
+    }
+
+    private static String entry(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.3f", name, nanos / 1_000_000.0);
+    }
+}
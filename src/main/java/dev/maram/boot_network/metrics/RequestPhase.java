@@ -0,0 +1,25 @@
+package dev.maram.boot_network.metrics;
+
+import lombok.Getter;
+
+// Phases of a request timed by PhaseTimings. They can nest: user-load includes the db time of the user lookup.
+@Getter
+public enum RequestPhase {
+
+    FILTER("filter"),               // from the first filter to the controller, security included
+    JWT_VERIFY("jwt-verify"),
+    USER_LOAD("user-load"),
+    CACHE("cache"),
+    DB("db"),                       // Spring Data repository calls
+    PASSWORD_HASH("password-hash"),
+    SERIALIZE("serialize"),         // from the controller returning a body to the end of the request
+    TOTAL("total");
+
+    static final RequestPhase[] VALUES = values();
+
+    private final String name;
+
+    RequestPhase(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,38 @@
+package dev.maram.boot_network.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Called right before a response body is serialized: starts the serialize phase and, when enabled, adds the
+// Server-Timing header while the response can still take headers
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Value("${application.observability.phase-timing.server-timing-header:false}")
+    private boolean serverTimingHeader;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        PhaseTimings.markSerializeStart();
+        if (serverTimingHeader) {
+            String serverTiming = PhaseTimings.currentServerTiming();
+            if (serverTiming != null) {
+                response.getHeaders().set(PhaseTimingFilter.SERVER_TIMING, serverTiming);
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,123 @@
+package dev.maram.boot_network.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Times the Redis cache round trips (the "cache" phase of a request) and counts hits and misses per cache
+@RequiredArgsConstructor
+public class TimedRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+    private final HotPathStats stats;
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        long start = System.nanoTime();
+        byte[] value = delegate.get(name, key);
+        stats.cache(name).lookup(start, key, value != null);
+        return value;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Duration ttl) {
+        long start = System.nanoTime();
+        byte[] value = delegate.get(name, key, ttl);
+        stats.cache(name).lookup(start, key, value != null);
+        return value;
+    }
+
+    // @Cacheable(sync = true): the value loader runs inside, it is timed on its own as the load
+    @Override
+    public byte[] get(String name, byte[] key, Supplier<byte[]> valueLoader, Duration ttl, boolean timeToIdleEnabled) {
+        CacheStats cache = stats.cache(name);
+        boolean[] loaded = new boolean[1];
+        long start = System.nanoTime();
+        byte[] value = delegate.get(name, key, () -> {
+            loaded[0] = true;
+            long loadStart = System.nanoTime();
+            try {
+                return valueLoader.get();
+            } finally {
+                cache.load(loadStart);
+            }
+        }, ttl, timeToIdleEnabled);
+        if (loaded[0]) {
+            cache.loadedMiss(start);
+        } else {
+            cache.lookup(start, key, true);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean supportsAsyncRetrieve() {
+        return delegate.supportsAsyncRetrieve();
+    }
+
+    // async retrieval completes on another thread, nothing to attribute to the request
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key) {
+        return delegate.retrieve(name, key);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+        return delegate.retrieve(name, key, ttl);
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        long start = System.nanoTime();
+        delegate.put(name, key, value, ttl);
+        stats.cache(name).put(start, key);
+    }
+
+    @Override
+    public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+        return delegate.store(name, key, value, ttl);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        long start = System.nanoTime();
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+        stats.cache(name).put(start, key);
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        long start = PhaseTimings.start();
+        try {
+            delegate.remove(name, key);
+        } finally {
+            PhaseTimings.stop(RequestPhase.CACHE, start);
+        }
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new TimedRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), stats);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+}
@@ -0,0 +1,43 @@
+package dev.maram.boot_network.role;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+// Roles are seeded in the background once the application is ready instead of by a runner that startup waits for,
+// a registration that comes first creates the role itself.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RoleService {
+
+    public static final String USER = "USER";
+
+    private final RoleRepository roleRepository;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedRoles() {
+        Role role = findOrCreate(USER);
+        log.info("Role {} is available", role.getName());
+    }
+
+    public Role userRole() {
+        return findOrCreate(USER);
+    }
+
+    public Role findOrCreate(String name) {
+        return roleRepository.findByName(name).orElseGet(() -> {
+            try {
+                return roleRepository.saveAndFlush(Role.builder().name(name).build());
+            } catch (DataIntegrityViolationException e) {
+                // created concurrently by the seeding or another registration, the name is unique
+                return roleRepository.findByName(name).orElseThrow(() -> e);
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package dev.maram.boot_network.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Words as the in-memory search indexes see them: lower case, accents stripped, split on anything but letters and digits
+public final class SearchTerms {
+
+    public static final int MAX_LENGTH = 40; // longer words are cut, they cannot be typed out in a search box anyway
+
+    private SearchTerms() {
+    }
+
+    public static List<String> of(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String normalized = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && !term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    // whether the last word of a query is still being typed
+    public static boolean endsInTerm(String query) {
+        return !query.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1));
+    }
+}
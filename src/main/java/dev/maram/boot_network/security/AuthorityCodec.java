@@ -0,0 +1,141 @@
+package dev.maram.boot_network.security;
+
+import dev.maram.boot_network.role.Role;
+import dev.maram.boot_network.role.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Authorities of a compact token: a bitmask over the roles ordered by id, bit n for the n-th role, and the version of
+ * that role table, a checksum of the role names. Every node reading the same table agrees on the version, a token
+ * encoded against another one is not decoded and the caller falls back to the authorities of the user.
+ *
+ * <p>Decoded sets are shared, immutable instances: the filter builds no authority per request.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthorityCodec {
+
+    private static final int MAX_CACHED_SETS = 256;
+    // a role created on another node shows up in the tokens it issues, the table is read again at most this often
+    private static final long REFRESH_INTERVAL_NANOS = 10_000_000_000L;
+
+    public record Encoded(int version, long mask) {
+    }
+
+    private final RoleRepository roleRepository;
+
+    private volatile RoleTable table;
+    private volatile long refreshedAt;
+
+    // null when a role of the user is not in the table, or beyond the 64 a mask has room for
+    public Encoded encode(Collection<? extends GrantedAuthority> authorities) {
+        RoleTable current = table();
+        Encoded encoded = current.encode(authorities);
+        if (encoded == null && refreshIfStale(current) != current) {
+            encoded = table.encode(authorities);
+        }
+        return encoded;
+    }
+
+    // null when the token was encoded against a role table this node does not know
+    public List<GrantedAuthority> decode(int version, long mask) {
+        RoleTable current = table();
+        if (current.version != version) {
+            current = refreshIfStale(current);
+        }
+        return current.version == version ? current.decode(mask) : null;
+    }
+
+    // the authorities of a token of the standard format, shared instances for the roles of the table
+    public List<GrantedAuthority> decode(Collection<String> names) {
+        RoleTable current = table();
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        for (String name : names) {
+            Integer bit = current.bits.get(name);
+            authorities.add(bit != null ? current.authorities.get(bit) : new SimpleGrantedAuthority(name));
+        }
+        return authorities;
+    }
+
+    private RoleTable table() {
+        RoleTable current = table;
+        return current != null ? current : refresh();
+    }
+
+    private RoleTable refreshIfStale(RoleTable current) {
+        return System.nanoTime() - refreshedAt < REFRESH_INTERVAL_NANOS ? current : refresh();
+    }
+
+    private synchronized RoleTable refresh() {
+        List<String> names = roleRepository.findAll(Sort.by("id")).stream().map(Role::getName).toList();
+        table = new RoleTable(names);
+        refreshedAt = System.nanoTime();
+        return table;
+    }
+
+    private static final class RoleTable {
+
+        private final int version;
+        private final List<GrantedAuthority> authorities;
+        private final Map<String, Integer> bits = new HashMap<>();
+        private final Map<Long, List<GrantedAuthority>> sets = new ConcurrentHashMap<>();
+
+        private RoleTable(List<String> names) {
+            CRC32 checksum = new CRC32();
+            List<GrantedAuthority> authorities = new ArrayList<>(Math.min(names.size(), Long.SIZE));
+            for (String name : names) {
+                checksum.update((name + '\n').getBytes(StandardCharsets.UTF_8));
+                if (authorities.size() < Long.SIZE) {
+                    bits.put(name, authorities.size());
+                    authorities.add(new SimpleGrantedAuthority(name));
+                }
+            }
+            this.version = (int) checksum.getValue();
+            this.authorities = List.copyOf(authorities);
+        }
+
+        private Encoded encode(Collection<? extends GrantedAuthority> granted) {
+            long mask = 0;
+            for (GrantedAuthority authority : granted) {
+                Integer bit = bits.get(authority.getAuthority());
+                if (bit == null) {
+                    return null;
+                }
+                mask |= 1L << bit;
+            }
+            return new Encoded(version, mask);
+        }
+
+        private List<GrantedAuthority> decode(long mask) {
+            List<GrantedAuthority> cached = sets.get(mask);
+            if (cached != null) {
+                return cached;
+            }
+            if (authorities.size() < Long.SIZE && mask >>> authorities.size() != 0) {
+                return null;
+            }
+            List<GrantedAuthority> decoded = new ArrayList<>(Long.bitCount(mask));
+            for (long rest = mask; rest != 0; rest &= rest - 1) {
+                decoded.add(authorities.get(Long.numberOfTrailingZeros(rest)));
+            }
+            decoded = List.copyOf(decoded);
+            if (sets.size() < MAX_CACHED_SETS) {
+                sets.put(mask, decoded);
+            }
+            return decoded;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dev.maram.boot_network.security;
 
+import dev.maram.boot_network.metrics.HotPathStats;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +27,7 @@ public class JwtFilter extends OncePerRequestFilter { //to make it a filter
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final HotPathStats hotPathStats;
 
     @Override
     protected void doFilterInternal(
@@ -45,26 +48,33 @@ public class JwtFilter extends OncePerRequestFilter { //to make it a filter
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            log.error("No valid Authorization header found, skipping JWT processing");
+            log.debug("No valid Authorization header found, skipping JWT processing");
             filterChain.doFilter(request, response);
             return;
         }
 
         log.info("Authorization header found, extracting JWT token");
         jwt = authHeader.substring(7).trim();
-        userEmail = jwtService.extractUserName(jwt);
+        long verifyStart = System.nanoTime();
+        final Claims claims;
+        try {
+            claims = jwtService.parse(jwt); //the signature is checked once, the rest is read from the claims
+            userEmail = claims.getSubject();
+        } finally {
+            hotPathStats.jwtVerify().stop(verifyStart);
+        }
         log.info("Extracted user email from JWT: {}", userEmail);
 
         if(userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) { //the second part checks if the user is not already authenticated
             log.info("User not authenticated, loading user details from database");
             UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail); //checks for the userName in the database
 
-            if(jwtService.isTokenValid(jwt, userDetails)) {
+            if(jwtService.isTokenValid(claims, userDetails)) {
                 log.info("JWT token is valid for user: {}", userEmail);
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userEmail,
                         null,
-                        userDetails.getAuthorities()
+                        userDetails.getAuthorities() //the current roles, a role taken away ends with the next request
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
@@ -75,7 +85,7 @@ public class JwtFilter extends OncePerRequestFilter { //to make it a filter
                 log.error("JWT token is invalid for user: {}", userEmail);
             }
         } else {
-            log.error("User already authenticated or no user email extracted");
+            log.debug("User already authenticated or no user email extracted");
         }
 
         log.info("Continuing filter chain for request: {}", request.getRequestURI());
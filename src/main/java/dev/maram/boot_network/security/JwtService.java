@@ -1,9 +1,15 @@
 package dev.maram.boot_network.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Serializer;
+import io.jsonwebtoken.jackson.io.JacksonDeserializer;
+import io.jsonwebtoken.jackson.io.JacksonSerializer;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,14 +22,54 @@ import java.util.function.Function;
 
 //the JwtService is the service that will generate the token, decode the token, exrtact the info form the token, validate the token..
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    public static final String FULL_NAME = "fullName";
+
+    // claim names of the compact format
+    private static final String ROLES = "r";
+    private static final String ROLE_TABLE = "rv";
+    private static final Map<String, String> SHORT_NAMES = Map.of(FULL_NAME, "n");
+    // only shown by clients, nothing on the server reads them back
+    private static final Set<String> DISPLAY_CLAIMS = Set.of(FULL_NAME, "n");
+    private static final String AUTHORITIES = "authorities";
+
+    public enum Format {
+        STANDARD, // authorities as a list of names, claims under their full names
+        COMPACT // authorities as a bitmask against the role table, short claim names
+    }
+
+    private final AuthorityCodec authorityCodec;
+
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
 
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
 
+    // tokens are issued in this format, tokens of both are accepted
+    @Value("${application.security.jwt.format:compact}")
+    private Format format;
+
+    @Value("${application.security.jwt.display-claims:true}")
+    private boolean displayClaims;
+
+    // built once: the jjwt builders look their JSON (de)serializer up through the ServiceLoader on every build() otherwise
+    private Key signInKey;
+    private JwtParser parser;
+    private Serializer<Map<String, ?>> serializer;
+
+    @PostConstruct
+    public void init() {
+        signInKey = getSignInKey();
+        parser = Jwts
+                .parserBuilder()
+                .setSigningKey(signInKey)
+                .deserializeJsonWith(new JacksonDeserializer<>())
+                .build();
+        serializer = new JacksonSerializer<>();
+    }
 
     public String extractUserName(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -35,15 +81,46 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        token = token.trim().replaceAll("\\s+", "");
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
+        return parser
+                .parseClaimsJws(withoutWhitespace(token))
                 .getBody();
     }
 
+    // verifies the signature, JwtFilter reads everything it needs from the result instead of parsing the token again
+    public Claims parse(String token) {
+        return extractAllClaims(token);
+    }
+
+    // shared instances, or null for a token encoded against a role table this node does not know
+    public List<GrantedAuthority> extractAuthorities(Claims claims) {
+        Object mask = claims.get(ROLES);
+        Object version = claims.get(ROLE_TABLE);
+        if (mask instanceof Number && version instanceof Number) {
+            return authorityCodec.decode(((Number) version).intValue(), ((Number) mask).longValue());
+        }
+        Object names = claims.get(AUTHORITIES);
+        if (names instanceof Collection<?> collection) {
+            return authorityCodec.decode(collection.stream().map(String::valueOf).toList());
+        }
+        return null;
+    }
+
+    // a token has no whitespace, unless it was wrapped or padded on its way in
+    private static String withoutWhitespace(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isWhitespace(token.charAt(i))) {
+                StringBuilder stripped = new StringBuilder(token.length());
+                for (int j = 0; j < token.length(); j++) {
+                    if (!Character.isWhitespace(token.charAt(j))) {
+                        stripped.append(token.charAt(j));
+                    }
+                }
+                return stripped.toString();
+            }
+        }
+        return token;
+    }
+
 
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
@@ -85,34 +162,46 @@ public class JwtService {
 //      return n % 2 == 0;
 //  }
 
-        var authorities = userDetails.getAuthorities()
-                .stream()
-                .map(GrantedAuthority::getAuthority)
-                .toList();
+        Map<String, Object> claims = new HashMap<>(extraClaims.size() + 2);
+        extraClaims.forEach((name, value) -> {
+            if (displayClaims || !DISPLAY_CLAIMS.contains(name)) {
+                claims.put(format == Format.COMPACT ? SHORT_NAMES.getOrDefault(name, name) : name, value);
+            }
+        });
+        AuthorityCodec.Encoded roles = format == Format.COMPACT ? authorityCodec.encode(userDetails.getAuthorities()) : null;
+        if (roles != null) {
+            claims.put(ROLES, roles.mask());
+            claims.put(ROLE_TABLE, roles.version());
+        } else {
+            // the standard format, or a role missing from the table
+            claims.put(AUTHORITIES, userDetails.getAuthorities()
+                    .stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .toList());
+        }
 
         return Jwts
                 .builder()
-                .setClaims(extraClaims)
+                .serializeToJsonWith(serializer)
+                .setClaims(claims)
                 .setSubject(userDetails.getUsername()) //Puts the user's username into the token. This is the primary identifier
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .claim("authorities", authorities)//adds the user's permoissions/roles to the token
-                .signWith(getSignInKey()) //Cryptographically signs the token with a secret key.
+                .signWith(signInKey) //Cryptographically signs the token with a secret key.
                 .compact(); //Finalizes the process and turns all the information into the final, URL-safe JWT string
     }
 
     //check the validity of the token
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails); //parsed and verified once for both checks
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return (claims.getSubject().equals(userDetails.getUsername())) && !isTokenExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
 
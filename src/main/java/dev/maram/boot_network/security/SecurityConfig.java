@@ -1,5 +1,6 @@
 package dev.maram.boot_network.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,7 +29,8 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(req ->
-                        req.requestMatchers(
+                        req.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() //the request was already authorized before going async (SSE streams)
+                                .requestMatchers(
                                         "/auth/**",
                                         "/v2/api-docs",
                                         "/v3/api-docs",
@@ -40,7 +42,9 @@ public class SecurityConfig {
                                         "/swagger-ui/**",
                                         "/webjars/**",
                                         "/swagger-ui.html",
-                                        "/error"
+                                        "/error",
+                                        "/actuator/health/liveness", //probes carry no token, they only get the status
+                                        "/actuator/health/readiness"
                                 ).permitAll()
                                 .anyRequest()
                                 .authenticated()
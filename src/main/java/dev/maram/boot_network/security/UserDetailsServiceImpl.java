@@ -1,5 +1,6 @@
 package dev.maram.boot_network.security;
 
+import dev.maram.boot_network.metrics.HotPathStats;
 import dev.maram.boot_network.user.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -16,11 +17,30 @@ import java.beans.Transient;
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository repository;
+    private final HotPathStats hotPathStats;
 
     @Override
     @Transactional //cancels the query before commiting if there are any arrors that might be produced because of the query (ex: deleting a user deletes a role which might produce an error so "Transactional" cancels the remmoval before the transaction is commited
     public UserDetails loadUserByUsername(String userEmail) throws UsernameNotFoundException {
-        return repository.findByEmail(userEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        long start = System.nanoTime();
+        try {
+            return repository.findByEmail(userEmail)
+                    .orElseThrow(UnknownUserException::new);
+        } finally {
+            hotPathStats.userLookups().stop(start);
+        }
+    }
+
+    // every login with an unknown email and every token of a deleted user throws one, only its type is ever read
+    private static final class UnknownUserException extends UsernameNotFoundException {
+
+        private UnknownUserException() {
+            super("User not found");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
     }
 }
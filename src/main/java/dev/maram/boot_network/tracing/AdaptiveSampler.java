@@ -0,0 +1,118 @@
+package dev.maram.boot_network.tracing;
+
+import brave.sampler.Sampler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Head sampler keeping the reported spans around a per-second budget. Every adjust interval the sampling probability
+ * is recomputed from the traces started, the average spans per sampled trace and the spans the tail sampler kept on
+ * top, so a traffic spike lowers the probability within a second instead of flooding the collector.
+ * The decision is made on the trace ID, only for new traces: a request arriving with a sampling decision keeps it.
+ */
+public class AdaptiveSampler extends Sampler implements MeterBinder {
+
+    private final double spansPerSecond;
+    private final double minProbability;
+    private final long adjustIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong windowStart;
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder reportedSpans = new LongAdder();
+    private final LongAdder tailKeptSpans = new LongAdder();
+    private final LongAdder sampledTotal = new LongAdder();
+    private final LongAdder droppedTotal = new LongAdder();
+
+    private volatile double probability = 1.0;
+    private volatile double spansPerTrace = 1.0;
+
+    public AdaptiveSampler(double spansPerSecond, double minProbability, Duration adjustInterval) {
+        this(spansPerSecond, minProbability, adjustInterval, System::nanoTime);
+    }
+
+    AdaptiveSampler(double spansPerSecond, double minProbability, Duration adjustInterval, LongSupplier nanoClock) {
+        this.spansPerSecond = spansPerSecond;
+        this.minProbability = minProbability;
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public boolean isSampled(long traceId) {
+        maybeAdjust();
+        offered.increment();
+        double p = probability;
+        // trace IDs are random, comparing the lower 63 bits to a threshold is a fair coin that every node agrees on
+        boolean decision = p >= 1.0 || (traceId & Long.MAX_VALUE) < (long) (p * Long.MAX_VALUE);
+        if (decision) {
+            sampled.increment();
+            sampledTotal.increment();
+        } else {
+            droppedTotal.increment();
+        }
+        return decision;
+    }
+
+    void recordReportedSpan() {
+        reportedSpans.increment();
+    }
+
+    void recordTailKeptSpans(int spans) {
+        tailKeptSpans.add(spans);
+    }
+
+    double probability() {
+        return probability;
+    }
+
+    private void maybeAdjust() {
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        long elapsed = now - start;
+        if (elapsed < adjustIntervalNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        double seconds = elapsed / 1_000_000_000.0;
+        double tracesPerSecond = offered.sumThenReset() / seconds;
+        long sampledTraces = sampled.sumThenReset();
+        long spans = reportedSpans.sumThenReset();
+        double tailSpansPerSecond = tailKeptSpans.sumThenReset() / seconds;
+
+        if (sampledTraces > 0 && spans > 0) {
+            // smoothed, one odd window should not swing the estimate
+            spansPerTrace = 0.7 * spansPerTrace + 0.3 * ((double) spans / sampledTraces);
+        }
+        if (tracesPerSecond == 0) {
+            probability = 1.0;
+            return;
+        }
+        // error and slow traces kept by the tail sampler come out of the same budget
+        double headBudget = Math.max(0, spansPerSecond - tailSpansPerSecond);
+        double target = headBudget / (spansPerTrace * tracesPerSecond);
+        probability = Math.max(minProbability, Math.min(1.0, target));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("tracing.sampler.probability", this, AdaptiveSampler::probability)
+                .description("Current head sampling probability of new traces")
+                .register(registry);
+        FunctionCounter.builder("tracing.sampler.traces", sampledTotal, LongAdder::sum)
+                .tag("decision", "sampled")
+                .register(registry);
+        FunctionCounter.builder("tracing.sampler.traces", droppedTotal, LongAdder::sum)
+                .tag("decision", "not-sampled")
+                .register(registry);
+    }
+}
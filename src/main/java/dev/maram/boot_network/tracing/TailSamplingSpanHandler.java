@@ -0,0 +1,181 @@
+package dev.maram.boot_network.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Second chance for the traces the head sampler dropped. Spans of unsampled traces are still recorded locally
+ * (Tracing is built with alwaysSampleLocal) and held here until their local root span ends; the trace is then
+ * reported if one of its spans failed or the root took longer than the slow threshold, and discarded otherwise.
+ * Sampled spans are left to the Zipkin handler and only counted for the {@link AdaptiveSampler}.
+ */
+public class TailSamplingSpanHandler extends SpanHandler implements MeterBinder {
+
+    private final AdaptiveSampler sampler;
+    private final Supplier<SpanHandler> reporter;
+    private final boolean tailSampling;
+    private final long slowThresholdMicros;
+    private final int maxPendingTraces;
+    private final int maxSpansPerTrace;
+    private final long pendingTimeoutNanos;
+
+    private final Map<Long, PendingTrace> pending = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final LongAdder keptErrors = new LongAdder();
+    private final LongAdder keptSlow = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public TailSamplingSpanHandler(AdaptiveSampler sampler, Supplier<SpanHandler> reporter, boolean tailSampling,
+                                   Duration slowThreshold, int maxPendingTraces, int maxSpansPerTrace,
+                                   Duration pendingTimeout) {
+        this.sampler = sampler;
+        this.reporter = reporter;
+        this.tailSampling = tailSampling;
+        this.slowThresholdMicros = slowThreshold.toNanos() / 1000;
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.pendingTimeoutNanos = pendingTimeout.toNanos();
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (Boolean.TRUE.equals(context.sampled())) {
+            sampler.recordReportedSpan();
+            return true;
+        }
+        if (!tailSampling) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        if (context.isLocalRoot()) {
+            PendingTrace trace = pending.remove(context.localRootId());
+            List<Entry> spans = trace == null ? new ArrayList<>(1) : trace.drain();
+            boolean failed = (trace != null && trace.failed) || isError(span);
+            spans.add(new Entry(context, span, cause));
+            decide(spans, failed, isSlow(span));
+        } else {
+            PendingTrace trace = pending.get(context.localRootId());
+            if (trace == null) {
+                if (pending.size() >= maxPendingTraces) {
+                    overflow.increment();
+                    return true;
+                }
+                trace = pending.computeIfAbsent(context.localRootId(), id -> new PendingTrace(now));
+            }
+            trace.add(new Entry(context, span, cause), isError(span), maxSpansPerTrace);
+        }
+        sweep(now);
+        return true;
+    }
+
+    private void decide(List<Entry> spans, boolean failed, boolean slow) {
+        if (!failed && !slow) {
+            discarded.increment();
+            return;
+        }
+        (failed ? keptErrors : keptSlow).increment();
+        SpanHandler target = reporter.get();
+        for (Entry entry : spans) {
+            // the Zipkin handler only reports sampled contexts
+            target.end(entry.context.toBuilder().sampled(true).build(), entry.span, entry.cause);
+        }
+        sampler.recordTailKeptSpans(spans.size());
+    }
+
+    // spans whose local root never ended (abandoned, or arriving after the decision) would otherwise stay forever
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < 1_000_000_000L || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        pending.values().removeIf(trace -> {
+            boolean stale = now - trace.createdAt > pendingTimeoutNanos;
+            if (stale) {
+                expired.increment();
+            }
+            return stale;
+        });
+    }
+
+    private boolean isSlow(MutableSpan span) {
+        long start = span.startTimestamp();
+        long finish = span.finishTimestamp();
+        return start != 0 && finish != 0 && finish - start >= slowThresholdMicros;
+    }
+
+    private static boolean isError(MutableSpan span) {
+        // exceptions, plus 5xx responses from the HTTP server observation that did not throw
+        return span.error() != null || span.tag("error") != null || "SERVER_ERROR".equals(span.tag("outcome"));
+    }
+
+    int pendingTraces() {
+        return pending.size();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("tracing.tail.pending", pending, Map::size)
+                .description("Unsampled traces waiting for their local root span to end")
+                .register(registry);
+        outcome(registry, "kept-error", keptErrors);
+        outcome(registry, "kept-slow", keptSlow);
+        outcome(registry, "discarded", discarded);
+        outcome(registry, "overflow", overflow);
+        outcome(registry, "expired", expired);
+    }
+
+    private static void outcome(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder("tracing.tail.traces", count, LongAdder::sum)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingSpanHandler";
+    }
+
+    private record Entry(TraceContext context, MutableSpan span, Cause cause) {
+    }
+
+    private static final class PendingTrace {
+        private final long createdAt;
+        private final List<Entry> spans = new ArrayList<>();
+        private volatile boolean failed;
+
+        private PendingTrace(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        private synchronized void add(Entry entry, boolean error, int maxSpans) {
+            if (error) {
+                failed = true;
+            }
+            if (spans.size() < maxSpans) {
+                spans.add(entry);
+            }
+        }
+
+        private synchronized List<Entry> drain() {
+            return new ArrayList<>(spans);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.maram.boot_network.tracing;
+
+import brave.TracingCustomizer;
+import brave.handler.SpanHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import zipkin2.reporter.brave.AsyncZipkinSpanHandler;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Replaces the fixed management.tracing.sampling.probability with the adaptive head sampler (Boot's sampler backs
+// off when a Sampler bean exists) and adds the tail sampler in front of the Zipkin reporter.
+@Configuration
+@ConditionalOnProperty(name = "application.observability.tracing.adaptive-sampling.enabled", havingValue = "true")
+public class TracingSamplingConfig {
+
+    @Bean
+    public AdaptiveSampler adaptiveSampler(
+            @Value("${application.observability.tracing.adaptive-sampling.spans-per-second:100}") double spansPerSecond,
+            @Value("${application.observability.tracing.adaptive-sampling.min-probability:0.001}") double minProbability,
+            @Value("${application.observability.tracing.adaptive-sampling.adjust-interval:1s}") Duration adjustInterval
+    ) {
+        return new AdaptiveSampler(spansPerSecond, minProbability, adjustInterval);
+    }
+
+    @Bean
+    public TailSamplingSpanHandler tailSamplingSpanHandler(
+            AdaptiveSampler adaptiveSampler,
+            ObjectProvider<AsyncZipkinSpanHandler> zipkinSpanHandler,
+            @Value("${application.observability.tracing.tail-sampling.enabled:true}") boolean tailSampling,
+            @Value("${application.observability.tracing.tail-sampling.slow-threshold:500ms}") Duration slowThreshold,
+            @Value("${application.observability.tracing.tail-sampling.max-pending-traces:10000}") int maxPendingTraces,
+            @Value("${application.observability.tracing.tail-sampling.max-spans-per-trace:256}") int maxSpansPerTrace,
+            @Value("${application.observability.tracing.tail-sampling.pending-timeout:30s}") Duration pendingTimeout
+    ) {
+        // looked up when a trace is kept, the Zipkin handler and this one are both injected into Tracing
+        Supplier<SpanHandler> reporter = () -> {
+            SpanHandler handler = zipkinSpanHandler.getIfAvailable();
+            return handler != null ? handler : SpanHandler.NOOP;
+        };
+        return new TailSamplingSpanHandler(adaptiveSampler, reporter, tailSampling, slowThreshold, maxPendingTraces, maxSpansPerTrace, pendingTimeout);
+    }
+
+    // unsampled spans have to be recorded for the tail sampler to see them
+    @Bean
+    @ConditionalOnProperty(name = "application.observability.tracing.tail-sampling.enabled", havingValue = "true", matchIfMissing = true)
+    public TracingCustomizer alwaysSampleLocal() {
+        return builder -> builder.alwaysSampleLocal();
+    }
+}
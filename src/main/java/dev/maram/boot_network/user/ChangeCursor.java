@@ -0,0 +1,51 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+// Position in the change feed. Changes are ordered by (timestamp, upserts before deletions, user id), the cursor is
+// the last change a consumer has seen and is handed out as an opaque token.
+record ChangeCursor(LocalDateTime timestamp, boolean deletion, int userId) {
+
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final ChangeCursor START = new ChangeCursor(EPOCH, false, Integer.MIN_VALUE);
+
+    static ChangeCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+            long micros = Long.parseLong(parts[0]);
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(
+                    Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+            return new ChangeCursor(timestamp, "d".equals(parts[1]), Integer.parseInt(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Malformed change cursor");
+        }
+    }
+
+    String encode() {
+        long micros = ChronoUnit.MICROS.between(EPOCH, timestamp);
+        String raw = micros + ":" + (deletion ? "d" : "u") + ":" + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    boolean isStart() {
+        return equals(START);
+    }
+
+    // users changed at the cursor timestamp sort before deletions at that timestamp
+    int upsertsAfterUserId() {
+        return deletion ? Integer.MAX_VALUE : userId;
+    }
+
+    int deletionsAfterUserId() {
+        return deletion ? userId : Integer.MIN_VALUE;
+    }
+}
@@ -18,9 +18,9 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Getter
 @Setter
@@ -28,8 +28,11 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name= "user")
-@EntityListeners(AuditingEntityListener.class)
+@Table(
+        name= "user",
+        indexes = @Index(name = "idx_user_last_modified_id", columnList = "lastModifiedDate, id") //walked by the /users/changes feed
+)
+@EntityListeners({AuditingEntityListener.class, UserCacheListener.class, UserEventPublisher.class})
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class User implements UserDetails, Principal, Serializable {
 
@@ -57,8 +60,7 @@ public class User implements UserDetails, Principal, Serializable {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdDate;
 
-    @LastModifiedDate
-    @Column(insertable = false)
+    @LastModifiedDate //also set on insert, a new user has to show up in the change feed
     private LocalDateTime lastModifiedDate;
 
     @CreatedBy
@@ -68,6 +70,10 @@ public class User implements UserDetails, Principal, Serializable {
     @LastModifiedBy
     private String lastModifiedBy;
 
+    @Version //incremented on every update, it is what the ETags of the user resources are derived from
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @Override
     public String getName() {
         return email;
@@ -76,10 +82,12 @@ public class User implements UserDetails, Principal, Serializable {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return this.roles
-                .stream()
-                .map(r -> new SimpleGrantedAuthority(r.getName()))
-                .collect(Collectors.toList());
+        //called for every token issued and every authenticated request, a plain loop spares the stream pipeline
+        List<GrantedAuthority> authorities = new ArrayList<>(this.roles.size());
+        for (Role role : this.roles) {
+            authorities.add(new SimpleGrantedAuthority(role.getName()));
+        }
+        return authorities;
     }
 
     @Override
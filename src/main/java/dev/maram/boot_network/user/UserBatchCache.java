@@ -0,0 +1,118 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.metrics.HotPathStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Multi-key access to the "users" cache. @Cacheable only reads and writes one key per call, this reads a whole batch
+// with a single MGET and back-fills the misses in one pipelined round trip, using the key prefix, serializers and TTL
+// of the RedisCache itself so entries stay interchangeable with the ones written by UserService.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserBatchCache {
+
+    private final CacheManager cacheManager;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final HotPathStats hotPathStats;
+
+    public Map<Integer, UserDto> getAll(List<Integer> userIds) {
+        Map<Integer, UserDto> found = new HashMap<>();
+        Cache cache = cacheManager.getCache(UserCacheListener.USERS_CACHE);
+        if (cache == null || userIds.isEmpty()) {
+            return found;
+        }
+
+        if (!(cache instanceof RedisCache redisCache)) {
+            userIds.forEach(id -> {
+                UserDto user = cache.get(id, UserDto.class);
+                if (user != null) {
+                    found.put(id, user);
+                }
+            });
+            return found;
+        }
+
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        byte[][] keys = new byte[userIds.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = cacheKey(config, userIds.get(i));
+        }
+
+        List<byte[]> values;
+        long start = System.nanoTime();
+        try (RedisConnection connection = connectionFactory.getObject().getConnection()) {
+            values = connection.stringCommands().mGet(keys);
+        }
+
+        for (int i = 0; values != null && i < values.size(); i++) {
+            byte[] value = values.get(i);
+            if (value != null && config.getValueSerializationPair().read(ByteBuffer.wrap(value)) instanceof UserDto user) {
+                found.put(userIds.get(i), user);
+            }
+        }
+        hotPathStats.cache(UserCacheListener.USERS_CACHE).lookups(start, found.size(), userIds.size() - found.size());
+        log.info("Batch cache read: {} of {} users found", found.size(), userIds.size());
+        return found;
+    }
+
+    public void putAll(Collection<UserDto> users) {
+        Cache cache = cacheManager.getCache(UserCacheListener.USERS_CACHE);
+        if (cache == null || users.isEmpty()) {
+            return;
+        }
+
+        if (!(cache instanceof RedisCache redisCache)) {
+            users.forEach(user -> cache.put(user.getId(), user));
+            return;
+        }
+
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        long start = System.nanoTime();
+        try (RedisConnection connection = connectionFactory.getObject().getConnection()) {
+            connection.openPipeline();
+            for (UserDto user : users) {
+                Duration ttl = config.getTtlFunction().getTimeToLive(user.getId(), user);
+                connection.stringCommands().set(
+                        cacheKey(config, user.getId()),
+                        toBytes(config.getValueSerializationPair().write(user)),
+                        ttl == null || ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl),
+                        RedisStringCommands.SetOption.upsert()
+                );
+            }
+            connection.closePipeline();
+        }
+        hotPathStats.cache(UserCacheListener.USERS_CACHE).puts(start);
+        log.info("Batch cache back-fill of {} users", users.size());
+    }
+
+    private static byte[] cacheKey(RedisCacheConfiguration config, Integer userId) {
+        String key = config.usePrefix()
+                ? config.getKeyPrefixFor(UserCacheListener.USERS_CACHE) + userId
+                : String.valueOf(userId);
+        return toBytes(config.getKeySerializationPair().write(key));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
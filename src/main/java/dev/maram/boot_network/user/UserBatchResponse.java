@@ -0,0 +1,18 @@
+package dev.maram.boot_network.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchResponse {
+
+    private List<UserDto> users;       // in the order the ids were requested, duplicates removed
+    private List<Integer> missingIds;  // ids with no user, in the order they were requested
+}
@@ -0,0 +1,48 @@
+package dev.maram.boot_network.user;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+// Keeps the cached DTOs and versions in line with the database whoever writes the user (UserService, AuthService...),
+// otherwise a stale version would answer 304 for a user that actually changed.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheListener {
+
+    public static final String USERS_CACHE = "users";
+    public static final String VERSIONS_CACHE = "userVersions";
+    public static final String ALL_KEY = "ALL";
+
+    private final CacheManager cacheManager;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void userChanged(User user) {
+        Integer id = user.getId();
+        String email = user.getEmail();
+        // evicting before the commit would let a concurrent read cache the old row again
+        AfterCommit.run(() -> evict(id, email));
+    }
+
+    private void evict(Integer id, String email) {
+        log.debug("Evicting cached user and versions for user ID: {}", id);
+        Cache versions = cacheManager.getCache(VERSIONS_CACHE);
+        if (versions != null) {
+            versions.evict(id);
+            versions.evict(ALL_KEY);
+        }
+        Cache users = cacheManager.getCache(USERS_CACHE);
+        if (users != null) {
+            users.evict(id);
+            users.evict("email:" + email);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.maram.boot_network.user;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChange {
+
+    public enum Type { UPSERT, DELETE }
+
+    private Type type;
+    private Integer userId;
+    private LocalDateTime changedAt;
+    private UserDto user; // current state for an UPSERT, absent for a DELETE tombstone
+}
@@ -0,0 +1,19 @@
+package dev.maram.boot_network.user;
+
+import java.time.LocalDateTime;
+
+// projection read by the change feed, it skips the eagerly fetched roles of the entity
+public interface UserChangeRow {
+
+    Integer getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    Long getVersion();
+
+    LocalDateTime getLastModifiedDate();
+}
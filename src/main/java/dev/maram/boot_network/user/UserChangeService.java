@@ -0,0 +1,126 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.exception.ChangeCursorExpiredException;
+import dev.maram.boot_network.exception.InvalidRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Change feed over the user table: consumers keep a cursor and only fetch what changed since, instead of the whole
+// directory. Both sources are walked with keyset pagination on (timestamp, id) and merged in that order.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserChangeService {
+
+    private final UserRepository userRepository;
+    private final UserTombstoneRepository userTombstoneRepository;
+
+    @Value("${application.users.changes.max-limit:1000}")
+    private int maxLimit;
+
+    // a transaction that commits late can carry an older timestamp than changes already returned, the most recent
+    // changes are held back for this long so they are not skipped by the cursor
+    @Value("${application.users.changes.settle-lag:2s}")
+    private Duration settleLag;
+
+    @Value("${application.users.changes.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    @Transactional(readOnly = true)
+    public UserChangesResponse getChangesSince(String since, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxLimit);
+        }
+        ChangeCursor cursor = ChangeCursor.decode(since);
+        LocalDateTime now = LocalDateTime.now();
+        if (!cursor.isStart() && cursor.timestamp().isBefore(now.minus(tombstoneRetention))) {
+            // deletions older than the retention are gone, the consumer has to start over from an empty cursor
+            throw new ChangeCursorExpiredException("Change cursor is older than " + tombstoneRetention.toDays() + " days, resynchronize from the beginning");
+        }
+        LocalDateTime until = now.minus(settleLag);
+        log.info("Fetching user changes since {} (limit {})", cursor.timestamp(), limit);
+
+        List<UserChangeRow> upserts = userRepository.findChangedSince(
+                cursor.timestamp(), cursor.upsertsAfterUserId(), until, Limit.of(limit));
+        List<UserTombstone> deletions = userTombstoneRepository.findDeletedSince(
+                cursor.timestamp(), cursor.deletionsAfterUserId(), until, Limit.of(limit));
+
+        List<UserChange> changes = new ArrayList<>(Math.min(limit, upserts.size() + deletions.size()));
+        ChangeCursor next = cursor;
+        int u = 0;
+        int d = 0;
+        while (changes.size() < limit && (u < upserts.size() || d < deletions.size())) {
+            boolean takeUpsert = d == deletions.size()
+                    || (u < upserts.size() && !upserts.get(u).getLastModifiedDate().isAfter(deletions.get(d).getDeletedDate()));
+            if (takeUpsert) {
+                UserChangeRow row = upserts.get(u++);
+                changes.add(UserChange.builder()
+                        .type(UserChange.Type.UPSERT)
+                        .userId(row.getId())
+                        .changedAt(row.getLastModifiedDate())
+                        .user(new UserDto(row.getId(), row.getFirstName(), row.getLastName(), row.getEmail(), row.getVersion()))
+                        .build());
+                next = new ChangeCursor(row.getLastModifiedDate(), false, row.getId());
+            } else {
+                UserTombstone tombstone = deletions.get(d++);
+                changes.add(UserChange.builder()
+                        .type(UserChange.Type.DELETE)
+                        .userId(tombstone.getUserId())
+                        .changedAt(tombstone.getDeletedDate())
+                        .build());
+                next = new ChangeCursor(tombstone.getDeletedDate(), true, tombstone.getUserId());
+            }
+        }
+
+        boolean hasMore = u < upserts.size() || d < deletions.size()
+                || upserts.size() == limit || deletions.size() == limit;
+        if (changes.isEmpty() && until.isAfter(next.timestamp())) {
+            // nothing changed before until: a caught-up consumer moves along with it, or its cursor would expire
+            // after the tombstone retention without ever having missed a change
+            next = new ChangeCursor(until, false, Integer.MIN_VALUE);
+        }
+        log.info("Returning {} user changes, more pending: {}", changes.size(), hasMore);
+
+        return UserChangesResponse.builder()
+                .changes(changes)
+                .nextCursor(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Transactional
+    public void recordDeletion(Integer userId) {
+        userTombstoneRepository.save(UserTombstone.builder().userId(userId).build());
+    }
+
+    // in the background, readiness would otherwise wait for the update
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillLastModifiedDates() {
+        int updated = userRepository.backfillLastModifiedDate();
+        if (updated > 0) {
+            log.info("Initialized lastModifiedDate of {} users for the change feed", updated);
+        }
+    }
+
+    @Scheduled(cron = "${application.users.changes.tombstone-prune-cron:0 0 3 * * *}")
+    @Transactional
+    public void pruneTombstones() {
+        int deleted = userTombstoneRepository.deleteOlderThan(LocalDateTime.now().minus(tombstoneRetention));
+        log.info("Pruned {} user tombstones older than {} days", deleted, tombstoneRetention.toDays());
+    }
+}
@@ -0,0 +1,7 @@
+package dev.maram.boot_network.user;
+
+// Published once a user change is committed, whoever made it
+public record UserChangedEvent(Type type, Integer userId, UserDto user) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
@@ -0,0 +1,19 @@
+package dev.maram.boot_network.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangesResponse {
+
+    private List<UserChange> changes;
+    private String nextCursor; // to be passed as "since" on the next call, even when there were no changes
+    private boolean hasMore;   // true when the page was full, the consumer should call again right away
+}
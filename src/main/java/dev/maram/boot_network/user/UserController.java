@@ -2,9 +2,13 @@ package dev.maram.boot_network.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -15,19 +19,82 @@ import java.util.List;
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final UserChangeService userChangeService;
+    private final UserEventBroadcaster userEventBroadcaster;
+
+    // clients are expected to revalidate with If-None-Match rather than trust a cached copy
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
     @GetMapping("/{userId}")
-    public ResponseEntity<UserDto> getUserById(@PathVariable Integer userId) {
+    public ResponseEntity<UserDto> getUserById(@PathVariable Integer userId, WebRequest request) {
         log.info("GET request for user with ID: {}", userId);
-        return ResponseEntity.ok(userService.getUserById(userId));
+
+        // checked against the cached version only, the DTO is neither loaded nor serialized on a 304
+        if (request.checkNotModified(userETag(userId, userService.getUserVersion(userId)))) {
+            return null;
+        }
+
+        UserDto user = userService.getUserById(userId);
+        return ResponseEntity.ok()
+                .eTag(userETag(userId, user.getVersion()))
+                .cacheControl(REVALIDATE)
+                .body(user);
     }
 
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
+    public ResponseEntity<List<UserDto>> getAllUsers(WebRequest request) {
         log.info("GET request for all users");
 
+        String eTag = "\"users-" + userService.getAllUsersVersion() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
         List<UserDto> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(REVALIDATE)
+                .body(users);
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<UserBatchResponse> getUsersByIds(@RequestParam List<Integer> ids) {
+        log.info("GET request for a batch of {} users", ids.size());
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
+    // same lookup for id lists that would not fit in a URL
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchResponse> getUsersByIds(@Valid @RequestBody UserBatchRequest request) {
+        log.info("POST request for a batch of {} users", request.getIds().size());
+        return ResponseEntity.ok(userService.getUsersByIds(request.getIds()));
+    }
+
+    // names and email, the last word as a prefix while it is typed, a typo or two tolerated in longer words
+    @GetMapping("/search")
+    public ResponseEntity<List<UserSearchHit>> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        log.info("GET request to search users");
+        return ResponseEntity.ok(userService.searchUsers(q, limit));
+    }
+
+    // incremental sync: pass back the nextCursor of the previous call, omit it for a full initial sync
+    @GetMapping("/changes")
+    public ResponseEntity<UserChangesResponse> getUserChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        log.info("GET request for user changes");
+        return ResponseEntity.ok(userChangeService.getChangesSince(since, limit));
+    }
+
+    // push alternative to polling: one "user-change" event per created, updated or deleted user
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserChanges() {
+        log.info("SSE subscription to user changes");
+        return userEventBroadcaster.subscribe();
     }
 
     @GetMapping("/email/{email}")
@@ -56,4 +123,8 @@ public class UserController {
         userService.deleteUser(userId);
         return ResponseEntity.noContent().build();
     }
+
+    private static String userETag(Integer userId, Long version) {
+        return "\"" + userId + "-" + version + "\"";
+    }
 }
\ No newline at end of file
@@ -16,4 +16,5 @@ public class UserDto implements Serializable {
     private String firstName;
     private String lastName;
     private String email;
+    private Long version;
 }
@@ -0,0 +1,166 @@
+package dev.maram.boot_network.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Fans user change events out to the open SSE connections of this node. A frame is serialized once and offered to
+// every subscriber's bounded buffer, the publisher never waits on a socket; a small shared pool drains the buffers.
+// A subscriber whose buffer is full, or whose socket write hangs, is disconnected and expected to reconnect. Only
+// the thread holding a subscriber's draining flag touches its emitter: a hung send holds the emitter's lock until
+// the socket write timeout (server.tomcat.connection-timeout) fails it, and completing it from the publisher or
+// the heartbeat would wait on that lock too.
+@Component
+@Slf4j
+public class UserEventBroadcaster {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final Counter evictions;
+
+    @Value("${application.users.events.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${application.users.events.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${application.users.events.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    public UserEventBroadcaster(
+            MeterRegistry meterRegistry,
+            @Value("${application.users.events.sender-threads:4}") int senderThreads
+    ) {
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-events-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictions = meterRegistry.counter("users.events.evictions");
+        Gauge.builder("users.events.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.info("SSE subscriber connected, {} open", subscribers.size());
+        return emitter;
+    }
+
+    public void broadcast(String json) {
+        offerToAll(SseEmitter.event().name("user-change").data(json, MediaType.APPLICATION_JSON).build());
+    }
+
+    // keeps idle connections open through proxies and finds the ones that are gone
+    @Scheduled(fixedRateString = "${application.users.events.heartbeat-interval:15s}")
+    public void heartbeat() {
+        long stuckSince = System.nanoTime() - sendTimeout.toNanos();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedAt;
+            if (started != 0 && started - stuckSince < 0) {
+                evict(subscriber, "socket write did not complete");
+            }
+        }
+        offerToAll(SseEmitter.event().comment("keep-alive").build());
+    }
+
+    private void offerToAll(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.buffer.offer(frame)) {
+                evict(subscriber, "buffer full");
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while (!subscriber.evicted && (frame = subscriber.buffer.poll()) != null) {
+                subscriber.sendStartedAt = System.nanoTime();
+                subscriber.emitter.send(frame);
+                subscriber.sendStartedAt = 0;
+            }
+            if (subscriber.evicted) {
+                subscriber.emitter.complete();
+                return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, or the emitter was completed while we were sending
+            subscribers.remove(subscriber);
+            subscriber.buffer.clear();
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // a frame offered, or an eviction, between the last poll and the flag reset would otherwise wait
+        if (!subscriber.buffer.isEmpty() || subscriber.evicted) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    // the drain completes the emitter, after the send in progress if any
+    private void evict(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber)) {
+            evictions.increment();
+            log.warn("Disconnecting slow SSE subscriber: {}", reason);
+            subscriber.evicted = true;
+            subscriber.buffer.clear();
+            scheduleDrain(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            // a subscriber still sending is closed with its connection
+            subscriber.evicted = true;
+            if (subscriber.draining.compareAndSet(false, true)) {
+                subscriber.emitter.complete();
+            }
+        }
+        subscribers.clear();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sendStartedAt;
+        private volatile boolean evicted;
+
+        private Subscriber(SseEmitter emitter, ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer) {
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.maram.boot_network.user;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+// Routes committed user changes to the SSE broadcaster. On a single node the event goes straight to the local
+// subscribers; with the Redis relay enabled it is published on a channel instead, and every node (this one included)
+// broadcasts what it receives, so subscribers see the changes made on any node.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventDispatcher {
+
+    private final UserEventBroadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+
+    @Value("${application.users.events.redis-relay:false}")
+    private boolean redisRelay;
+
+    @Value("${application.users.events.channel:users:changes}")
+    private String channel;
+
+    private StringRedisTemplate redisTemplate;
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void startRelay() {
+        if (!redisRelay) {
+            return;
+        }
+        RedisConnectionFactory factory = connectionFactory.getObject();
+        redisTemplate = new StringRedisTemplate(factory);
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(factory);
+        listenerContainer.addMessageListener(
+                (message, pattern) -> broadcaster.broadcast(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel)
+        );
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        log.info("Relaying user change events through Redis channel {}", channel);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize user change event for user ID: {}", event.userId(), e);
+            return;
+        }
+
+        if (redisRelay) {
+            redisTemplate.convertAndSend(channel, json);
+        } else {
+            broadcaster.broadcast(json);
+        }
+    }
+
+    @PreDestroy
+    public void stopRelay() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+}
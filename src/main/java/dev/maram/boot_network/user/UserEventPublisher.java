@@ -0,0 +1,36 @@
+package dev.maram.boot_network.user;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// Turns committed inserts, updates and deletes of users into UserChangedEvents
+@Component
+@RequiredArgsConstructor
+public class UserEventPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserMapper userMapper;
+
+    @PostPersist
+    public void created(User user) {
+        publish(new UserChangedEvent(UserChangedEvent.Type.CREATED, user.getId(), userMapper.toDto(user)));
+    }
+
+    @PostUpdate
+    public void updated(User user) {
+        publish(new UserChangedEvent(UserChangedEvent.Type.UPDATED, user.getId(), userMapper.toDto(user)));
+    }
+
+    @PostRemove
+    public void deleted(User user) {
+        publish(new UserChangedEvent(UserChangedEvent.Type.DELETED, user.getId(), null));
+    }
+
+    private void publish(UserChangedEvent event) {
+        AfterCommit.run(() -> eventPublisher.publishEvent(event));
+    }
+}
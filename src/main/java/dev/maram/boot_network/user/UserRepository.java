@@ -1,10 +1,49 @@
 package dev.maram.boot_network.user;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
 
     Optional<User> findByEmail(String email);
+
+    @Query("select u.id from User u where u.email = :email")
+    Optional<Integer> findIdByEmail(String email);
+
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(Integer id);
+
+    @Query("select u.id as id, u.version as version from User u order by u.id")
+    List<UserVersion> findAllVersions();
+
+    // keyset pagination on (lastModifiedDate, id), served by idx_user_last_modified_id
+    @Query("""
+            select u.id as id, u.firstName as firstName, u.lastName as lastName, u.email as email,
+                   u.version as version, u.lastModifiedDate as lastModifiedDate
+            from User u
+            where u.lastModifiedDate < :until
+              and (u.lastModifiedDate > :since or (u.lastModifiedDate = :since and u.id > :afterId))
+            order by u.lastModifiedDate, u.id
+            """)
+    List<UserChangeRow> findChangedSince(LocalDateTime since, Integer afterId, LocalDateTime until, Limit limit);
+
+    // keyset pagination on the primary key, read straight into the search index entries without managed entities
+    @Query("""
+            select new dev.maram.boot_network.user.UserSearchHit(u.id, u.firstName, u.lastName, u.email)
+            from User u
+            where u.id > :afterId
+            order by u.id
+            """)
+    List<UserSearchHit> findSearchHitsAfter(Integer afterId, Limit limit);
+
+    // rows written before lastModifiedDate was set on insert
+    @Modifying
+    @Query("update User u set u.lastModifiedDate = u.createdDate where u.lastModifiedDate is null")
+    int backfillLastModifiedDate();
 }
@@ -0,0 +1,20 @@
+package dev.maram.boot_network.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "userSearch" in the readiness group: a replica whose index is still being built would find no users
+@Component
+@RequiredArgsConstructor
+public class UserSearchHealthIndicator implements HealthIndicator {
+
+    private final UserSearchIndex userSearchIndex;
+
+    @Override
+    public Health health() {
+        Health.Builder health = userSearchIndex.isBuilt() ? Health.up() : Health.outOfService();
+        return health.withDetail("users", userSearchIndex.size()).build();
+    }
+}
@@ -0,0 +1,4 @@
+package dev.maram.boot_network.user;
+
+public record UserSearchHit(int id, String firstName, String lastName, String email) {
+}
@@ -0,0 +1,135 @@
+package dev.maram.boot_network.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// In-memory search index of the users over their names and email. Built in the background once the application is
+// ready by paging through the table, and rebuilt from it every night to pick up writes this node did not see. In
+// between, the committed user changes are applied to the snapshot and folded into its segment once there are enough
+// of them. Searches read the current immutable snapshot and never wait for a writer.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSearchIndex {
+
+    private final UserRepository userRepository;
+
+    @Value("${application.users.search.page-size:1000}")
+    private int pageSize;
+
+    @Value("${application.users.search.retry-interval:10s}")
+    private Duration retryInterval;
+
+    @Value("${application.users.search.compact-threshold:1000}")
+    private int compactThreshold;
+
+    @Value("${application.users.search.max-candidates:20000}")
+    private int maxCandidates;
+
+    private volatile UserSearchSnapshot snapshot = UserSearchSnapshot.EMPTY;
+    private volatile boolean built;
+
+    // one segment build at a time, a compaction never replaces a fresher rebuild
+    private final Object buildLock = new Object();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() throws InterruptedException {
+        while (true) {
+            try {
+                rebuild();
+                built = true;
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Building the user search index failed, retrying in {}s", retryInterval.toSeconds(), e);
+                Thread.sleep(retryInterval.toMillis());
+            }
+        }
+    }
+
+    @Scheduled(cron = "${application.users.search.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        if (built) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        synchronized (buildLock) {
+            long start = System.nanoTime();
+            // changes committed while the table is read stay on top of the new segment
+            UserSearchSnapshot from = snapshot;
+            UserSearchSegment segment = UserSearchSegment.build(readAll());
+            publish(from, segment);
+            log.info("Indexed {} users for search in {} ms, about {} KB", segment.size(),
+                    (System.nanoTime() - start) / 1_000_000, segment.bytes() / 1024);
+        }
+    }
+
+    private List<UserSearchHit> readAll() {
+        List<UserSearchHit> users = new ArrayList<>();
+        int afterId = Integer.MIN_VALUE;
+        List<UserSearchHit> page;
+        do {
+            page = userRepository.findSearchHitsAfter(afterId, Limit.of(pageSize));
+            users.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == pageSize);
+        return users;
+    }
+
+    @Scheduled(fixedDelayString = "${application.users.search.compact-interval:10s}")
+    public void compact() {
+        if (snapshot.changeCount() < compactThreshold) {
+            return;
+        }
+        synchronized (buildLock) {
+            UserSearchSnapshot from = snapshot;
+            publish(from, from.compact());
+        }
+    }
+
+    private synchronized void publish(UserSearchSnapshot from, UserSearchSegment segment) {
+        snapshot = snapshot.rebase(from, segment);
+    }
+
+    @EventListener
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        UserDto user = event.user();
+        snapshot = snapshot.with(event.userId(), event.type() == UserChangedEvent.Type.DELETED ? null
+                : new UserSearchHit(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail()));
+    }
+
+    public List<UserSearchHit> search(String query, int limit) {
+        return snapshot.search(query, limit, maxCandidates);
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public int changeCount() {
+        return snapshot.changeCount();
+    }
+
+    public long bytes() {
+        return snapshot.bytes();
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+}
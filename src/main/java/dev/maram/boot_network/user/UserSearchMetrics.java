@@ -0,0 +1,28 @@
+package dev.maram.boot_network.user;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Gauges of the user search index, kept out of it: a bean implementing MeterBinder would get its @Async build
+// proxied through that interface
+@Component
+@RequiredArgsConstructor
+public class UserSearchMetrics implements MeterBinder {
+
+    private final UserSearchIndex userSearchIndex;
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("users.search.index.bytes", userSearchIndex, UserSearchIndex::bytes)
+                .description("Estimated heap held by the user search index")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("users.search.index.changes", userSearchIndex, UserSearchIndex::changeCount)
+                .description("Users changed since the index segment was built")
+                .register(registry);
+    }
+}
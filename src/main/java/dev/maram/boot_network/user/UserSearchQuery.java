@@ -0,0 +1,134 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.search.SearchTerms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A user search as the index runs it: every word of the query must match a word of the first name, last name or
+// email, exactly, as a prefix for the word being typed, or within a few typos
+final class UserSearchQuery {
+
+    static final int EXACT = 3;
+    static final int PREFIX = 2;
+    static final int FUZZY = 1;
+
+    private final List<Term> terms;
+
+    private UserSearchQuery(List<Term> terms) {
+        this.terms = terms;
+    }
+
+    static UserSearchQuery parse(String query) {
+        List<String> words = SearchTerms.of(query);
+        List<Term> terms = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            boolean prefix = i == words.size() - 1 && SearchTerms.endsInTerm(query);
+            terms.add(new Term(word, prefix, maxEdits(word), UserSearchSegment.grams(word, prefix)));
+        }
+        return new UserSearchQuery(terms);
+    }
+
+    // no typo allowed in short words, they would match half of the users
+    private static int maxEdits(String word) {
+        return word.length() <= 3 ? 0 : word.length() <= 6 ? 1 : 2;
+    }
+
+    List<Term> terms() {
+        return terms;
+    }
+
+    boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    // 0 unless every term matches one of the words of the user, the better the matches the higher
+    int score(UserSearchHit user) {
+        List<String> words = new ArrayList<>(SearchTerms.of(user.firstName()));
+        words.addAll(SearchTerms.of(user.lastName()));
+        words.addAll(SearchTerms.of(user.email()));
+        int score = 0;
+        for (Term term : terms) {
+            int best = 0;
+            for (String word : words) {
+                best = Math.max(best, term.match(word));
+                if (best == EXACT) {
+                    break;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    /**
+     * A word of the query and its distinct trigrams. A word within {@code maxEdits} typos of it shares at least
+     * {@code grams.length - 4 * maxEdits} of them: a wrong, missing or extra letter changes at most three trigrams, a
+     * swap of two letters the four covering either of them.
+     */
+    record Term(String text, boolean prefix, int maxEdits, long[] grams) {
+
+        int requiredGrams() {
+            return Math.max(1, grams.length - 4 * maxEdits);
+        }
+
+        int match(String word) {
+            if (word.equals(text)) {
+                return EXACT;
+            }
+            if (prefix && word.startsWith(text)) {
+                return PREFIX;
+            }
+            if (maxEdits == 0 || !prefix && Math.abs(word.length() - text.length()) > maxEdits) {
+                return 0;
+            }
+            return distance(text, word, prefix, maxEdits) <= maxEdits ? FUZZY : 0;
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (a swap of two adjacent letters is one typo) from {@code a} to {@code b}, or to
+     * the closest prefix of {@code b} when {@code prefix}. Stops early once every alignment is beyond {@code max}.
+     */
+    static int distance(String a, String b, boolean prefix, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i;
+        }
+        int best = prefix ? previous[n] : Integer.MAX_VALUE;
+        for (int j = 1; j <= m; j++) {
+            current[0] = j;
+            int rowMin = current[0];
+            char bj = b.charAt(j - 1);
+            for (int i = 1; i <= n; i++) {
+                char ai = a.charAt(i - 1);
+                int cost = ai == bj ? 0 : 1;
+                int value = Math.min(Math.min(previous[i] + 1, current[i - 1] + 1), previous[i - 1] + cost);
+                if (i > 1 && j > 1 && ai == b.charAt(j - 2) && a.charAt(i - 2) == bj) {
+                    value = Math.min(value, previous2[i - 2] + 1);
+                }
+                current[i] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (prefix) {
+                best = Math.min(best, current[n]);
+            }
+            if (rowMin > max) {
+                return prefix ? best : rowMin;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return prefix ? best : previous[n];
+    }
+}
@@ -0,0 +1,273 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.search.SearchTerms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The bulk of the user search index, immutable: the users sorted by id, addressed by their position (document), and
+ * a trigram index over the words of their names and email. Each word is padded with two markers in front and one
+ * behind, so that the trigrams of a prefix are those of every word it starts. The postings of a trigram are the
+ * documents containing it, delta-encoded as variable-length integers in one shared byte array: about a byte per
+ * posting, a few dozen bytes per user on top of the strings themselves.
+ */
+final class UserSearchSegment {
+
+    static final UserSearchSegment EMPTY = build(List.of());
+
+    private static final char PAD = 0; // not a letter or digit, never part of a word
+
+    private final int[] ids;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final String[] emails;
+
+    // sorted trigrams, with for each one where its postings start in the byte array and how many documents it has
+    private final long[] grams;
+    private final int[] offsets;
+    private final int[] counts;
+    private final byte[] postings;
+    private final long bytes;
+
+    private UserSearchSegment(int[] ids, String[] firstNames, String[] lastNames, String[] emails,
+                              long[] grams, int[] offsets, int[] counts, byte[] postings) {
+        this.ids = ids;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.emails = emails;
+        this.grams = grams;
+        this.offsets = offsets;
+        this.counts = counts;
+        this.postings = postings;
+        // an estimate: the strings at a byte a character plus their headers, the arrays at their length
+        long estimate = postings.length + grams.length * 16L + ids.length * 16L;
+        for (int document = 0; document < ids.length; document++) {
+            estimate += stringBytes(firstNames[document]) + stringBytes(lastNames[document]) + stringBytes(emails[document]);
+        }
+        this.bytes = estimate;
+    }
+
+    // users sorted by id
+    static UserSearchSegment build(List<UserSearchHit> users) {
+        int size = users.size();
+        int[] ids = new int[size];
+        String[] firstNames = new String[size];
+        String[] lastNames = new String[size];
+        String[] emails = new String[size];
+        long[][] documentGrams = new long[size][];
+        Map<Long, int[]> counts = new HashMap<>();
+        for (int document = 0; document < size; document++) {
+            UserSearchHit user = users.get(document);
+            ids[document] = user.id();
+            firstNames[document] = user.firstName();
+            lastNames[document] = user.lastName();
+            emails[document] = user.email();
+            documentGrams[document] = grams(user);
+            for (long gram : documentGrams[document]) {
+                counts.computeIfAbsent(gram, key -> new int[1])[0]++;
+            }
+        }
+
+        long[] grams = counts.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] gramCounts = new int[grams.length];
+        int[][] gramDocuments = new int[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            gramCounts[i] = counts.get(grams[i])[0];
+            gramDocuments[i] = new int[gramCounts[i]];
+        }
+        int[] filled = new int[grams.length];
+        for (int document = 0; document < size; document++) {
+            for (long gram : documentGrams[document]) {
+                int index = Arrays.binarySearch(grams, gram);
+                gramDocuments[index][filled[index]++] = document;
+            }
+            documentGrams[document] = null;
+        }
+
+        int[] offsets = new int[grams.length + 1];
+        VarIntWriter writer = new VarIntWriter(size * 16);
+        for (int i = 0; i < grams.length; i++) {
+            offsets[i] = writer.size();
+            int previous = -1;
+            for (int document : gramDocuments[i]) {
+                writer.write(document - previous);
+                previous = document;
+            }
+            gramDocuments[i] = null;
+        }
+        offsets[grams.length] = writer.size();
+        return new UserSearchSegment(ids, firstNames, lastNames, emails, grams, offsets, gramCounts, writer.toArray());
+    }
+
+    /**
+     * The documents that may match a term: by the pigeonhole principle a word sharing {@code required} of the
+     * {@code n} trigrams of the term contains one of its {@code n - required + 1} rarest ones. Sorted, distinct.
+     */
+    int[] candidates(UserSearchQuery.Term term) {
+        long[] termGrams = term.grams();
+        int[] indexes = new int[termGrams.length];
+        for (int i = 0; i < termGrams.length; i++) {
+            indexes[i] = Arrays.binarySearch(grams, termGrams[i]);
+        }
+        // absent trigrams first, then by ascending number of documents
+        Integer[] order = new Integer[indexes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(count(indexes[a]), count(indexes[b])));
+
+        int lists = termGrams.length - term.requiredGrams() + 1;
+        int total = 0;
+        for (int i = 0; i < lists; i++) {
+            total += count(indexes[order[i]]);
+        }
+        int[] documents = new int[total];
+        int filled = 0;
+        for (int i = 0; i < lists; i++) {
+            int index = indexes[order[i]];
+            if (index < 0) {
+                continue;
+            }
+            int position = offsets[index];
+            int document = -1;
+            while (position < offsets[index + 1]) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = postings[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                document += delta;
+                documents[filled++] = document;
+            }
+        }
+        if (lists > 1) {
+            Arrays.sort(documents);
+            int distinct = 0;
+            for (int i = 0; i < documents.length; i++) {
+                if (i == 0 || documents[i] != documents[i - 1]) {
+                    documents[distinct++] = documents[i];
+                }
+            }
+            documents = Arrays.copyOf(documents, distinct);
+        }
+        return documents;
+    }
+
+    // upper bound of the candidates of a term, to start with the most selective one
+    int estimate(UserSearchQuery.Term term) {
+        long[] termGrams = term.grams();
+        int[] termCounts = new int[termGrams.length];
+        for (int i = 0; i < termGrams.length; i++) {
+            termCounts[i] = count(Arrays.binarySearch(grams, termGrams[i]));
+        }
+        Arrays.sort(termCounts);
+        int estimate = 0;
+        for (int i = 0; i < termGrams.length - term.requiredGrams() + 1; i++) {
+            estimate += termCounts[i];
+        }
+        return estimate;
+    }
+
+    private int count(int index) {
+        return index < 0 ? 0 : counts[index];
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    boolean contains(int userId) {
+        return Arrays.binarySearch(ids, userId) >= 0;
+    }
+
+    int id(int document) {
+        return ids[document];
+    }
+
+    UserSearchHit user(int document) {
+        return new UserSearchHit(ids[document], firstNames[document], lastNames[document], emails[document]);
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private static long[] grams(UserSearchHit user) {
+        long[] all = new long[0];
+        for (String field : new String[]{user.firstName(), user.lastName(), user.email()}) {
+            for (String word : SearchTerms.of(field)) {
+                long[] wordGrams = grams(word, false);
+                int length = all.length;
+                all = Arrays.copyOf(all, length + wordGrams.length);
+                System.arraycopy(wordGrams, 0, all, length, wordGrams.length);
+            }
+        }
+        return distinct(all);
+    }
+
+    // the distinct trigrams of a padded word, the end marker left out for a prefix
+    static long[] grams(String word, boolean prefix) {
+        int length = word.length() + (prefix ? 2 : 3);
+        char[] padded = new char[length];
+        padded[0] = PAD;
+        padded[1] = PAD;
+        word.getChars(0, word.length(), padded, 2);
+        if (!prefix) {
+            padded[length - 1] = PAD;
+        }
+        long[] grams = new long[length - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) padded[i] << 32 | (long) padded[i + 1] << 16 | padded[i + 2];
+        }
+        return distinct(grams);
+    }
+
+    private static long[] distinct(long[] grams) {
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    private static final class VarIntWriter {
+        private byte[] bytes;
+        private int size;
+
+        VarIntWriter(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void write(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package dev.maram.boot_network.user;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// What a search sees: a segment plus the users changed since it was built, which win over it. Immutable, a change
+// produces a new snapshot copying the (small) change map; once it grows the changes are folded into a new segment.
+final class UserSearchSnapshot {
+
+    static final UserSearchSnapshot EMPTY = new UserSearchSnapshot(UserSearchSegment.EMPTY, Map.of());
+
+    private static final UserSearchHit DELETED = new UserSearchHit(0, null, null, null);
+    private static final Comparator<Match> BEST_FIRST =
+            Comparator.comparingInt(Match::score).reversed().thenComparingInt(match -> match.user().id());
+
+    private final UserSearchSegment segment;
+    private final Map<Integer, UserSearchHit> changes;
+
+    private UserSearchSnapshot(UserSearchSegment segment, Map<Integer, UserSearchHit> changes) {
+        this.segment = segment;
+        this.changes = changes;
+    }
+
+    // user is null for a deletion
+    UserSearchSnapshot with(int userId, UserSearchHit user) {
+        Map<Integer, UserSearchHit> changed = new HashMap<>(changes);
+        changed.put(userId, user == null ? DELETED : user);
+        return new UserSearchSnapshot(segment, Collections.unmodifiableMap(changed));
+    }
+
+    /**
+     * This snapshot on top of a segment built from {@code from}, or from the database after {@code from} was taken:
+     * only the changes made since are kept.
+     */
+    UserSearchSnapshot rebase(UserSearchSnapshot from, UserSearchSegment rebuilt) {
+        Map<Integer, UserSearchHit> newer = new HashMap<>();
+        changes.forEach((userId, user) -> {
+            if (from.changes.get(userId) != user) {
+                newer.put(userId, user);
+            }
+        });
+        return new UserSearchSnapshot(rebuilt, Collections.unmodifiableMap(newer));
+    }
+
+    // a segment of every user of this snapshot
+    UserSearchSegment compact() {
+        List<UserSearchHit> users = new ArrayList<>(segment.size() + changes.size());
+        for (int document = 0; document < segment.size(); document++) {
+            if (!changes.containsKey(segment.id(document))) {
+                users.add(segment.user(document));
+            }
+        }
+        changes.values().stream().filter(user -> user != DELETED).forEach(users::add);
+        users.sort(Comparator.comparingInt(UserSearchHit::id));
+        return UserSearchSegment.build(users);
+    }
+
+    /**
+     * The users matching the query, best matches first. The segment is searched through the most selective word of the
+     * query, at most {@code maxCandidates} of its candidates are looked at: a query of one or two common letters is not
+     * worth scanning every user for.
+     */
+    List<UserSearchHit> search(String query, int limit, int maxCandidates) {
+        UserSearchQuery parsed = UserSearchQuery.parse(query);
+        if (parsed.isEmpty()) {
+            return List.of();
+        }
+        UserSearchQuery.Term selective = parsed.terms().get(0);
+        int fewest = Integer.MAX_VALUE;
+        for (UserSearchQuery.Term term : parsed.terms()) {
+            int estimate = segment.estimate(term);
+            if (estimate < fewest) {
+                fewest = estimate;
+                selective = term;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        int[] candidates = segment.candidates(selective);
+        for (int i = 0; i < candidates.length && i < maxCandidates; i++) {
+            int document = candidates[i];
+            if (changes.containsKey(segment.id(document))) {
+                continue;
+            }
+            UserSearchHit user = segment.user(document);
+            int score = parsed.score(user);
+            if (score > 0) {
+                matches.add(new Match(user, score));
+            }
+        }
+        for (UserSearchHit user : changes.values()) {
+            int score = user == DELETED ? 0 : parsed.score(user);
+            if (score > 0) {
+                matches.add(new Match(user, score));
+            }
+        }
+
+        matches.sort(BEST_FIRST);
+        List<UserSearchHit> hits = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && hits.size() < limit; i++) {
+            hits.add(matches.get(i).user());
+        }
+        return hits;
+    }
+
+    int size() {
+        int size = segment.size();
+        for (Map.Entry<Integer, UserSearchHit> change : changes.entrySet()) {
+            // changes of users in the segment replace them, new users add to it
+            boolean inSegment = segment.contains(change.getKey());
+            size += (change.getValue() == DELETED ? 0 : 1) - (inSegment ? 1 : 0);
+        }
+        return size;
+    }
+
+    int changeCount() {
+        return changes.size();
+    }
+
+    long bytes() {
+        return segment.bytes() + changes.size() * 200L;
+    }
+
+    private record Match(UserSearchHit user, int score) {
+    }
+}
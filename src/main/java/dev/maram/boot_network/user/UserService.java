@@ -1,16 +1,23 @@
 package dev.maram.boot_network.user;
 
+import dev.maram.boot_network.exception.InvalidRequestException;
 import dev.maram.boot_network.exception.UserAlreadyExistsException;
 import dev.maram.boot_network.exception.UserNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +26,15 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final UserBatchCache userBatchCache;
+    private final UserChangeService userChangeService;
+    private final UserSearchIndex userSearchIndex;
+
+    @Value("${application.users.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${application.users.search.max-limit:50}")
+    private int maxSearchLimit;
 
     @Cacheable(cacheNames = "users", key = "#userId")
     public UserDto getUserById(Integer userId) {
@@ -27,7 +43,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> {
                     log.error("User not found with ID: {}", userId);
-                    return new UserNotFoundException("Cannot find user with id " + userId);
+                    return new UserNotFoundException();
                 });
 
         UserDto userDto = userMapper.toDto(user);
@@ -48,7 +64,7 @@ public class UserService {
         User existingUser = userRepository.findById(userDto.getId())
                 .orElseThrow(() -> {
                     log.error("Cannot update user - user not found with ID: {}", userDto.getId());
-                    return new UserNotFoundException("Cannot find user with id " + userDto.getId());
+                    return new UserNotFoundException();
                 });
 
         // Store old email for cache eviction
@@ -72,6 +88,7 @@ public class UserService {
     }
 
     @CacheEvict(cacheNames = "users", allEntries = true)
+    @Transactional // the tombstone is written together with the delete
     public void deleteUser(Integer userId) {
         log.info("Deleting user with ID: {}", userId);
 
@@ -79,10 +96,11 @@ public class UserService {
         User userToDelete = userRepository.findById(userId)
                 .orElseThrow(() -> {
                     log.error("Cannot delete user - user not found with ID: {}", userId);
-                    return new UserNotFoundException("Cannot find user with id " + userId);
+                    return new UserNotFoundException();
                 });
 
         userRepository.deleteById(userId);
+        userChangeService.recordDeletion(userId);
         log.info("User deleted successfully: {}", userId);
     }
 
@@ -114,6 +132,76 @@ public class UserService {
         return userDtos;
     }
 
+    // one cache round trip for the whole batch, one "where id in (...)" query for the misses, one pipelined back-fill
+    public UserBatchResponse getUsersByIds(List<Integer> userIds) {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(userIds.stream().filter(Objects::nonNull).toList()));
+        if (ids.isEmpty() || ids.size() > maxBatchSize) {
+            throw new InvalidRequestException("Between 1 and " + maxBatchSize + " distinct user ids are expected");
+        }
+        log.info("Fetching batch of {} users", ids.size());
+
+        Map<Integer, UserDto> found = userBatchCache.getAll(ids);
+        List<Integer> misses = ids.stream().filter(id -> !found.containsKey(id)).toList();
+
+        if (!misses.isEmpty()) {
+            List<UserDto> loaded = userMapper.toDtoList(userRepository.findAllById(misses));
+            loaded.forEach(user -> found.put(user.getId(), user));
+            userBatchCache.putAll(loaded);
+            log.info("Loaded {} of {} cache misses from the database", loaded.size(), misses.size());
+        }
+
+        List<UserDto> users = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            UserDto user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        return UserBatchResponse.builder()
+                .users(users)
+                .missingIds(missingIds)
+                .build();
+    }
+
+    // served by the in-memory index, the database is not involved
+    public List<UserSearchHit> searchUsers(String query, int limit) {
+        if (limit < 1 || limit > maxSearchLimit) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxSearchLimit);
+        }
+        return userSearchIndex.search(query, limit);
+    }
+
+    // versions are cached next to the DTOs so a conditional GET can be answered without touching the DTO itself
+    @Cacheable(cacheNames = "userVersions", key = "#userId")
+    public Long getUserVersion(Integer userId) {
+        log.info("Fetching version of user ID: {} (cache miss)", userId);
+
+        return userRepository.findVersionById(userId)
+                .orElseThrow(() -> {
+                    log.error("User not found with ID: {}", userId);
+                    return new UserNotFoundException();
+                });
+    }
+
+    // a single value that changes whenever a user is created, updated or deleted
+    @Cacheable(cacheNames = "userVersions", key = "'ALL'")
+    public String getAllUsersVersion() {
+        log.info("Computing users collection version (cache miss)");
+
+        long hash = 1125899906842597L;
+        int count = 0;
+        for (UserVersion userVersion : userRepository.findAllVersions()) {
+            hash = 31 * hash + userVersion.getId();
+            hash = 31 * hash + userVersion.getVersion();
+            count++;
+        }
+        return count + "-" + Long.toHexString(hash);
+    }
+
     @Cacheable(cacheNames = "users", key = "'email:' + #email")
     public UserDto getUserByEmail(String email) {
         log.info("Fetching user by email: {} (cache miss)", email);
@@ -121,7 +209,7 @@ public class UserService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> {
                     log.error("User not found with email: {}", email);
-                    return new UserNotFoundException("Cannot find user with email " + email);
+                    return new UserNotFoundException();
                 });
 
         UserDto userDto = userMapper.toDto(user);
@@ -0,0 +1,34 @@
+package dev.maram.boot_network.user;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+// Marker left behind by a deleted user so /users/changes consumers learn about the deletion
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "user_tombstone",
+        indexes = @Index(name = "idx_user_tombstone_deleted_user", columnList = "deletedDate, userId")
+)
+@EntityListeners(AuditingEntityListener.class)
+public class UserTombstone {
+
+    @Id
+    @GeneratedValue
+    private Integer id;
+
+    @Column(nullable = false)
+    private Integer userId;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime deletedDate;
+}
@@ -0,0 +1,25 @@
+package dev.maram.boot_network.user;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, Integer> {
+
+    // keyset pagination on (deletedDate, userId), served by idx_user_tombstone_deleted_user
+    @Query("""
+            select t from UserTombstone t
+            where t.deletedDate < :until
+              and (t.deletedDate > :since or (t.deletedDate = :since and t.userId > :afterUserId))
+            order by t.deletedDate, t.userId
+            """)
+    List<UserTombstone> findDeletedSince(LocalDateTime since, Integer afterUserId, LocalDateTime until, Limit limit);
+
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedDate < :before")
+    int deleteOlderThan(LocalDateTime before);
+}
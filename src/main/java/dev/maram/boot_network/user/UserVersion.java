@@ -0,0 +1,9 @@
+package dev.maram.boot_network.user;
+
+// projection used to compute the version of the whole user collection without loading the entities
+public interface UserVersion {
+
+    Integer getId();
+
+    Long getVersion();
+}
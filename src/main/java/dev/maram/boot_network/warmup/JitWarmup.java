@@ -0,0 +1,230 @@
+package dev.maram.boot_network.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.maram.boot_network.auth.AuthenticationResponse;
+import dev.maram.boot_network.email.EmailTemplateName;
+import dev.maram.boot_network.role.Role;
+import dev.maram.boot_network.role.RoleService;
+import dev.maram.boot_network.security.JwtService;
+import dev.maram.boot_network.user.User;
+import dev.maram.boot_network.user.UserDto;
+import dev.maram.boot_network.user.UserMapper;
+import dev.maram.boot_network.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic traffic through the request hot paths once the application has started, so that a new replica
+ * takes its first requests with compiled code and filled caches: JWT issue and verification, the password hash,
+ * the Hibernate user lookups, the Jackson user serializers and the activation email template. Nothing is written:
+ * the user is never persisted and the lookups are for ids and emails that do not exist.
+ *
+ * <p>Rounds run back to back until the JIT compilers were busy for less than {@code settled-compilation-ratio} of a
+ * {@code check-interval}, or until {@code max-duration}. The readiness probe reports out of service until then, see
+ * {@link WarmupHealthIndicator}. A step that fails, e.g. the lookups while MySQL is unreachable, is left out of the
+ * following rounds instead of holding readiness back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JitWarmup {
+
+    private static final String EMAIL = "warmup@warmup.invalid";
+    private static final String PASSWORD = "warm-up-password";
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final SpringTemplateEngine templateEngine;
+
+    // the same code as the passwordEncoder bean, without counting in its password-hash statistics
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    @Value("${application.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.warmup.max-duration:30s}")
+    private Duration maxDuration;
+
+    @Value("${application.warmup.check-interval:500ms}")
+    private Duration checkInterval;
+
+    @Value("${application.warmup.settled-compilation-ratio:0.05}")
+    private double settledCompilationRatio;
+
+    @Value("${application.warmup.round-iterations:50}")
+    private int roundIterations;
+
+    private volatile Result result;
+    private volatile long startedAt;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            result = new Result("disabled", 0, 0, 0, List.of());
+            return;
+        }
+        startedAt = System.nanoTime();
+        try {
+            result = run();
+            log.info("Warm-up finished ({}) after {} rounds in {} ms, {} ms of JIT compilation, skipped steps: {}",
+                    result.outcome(), result.rounds(), result.durationMillis(), result.compilationMillis(), result.skipped());
+        } catch (RuntimeException e) {
+            // a replica that cannot warm up still has to become ready
+            log.warn("Warm-up failed, the application is ready without it", e);
+            result = new Result("failed", 0, elapsedMillis(), 0, List.of());
+        }
+    }
+
+    private Result run() {
+        Map<String, Step> steps = steps();
+        List<String> skipped = new ArrayList<>();
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean jit = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+        long compilationAtStart = jit ? compilation.getTotalCompilationTime() : 0;
+
+        long deadline = startedAt + maxDuration.toNanos();
+        long checkStartedAt = startedAt;
+        long compilationAtCheck = compilationAtStart;
+        int rounds = 0;
+        String outcome;
+        while (true) {
+            runRound(steps, skipped);
+            rounds++;
+            long now = System.nanoTime();
+            if (!jit) {
+                // nothing to compile in a native image, one round fills the caches
+                outcome = "no JIT";
+                break;
+            }
+            if (now >= deadline) {
+                outcome = "time budget";
+                break;
+            }
+            if (now - checkStartedAt >= checkInterval.toNanos()) {
+                long compiled = compilation.getTotalCompilationTime();
+                double busy = (double) (compiled - compilationAtCheck) / TimeUnit.NANOSECONDS.toMillis(now - checkStartedAt);
+                if (busy < settledCompilationRatio) {
+                    outcome = "settled";
+                    break;
+                }
+                checkStartedAt = now;
+                compilationAtCheck = compiled;
+            }
+        }
+        long compilationMillis = jit ? compilation.getTotalCompilationTime() - compilationAtStart : 0;
+        return new Result(outcome, rounds, elapsedMillis(), compilationMillis, skipped);
+    }
+
+    private void runRound(Map<String, Step> steps, List<String> skipped) {
+        var iterator = steps.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var step = iterator.next();
+            try {
+                step.getValue().run();
+            } catch (Exception e) {
+                log.warn("Warm-up step {} failed and is skipped from now on: {}", step.getKey(), e.toString());
+                skipped.add(step.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private Map<String, Step> steps() {
+        User user = User.builder()
+                .firstName("Warm")
+                .lastName("Up")
+                .email(EMAIL)
+                .roles(List.of(Role.builder().name(RoleService.USER).build()))
+                .build();
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        Map<String, Step> steps = new LinkedHashMap<>();
+        steps.put("jwt", () -> repeat(() -> {
+            String token = jwtService.generateToken(Map.of(JwtService.FULL_NAME, user.fullName()), user);
+            if (!jwtService.isTokenValid(token, user) || !EMAIL.equals(jwtService.extractUserName(token))) {
+                throw new IllegalStateException("the warm-up token did not verify");
+            }
+        }));
+        // one login's worth per round, a single hash takes longer than everything else together
+        steps.put("password-hash", () -> passwordEncoder.matches(PASSWORD, hash));
+        steps.put("user-lookup", () -> repeat(() -> {
+            userRepository.findByEmail(EMAIL);
+            userRepository.findById(-1);
+            userRepository.findVersionById(-1);
+        }));
+        steps.put("json", () -> repeat(() -> {
+            UserDto dto = userMapper.toDto(user);
+            String json = objectMapper.writeValueAsString(List.of(dto));
+            objectMapper.readValue(objectMapper.writeValueAsString(dto), UserDto.class);
+            objectMapper.writeValueAsString(AuthenticationResponse.builder().token(json).build());
+        }));
+        steps.put("email-template", () -> {
+            Context context = new Context();
+            context.setVariable("userName", user.fullName());
+            context.setVariable("confirmationUrl", "http://localhost/activate-account");
+            context.setVariable("activation_code", "000000");
+            templateEngine.process(EmailTemplateName.ACTIVATE_ACCOUNT.getName(), context);
+        });
+        return steps;
+    }
+
+    private void repeat(Step step) throws Exception {
+        for (int i = 0; i < roundIterations; i++) {
+            step.run();
+        }
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Outcome of the warm-up, {@code null} while it has not finished.
+     */
+    public Result result() {
+        return result;
+    }
+
+    /**
+     * Whether the warm-up is still to run or running.
+     */
+    public boolean pending() {
+        return enabled && result == null;
+    }
+
+    /**
+     * Milliseconds since the warm-up started, 0 before.
+     */
+    public long runningMillis() {
+        return startedAt == 0 ? 0 : elapsedMillis();
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    public record Result(String outcome, int rounds, long durationMillis, long compilationMillis, List<String> skipped) {
+    }
+}
@@ -0,0 +1,32 @@
+package dev.maram.boot_network.warmup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "warmup" in the readiness group: out of service until JitWarmup is done, so load balancers hold traffic back
+@Component
+@RequiredArgsConstructor
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final JitWarmup warmup;
+
+    @Override
+    public Health health() {
+        if (warmup.pending()) {
+            return Health.outOfService().withDetail("runningMs", warmup.runningMillis()).build();
+        }
+        JitWarmup.Result result = warmup.result();
+        if (result == null) {
+            return Health.up().build();
+        }
+        return Health.up()
+                .withDetail("outcome", result.outcome())
+                .withDetail("rounds", result.rounds())
+                .withDetail("durationMs", result.durationMillis())
+                .withDetail("compilationMs", result.compilationMillis())
+                .withDetail("skipped", result.skipped())
+                .build();
+    }
+}
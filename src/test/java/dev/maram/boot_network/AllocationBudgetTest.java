@@ -0,0 +1,242 @@
+package dev.maram.boot_network;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.maram.boot_network.bench.AllocationProfiler;
+import dev.maram.boot_network.bench.LokiStandIn;
+import dev.maram.boot_network.bench.RedisStandIn;
+import dev.maram.boot_network.bench.SmtpStandIn;
+import dev.maram.boot_network.bench.ZipkinStandIn;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Bytes allocated per request on the hot endpoints, against the budgets in {@code allocation-budgets.properties}.
+ * The application runs with the {@code loadtest} profile and MockMvc drives the full filter chain on the test
+ * thread, so the thread's allocation counter covers the whole request: filters, security, controller, cache,
+ * Hibernate, Jackson and logging, all but the password hash. A budget overrun fails with the top allocation sites from JFR.
+ *
+ * <p>{@code -Dallocation.report=true} prints the measured values and sites of every endpoint, to set new budgets.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("loadtest")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AllocationBudgetTest {
+
+    private static final int ITERATIONS = 200;
+    private static final int HASHING_ITERATIONS = 20; // each one runs BCrypt
+    private static final int SAMPLING_FACTOR = 10;
+    private static final Pattern ACTIVATION_CODE = Pattern.compile("<span>\\s*(\\d{6})\\s*</span>");
+    private static final String EMAIL = "allocation@bench.local";
+    private static final String CREDENTIALS = "{\"email\":\"" + EMAIL + "\",\"password\":\"allocation-budget\"}";
+
+    // bytes allocated by the password encoder, left out of the budgets
+    private static final LongAdder HASHING_BYTES = new LongAdder();
+
+    private static final RedisStandIn REDIS;
+    private static final SmtpStandIn SMTP;
+    private static final ZipkinStandIn ZIPKIN;
+    private static final LokiStandIn LOKI;
+
+    static {
+        try {
+            REDIS = new RedisStandIn(0);
+            SMTP = new SmtpStandIn(0);
+            ZIPKIN = new ZipkinStandIn(0);
+            LOKI = new LokiStandIn(0, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // read by logback-spring.xml when Spring Boot reconfigures the logging
+        System.setProperty("LOKI_URL", LOKI.endpoint().toString());
+        System.setProperty("LOG_SPOOL_DIR", Path.of("target", "allocation", "spool").toString());
+    }
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.port", REDIS::port);
+        registry.add("spring.mail.port", SMTP::port);
+        registry.add("management.zipkin.tracing.endpoint", () -> ZIPKIN.endpoint().toString());
+    }
+
+    /**
+     * BCrypt allocates about 6 KB per hash once the JIT has inlined its inner loop and close to 2 MB when it has not,
+     * which depends on the order in which its methods happened to be compiled. That is not ours to budget.
+     */
+    @TestConfiguration
+    static class HashingAllocation {
+
+        @Bean
+        static BeanPostProcessor countHashingAllocation() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof PasswordEncoder encoder ? new CountingPasswordEncoder(encoder) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AllocationProfiler profiler = new AllocationProfiler();
+    private final Properties budgets = new Properties();
+    private String token;
+    private int userId;
+
+    @BeforeAll
+    void registerUser() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+
+        String registration = "{\"firstName\":\"Allocation\",\"lastName\":\"Budget\"," + CREDENTIALS.substring(1);
+        expect(202, post("/auth/register").contentType(MediaType.APPLICATION_JSON).content(registration));
+        String email = SmtpStandIn.text(SMTP.messageTo(EMAIL).get(30, TimeUnit.SECONDS));
+        Matcher code = ACTIVATION_CODE.matcher(email);
+        assertTrue(code.find(), "no activation code in " + email);
+        expect(200, get("/auth/activate-account").param("token", code.group(1)));
+
+        token = objectMapper.readTree(expect(200, authenticate())).path("token").asText();
+        JsonNode user = objectMapper.readTree(expect(200, get("/users/email/{email}", EMAIL).header("Authorization", "Bearer " + token)));
+        userId = user.path("id").asInt();
+
+        // whichever test runs first would otherwise pay for the first use of the shared filter chain
+        for (int i = 0; i < ITERATIONS; i++) {
+            expect(200, get("/users/{id}", userId).header("Authorization", "Bearer " + token));
+        }
+    }
+
+    @AfterAll
+    void stopStandIns() throws IOException {
+        REDIS.close();
+        SMTP.close();
+        ZIPKIN.close();
+        LOKI.close();
+    }
+
+    @Test
+    void authenticate_staysWithinBudget() throws Exception {
+        assertWithinBudget("auth.authenticate", authenticate(), HASHING_ITERATIONS);
+    }
+
+    @Test
+    void userById_staysWithinBudget() throws Exception {
+        assertWithinBudget("users.by-id", get("/users/{id}", userId).header("Authorization", "Bearer " + token), ITERATIONS);
+    }
+
+    @Test
+    void userList_staysWithinBudget() throws Exception {
+        assertWithinBudget("users.list", get("/users").header("Authorization", "Bearer " + token), ITERATIONS);
+    }
+
+    @Test
+    void userBatch_staysWithinBudget() throws Exception {
+        assertWithinBudget("users.batch", get("/users/batch").param("ids", String.valueOf(userId), "999999")
+                .header("Authorization", "Bearer " + token), ITERATIONS);
+    }
+
+    // what a scraper walking the ids costs: the error path should be no dearer than a hit
+    @Test
+    void unknownUser_staysWithinBudget() throws Exception {
+        assertWithinBudget("users.not-found", 404, get("/users/{id}", 999_999).header("Authorization", "Bearer " + token), ITERATIONS);
+    }
+
+    private RequestBuilder authenticate() {
+        return post("/auth/authenticate").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS);
+    }
+
+    private void assertWithinBudget(String endpoint, RequestBuilder request, int iterations) throws Exception {
+        assertWithinBudget(endpoint, 200, request, iterations);
+    }
+
+    private void assertWithinBudget(String endpoint, int status, RequestBuilder request, int iterations) throws Exception {
+        long budget = Long.parseLong(budgets.getProperty(endpoint, "0"));
+        // warm-up: lazy initialization, caches and the first compilations would otherwise count
+        for (int i = 0; i < iterations; i++) {
+            expect(status, request);
+        }
+        long hashing = HASHING_BYTES.sum();
+        long allocated = profiler.bytesPerOperation(iterations, () -> expect(status, request))
+                - (HASHING_BYTES.sum() - hashing) / iterations;
+
+        boolean report = Boolean.getBoolean("allocation.report");
+        if (allocated <= budget && !report) {
+            return;
+        }
+        List<AllocationProfiler.Site> sites = profiler.sites(iterations * SAMPLING_FACTOR, () -> expect(status, request));
+        String description = String.format("%s: %,d bytes per request (budget %,d), top allocation sites:%n%s",
+                endpoint, allocated, budget, AllocationProfiler.describe(sites, 15));
+        if (report) {
+            System.out.println(description);
+        }
+        assertTrue(budget > 0, "no budget for " + endpoint + " in allocation-budgets.properties\n" + description);
+        assertTrue(allocated <= budget, description);
+    }
+
+    private record CountingPasswordEncoder(PasswordEncoder delegate) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            long before = AllocationProfiler.allocatedBytes();
+            try {
+                return delegate.encode(rawPassword);
+            } finally {
+                HASHING_BYTES.add(AllocationProfiler.allocatedBytes() - before);
+            }
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            long before = AllocationProfiler.allocatedBytes();
+            try {
+                return delegate.matches(rawPassword, encodedPassword);
+            } finally {
+                HASHING_BYTES.add(AllocationProfiler.allocatedBytes() - before);
+            }
+        }
+    }
+
+    private String expect(int status, RequestBuilder request) throws Exception {
+        var response = mockMvc.perform(request).andReturn().getResponse();
+        String body = response.getContentAsString();
+        assertEquals(status, response.getStatus(), body);
+        return body;
+    }
+}
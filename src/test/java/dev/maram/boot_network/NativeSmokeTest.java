@@ -0,0 +1,252 @@
+package dev.maram.boot_network;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.maram.boot_network.bench.LokiStandIn;
+import dev.maram.boot_network.bench.RedisStandIn;
+import dev.maram.boot_network.bench.SmtpStandIn;
+import dev.maram.boot_network.bench.ZipkinStandIn;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Smoke tests against a built binary of the application, started as its own process: the executable of the
+ * {@code native} profile, or a jar to compare with. Redis, SMTP, Zipkin and Loki are the in-process stand-ins, the
+ * database is whatever the profiles in {@code smoke.args} point at. The tests go through what depends on reachability
+ * metadata (see {@code NativeHints}): the Thymeleaf activation email, JWT issue and verification, JDK-serialized
+ * cache values, error bodies, the SSE change feed and the Loki appender. Skipped unless {@code smoke.command} is set:
+ *
+ * <pre>
+ * mvn test -Dtest=NativeSmokeTest -Dsmoke.command=target/boot-network -Dsmoke.args=--spring.profiles.active=prod,fast-startup
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "smoke.command", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class NativeSmokeTest {
+
+    private static final Pattern ACTIVATION_CODE = Pattern.compile("<span>\\s*(\\d{6})\\s*</span>");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final String email = "smoke-" + Long.toString(System.currentTimeMillis(), 36) + "@smoke.local";
+    private final String credentials = "{\"email\":\"" + email + "\",\"password\":\"smoke-test-password\"}";
+
+    private RedisStandIn redis;
+    private SmtpStandIn smtp;
+    private ZipkinStandIn zipkin;
+    private LokiStandIn loki;
+    private Process application;
+    private String baseUrl;
+    private String token;
+    private int userId;
+
+    @BeforeAll
+    void startApplication() throws Exception {
+        redis = new RedisStandIn(0);
+        smtp = new SmtpStandIn(0);
+        zipkin = new ZipkinStandIn(0);
+        loki = new LokiStandIn(0, true);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://localhost:" + port + "/api/v1";
+
+        List<String> command = new ArrayList<>(split(System.getProperty("smoke.command")));
+        command.addAll(split(System.getProperty("smoke.args", "")));
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.data.redis.port=" + redis.port(),
+                "--spring.mail.port=" + smtp.port(),
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--management.zipkin.tracing.endpoint=" + zipkin.endpoint()));
+        Path directory = Files.createDirectories(Path.of("target", "smoke"));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("application.log").toFile());
+        builder.environment().put("LOKI_URL", loki.endpoint().toString());
+        builder.environment().put("LOG_SPOOL_DIR", "spool");
+        application = builder.start();
+
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (status(get("/auth/activate-account?token=000000")) == 0) {
+            assertTrue(application.isAlive(), "the application exited, see target/smoke/application.log");
+            assertTrue(System.nanoTime() < deadline, "the application did not start, see target/smoke/application.log");
+            Thread.sleep(100);
+        }
+    }
+
+    @AfterAll
+    void stopApplication() throws Exception {
+        if (application != null) {
+            application.destroy();
+            if (!application.waitFor(30, TimeUnit.SECONDS)) {
+                application.destroyForcibly();
+            }
+        }
+        for (AutoCloseable standIn : new AutoCloseable[]{redis, smtp, zipkin, loki}) {
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+
+    @Test
+    @Order(1)
+    void registration_activation_and_authentication() throws Exception {
+        String registration = "{\"firstName\":\"Smoke\",\"lastName\":\"Test\"," + credentials.substring(1);
+        assertEquals(202, send(post("/auth/register", registration)).statusCode());
+
+        String mail = SmtpStandIn.text(smtp.messageTo(email).get(30, TimeUnit.SECONDS));
+        Matcher code = ACTIVATION_CODE.matcher(mail);
+        assertTrue(code.find(), "no activation code in the rendered template: " + mail);
+        assertEquals(200, send(get("/auth/activate-account?token=" + code.group(1))).statusCode());
+
+        HttpResponse<String> authenticated = send(post("/auth/authenticate", credentials));
+        assertEquals(200, authenticated.statusCode(), authenticated.body());
+        token = objectMapper.readTree(authenticated.body()).path("token").asText();
+        assertFalse(token.isEmpty());
+
+        HttpResponse<String> user = send(authorized(get("/users/email/" + email)));
+        assertEquals(200, user.statusCode(), user.body());
+        userId = objectMapper.readTree(user.body()).path("id").asInt();
+    }
+
+    @Test
+    @Order(2)
+    void userReads_roundTripThroughTheCache() throws Exception {
+        HttpResponse<String> loaded = send(authorized(get("/users/" + userId)));
+        assertEquals(200, loaded.statusCode(), loaded.body());
+        assertTrue(redis.size() > 0, "nothing was written to the cache");
+
+        HttpResponse<String> cached = send(authorized(get("/users/" + userId)));
+        assertEquals(200, cached.statusCode(), cached.body());
+        assertEquals(objectMapper.readTree(loaded.body()), objectMapper.readTree(cached.body()));
+
+        HttpResponse<String> batch = send(authorized(get("/users/batch?ids=" + userId + "&ids=999999999")));
+        assertEquals(200, batch.statusCode(), batch.body());
+        assertEquals(999999999, objectMapper.readTree(batch.body()).path("missingIds").path(0).asInt());
+    }
+
+    @Test
+    @Order(3)
+    void unknownUser_getsTheErrorBody() throws Exception {
+        HttpResponse<String> response = send(authorized(get("/users/999999999")));
+        assertEquals(404, response.statusCode());
+        assertFalse(objectMapper.readTree(response.body()).path("error").asText().isEmpty(), response.body());
+    }
+
+    @Test
+    @Order(4)
+    void invalidToken_isRejected() throws Exception {
+        // in the middle of the signature, a trailing character may only carry padding bits
+        int position = token.length() - 10;
+        String forged = token.substring(0, position) + (token.charAt(position) == 'A' ? 'B' : 'A') + token.substring(position + 1);
+        HttpResponse<String> response = send(get("/users/" + userId).header("Authorization", "Bearer " + forged).build());
+        assertTrue(response.statusCode() >= 400, "a forged token was accepted");
+    }
+
+    @Test
+    @Order(5)
+    void userUpdate_isStreamedToSubscribers() throws Exception {
+        CompletableFuture<String> event = new CompletableFuture<>();
+        HttpRequest stream = authorized(get("/users/stream").header("Accept", "text/event-stream").timeout(Duration.ofSeconds(30)));
+        CompletableFuture<HttpResponse<Stream<String>>> subscription = client.sendAsync(stream, HttpResponse.BodyHandlers.ofLines());
+        subscription.thenAccept(response -> response.body()
+                .filter(line -> line.startsWith("data:") && line.contains("Renamed"))
+                .findFirst()
+                .ifPresent(event::complete));
+        Thread.sleep(500); // until the subscription is registered
+
+        ObjectNode user = (ObjectNode) objectMapper.readTree(send(authorized(get("/users/" + userId))).body());
+        user.put("firstName", "Renamed");
+        HttpResponse<String> updated = send(authorized(HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + userId))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(user.toString()))));
+        assertEquals(200, updated.statusCode(), updated.body());
+
+        JsonNode change = objectMapper.readTree(event.get(15, TimeUnit.SECONDS).substring("data:".length()));
+        assertEquals("UPDATED", change.path("type").asText());
+        assertEquals(userId, change.path("userId").asInt());
+        subscription.cancel(true);
+    }
+
+    @Test
+    @Order(6)
+    void logs_areShippedToLoki() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (loki.entries().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+        }
+        assertFalse(loki.entries().isEmpty(), "no log lines reached Loki");
+        assertTrue(loki.entries().get(0).line().startsWith("{"), loki.entries().get(0).line());
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest authorized(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + token).build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return send(request.build());
+    }
+
+    // 0 while nothing answers on the port
+    private int status(HttpRequest.Builder request) throws InterruptedException {
+        try {
+            return send(request).statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static List<String> split(String command) {
+        return command.isBlank() ? List.of() : List.of(command.trim().split("\\s+"));
+    }
+}
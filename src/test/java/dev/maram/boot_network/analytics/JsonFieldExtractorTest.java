@@ -0,0 +1,46 @@
+package dev.maram.boot_network.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonFieldExtractorTest {
+
+    private final JsonFieldExtractor extractor = new JsonFieldExtractor("route", "status", "durationMs", "user");
+
+    @Test
+    void extractsTopLevelFieldsAndSkipsTheRest() {
+        parse("{\"message\":\"a \\\"quoted\\\" {not an object}\",\"nested\":{\"route\":\"/wrong\",\"list\":[1,{\"a\":\"]\"}]},"
+                + "\"route\":\"/users/{id}\",\"status\":404,\"durationMs\":12.3456}");
+
+        assertEquals("/users/{id}", extractor.string(0));
+        assertEquals(404, extractor.longValue(1, -1));
+        assertEquals(12346, extractor.thousandths(2, -1));
+        assertFalse(extractor.has(3));
+    }
+
+    @Test
+    void readsShortAndIntegralDurations() {
+        parse("{\"durationMs\":7}");
+        assertEquals(7000, extractor.thousandths(2, -1));
+
+        parse("{\"durationMs\":0.5}");
+        assertEquals(500, extractor.thousandths(2, -1));
+    }
+
+    @Test
+    void rejectsLinesThatAreNotObjects() {
+        assertFalse(parse("2025-08-26 INFO plain text line"));
+        assertTrue(parse("  {}  "));
+    }
+
+    private boolean parse(String line) {
+        byte[] bytes = ("garbage before\n" + line).getBytes(StandardCharsets.UTF_8);
+        int from = "garbage before\n".length();
+        return extractor.parse(bytes, from, bytes.length);
+    }
+}
@@ -0,0 +1,78 @@
+package dev.maram.boot_network.analytics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Throughput of the log analytics over generated files shaped like the rolled logs: request summaries mixed with
+ * regular events, gzipped, 50 MB uncompressed per file like the rolling policy.
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.analytics.LogAnalyticsBenchmark -Dbench.files=16
+ * </pre>
+ */
+public class LogAnalyticsBenchmark {
+
+    private static final String[] ROUTES = {"/users/{id}", "/users", "/auth/authenticate", "/users/batch", "/courses"};
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = Integer.getInteger("bench.files", 8);
+        int threads = Integer.getInteger("bench.threads", Runtime.getRuntime().availableProcessors());
+        Path directory = Path.of("target", "bench", "logs");
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            Path file = directory.resolve("application.2026-10-18." + i + ".json.gz");
+            if (!Files.exists(file)) {
+                generate(file, 50L * 1024 * 1024, i);
+            }
+            files.add(file);
+        }
+
+        LogAnalyzer analyzer = new LogAnalyzer(null, null);
+        analyzer.analyze(files.subList(0, 1), 1); // warm-up
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            RequestStats stats = analyzer.analyze(files, threads);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("%d threads: %,d MB, %,d requests in %.2f s, %.0f MB/s (%.1f GB/min)%n",
+                    threads, stats.bytes >> 20, stats.requests, seconds,
+                    stats.bytes / seconds / (1 << 20), stats.bytes / seconds * 60 / (1 << 30));
+        }
+    }
+
+    private static void generate(Path file, long size, int seed) throws IOException {
+        Random random = new Random(seed);
+        long written = 0;
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            while (written < size) {
+                String line;
+                if (random.nextInt(4) == 0) {
+                    String route = ROUTES[random.nextInt(ROUTES.length)];
+                    line = "{\"@timestamp\":\"2026-10-18T10:00:00.123+02:00\",\"@version\":\"1\",\"message\":\"request method=GET route="
+                            + route + "\",\"logger_name\":\"dev.maram.boot_network.request\",\"thread_name\":\"http-nio-8088-exec-"
+                            + random.nextInt(200) + "\",\"level\":\"INFO\",\"level_value\":20000,\"method\":\"GET\",\"route\":\"" + route
+                            + "\",\"status\":" + (random.nextInt(100) == 0 ? 500 : 200) + ",\"durationMs\":"
+                            + String.format("%.3f", random.nextDouble() * random.nextDouble() * 400) + ",\"user\":\"user"
+                            + random.nextInt(5000) + "@maram.dev\",\"service\":\"boot-network-app\",\"env\":\"prod\"}\n";
+                } else {
+                    line = "{\"@timestamp\":\"2026-10-18T10:00:00.123+02:00\",\"@version\":\"1\",\"message\":\"Fetching user with ID: "
+                            + random.nextInt(100_000) + "\",\"logger_name\":\"dev.maram.boot_network.user.UserService\",\"thread_name\":"
+                            + "\"http-nio-8088-exec-" + random.nextInt(200) + "\",\"level\":\"INFO\",\"level_value\":20000,"
+                            + "\"userEmail\":\"user" + random.nextInt(5000) + "@maram.dev\",\"service\":\"boot-network-app\",\"env\":\"prod\"}\n";
+                }
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                written += bytes.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.maram.boot_network.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogAnalyzerTest {
+
+    @TempDir
+    Path logs;
+
+    @Test
+    void aggregatesRequestSummariesAcrossFiles() throws Exception {
+        Path rolled = logs.resolve("application.2026-10-18.0.json.gz");
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(rolled)), StandardCharsets.UTF_8)) {
+            for (int i = 1; i <= 100; i++) {
+                out.write(summary("2026-10-18T10:00:00+02:00", "GET", "/users/{id}", i == 100 ? 500 : 200, i, "a@maram.dev"));
+            }
+            out.write("{\"@timestamp\":\"2026-10-18T10:00:00+02:00\",\"logger_name\":\"dev.maram.boot_network.user.UserService\",\"message\":\"route\"}\n");
+            out.write("not json\n");
+        }
+        Path current = logs.resolve("application.json");
+        try (OutputStream out = Files.newOutputStream(current)) {
+            out.write(summary("2026-10-19T09:00:00+02:00", "POST", "/auth/authenticate", 401, 250.5, "none").getBytes(StandardCharsets.UTF_8));
+        }
+
+        RequestStats stats = new LogAnalyzer(null, null).analyze(List.of(rolled, current), 2);
+
+        assertEquals(2, stats.files);
+        assertEquals(103, stats.lines);
+        assertEquals(1, stats.malformed);
+        assertEquals(101, stats.requests);
+        RequestStats.Endpoint users = stats.endpoints.get("GET /users/{id}");
+        assertEquals(100, users.count);
+        assertEquals(1, users.serverErrors);
+        assertEquals(99_000, users.latencyMicros.getValueAtPercentile(99), 100);
+        assertEquals(1, stats.endpoints.get("POST /auth/authenticate").clientErrors);
+        assertEquals(100, stats.users.get("a@maram.dev").requests);
+        assertEquals(1, stats.users.size());
+    }
+
+    @Test
+    void keepsOnlyTheRequestedRange() throws IOException, InterruptedException {
+        Path file = logs.resolve("application.json");
+        Files.writeString(file, summary("2026-10-18T23:59:59Z", "GET", "/users", 200, 1, "none")
+                + summary("2026-10-19T00:00:00Z", "GET", "/users", 200, 1, "none"));
+
+        RequestStats stats = new LogAnalyzer(Instant.parse("2026-10-19T00:00:00Z"), null).analyze(List.of(file), 1);
+
+        assertEquals(1, stats.requests);
+    }
+
+    private static String summary(String timestamp, String method, String route, int status, double durationMs, String user) {
+        return "{\"@timestamp\":\"" + timestamp + "\",\"@version\":\"1\",\"message\":\"request method=" + method + "\","
+                + "\"logger_name\":\"dev.maram.boot_network.request\",\"level\":\"INFO\",\"method\":\"" + method + "\","
+                + "\"route\":\"" + route + "\",\"status\":" + status + ",\"durationMs\":" + durationMs + ",\"user\":\"" + user + "\"}\n";
+    }
+}
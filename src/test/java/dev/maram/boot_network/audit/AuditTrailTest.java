@@ -0,0 +1,220 @@
+package dev.maram.boot_network.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditTrailTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    private JdbcTemplate jdbcTemplate;
+    private AuditTrail trail;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                create table audit_event (
+                    id bigint auto_increment primary key,
+                    occurred_at timestamp not null,
+                    action varchar(32) not null,
+                    actor varchar(255),
+                    user_id int,
+                    detail varchar(255)
+                )""");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (trail != null) {
+            trail.stop();
+        }
+    }
+
+    @Test
+    void eventsReachTheTableWithTheCurrentAuditor() throws Exception {
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+
+        for (int i = 0; i < 40; i++) {
+            trail.record(AuditAction.USER_UPDATED, i, null);
+        }
+        trail.record(AuditAction.LOGIN_FAILED, "mallory@mail.com", null, "BadCredentialsException");
+
+        await(() -> rows() == 41);
+        Map<String, Object> failed = jdbcTemplate.queryForMap("select * from audit_event where action = 'LOGIN_FAILED'");
+        assertEquals("mallory@mail.com", failed.get("actor"));
+        assertNull(failed.get("user_id"));
+        assertEquals("BadCredentialsException", failed.get("detail"));
+        assertEquals(40, jdbcTemplate.queryForObject(
+                "select count(*) from audit_event where actor = 'admin@mail.com'", Integer.class));
+        assertEquals(41.0, counter("audit.written"));
+    }
+
+    @Test
+    void eventsAreSpooledWhileTheTableIsDownAndInsertedOnceItIsBack() throws Exception {
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+        jdbcTemplate.execute("alter table audit_event rename to audit_event_down");
+
+        for (int i = 0; i < 100; i++) {
+            trail.record(AuditAction.USER_UPDATED, i, null);
+        }
+        await(() -> counter("audit.spooled") == 100);
+        assertTrue(counter("audit.write.failures") >= 1);
+        assertTrue(trail.lagMillis() >= 0);
+
+        jdbcTemplate.execute("alter table audit_event_down rename to audit_event");
+        await(() -> rows() == 100);
+        assertEquals(0.0, counter("audit.dropped"));
+        assertEquals(0, trail.lagMillis());
+    }
+
+    @Test
+    void theSpoolOutlivesARestart() throws Exception {
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+        jdbcTemplate.execute("alter table audit_event rename to audit_event_down");
+        for (int i = 0; i < 20; i++) {
+            trail.record(AuditAction.USER_DELETED, i, null);
+        }
+        trail.stop();
+        trail = null;
+
+        jdbcTemplate.execute("alter table audit_event_down rename to audit_event");
+        assertEquals(0, rows());
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+        await(() -> rows() == 20);
+    }
+
+    @Test
+    void anOversizedActorIsCutToTheColumnLength() throws Exception {
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+
+        trail.record(AuditAction.LOGIN_FAILED, "a".repeat(5000) + "@mail.com", null, "x".repeat(5000));
+        trail.record(AuditAction.LOGIN, 1, null);
+
+        await(() -> rows() == 2);
+        Map<String, Object> failed = jdbcTemplate.queryForMap("select * from audit_event where action = 'LOGIN_FAILED'");
+        assertEquals("a".repeat(AuditEntry.ACTOR_LENGTH), failed.get("actor"));
+        assertEquals(AuditEntry.DETAIL_LENGTH, ((String) failed.get("detail")).length());
+        assertEquals(0.0, counter("audit.spooled"));
+    }
+
+    @Test
+    void aRowTheDatabaseRefusesIsDeadLetteredAndTheRestOfItsBatchWritten() throws Exception {
+        jdbcTemplate.execute("alter table audit_event alter column actor varchar(16)");
+        // the writer looks at the buffer once, then the whole batch is there on its next look
+        trail = start(AuditTrail.Overflow.SPOOL, 32, Duration.ofMillis(300));
+        awaitWriterParked();
+        for (int i = 0; i < 10; i++) {
+            trail.record(AuditAction.LOGIN, i, null);
+        }
+        trail.record(AuditAction.LOGIN_FAILED, "someone-with-a-long-name@mail.com", null, null);
+        for (int i = 10; i < 20; i++) {
+            trail.record(AuditAction.LOGIN, i, null);
+        }
+
+        await(() -> rows() == 20 && counter("audit.dead.lettered") == 1);
+        assertEquals(0.0, counter("audit.spooled"));
+        assertEquals(0.0, counter("audit.write.failures"));
+        assertEquals(0, trail.lagMillis());
+    }
+
+    @Test
+    void aRefusedRowDoesNotWedgeTheSpool() throws Exception {
+        jdbcTemplate.execute("alter table audit_event alter column actor varchar(16)");
+        trail = start(AuditTrail.Overflow.SPOOL, 16, Duration.ofMillis(10));
+        jdbcTemplate.execute("alter table audit_event rename to audit_event_down");
+        trail.record(AuditAction.LOGIN, 1, null);
+        trail.record(AuditAction.LOGIN_FAILED, "someone-with-a-long-name@mail.com", null, null);
+        trail.record(AuditAction.LOGIN, 2, null);
+        await(() -> counter("audit.spooled") == 3);
+        assertEquals(0.0, counter("audit.dead.lettered"), "a missing table is an outage, not a refused row");
+
+        jdbcTemplate.execute("alter table audit_event_down rename to audit_event");
+        await(() -> rows() == 2 && counter("audit.dead.lettered") == 1);
+        await(() -> trail.lagMillis() == 0);
+    }
+
+    @Test
+    void aFullBufferFollowsTheOverflowPolicy() throws Exception {
+        // the writer looks at the buffer once, then not for an hour
+        trail = start(AuditTrail.Overflow.DROP, 4, Duration.ofHours(1));
+        awaitWriterParked();
+        for (int i = 0; i < 6; i++) {
+            trail.record(AuditAction.LOGIN, i, null);
+        }
+        assertEquals(2.0, counter("audit.dropped"));
+        trail.stop();
+        trail = null;
+
+        trail = start(AuditTrail.Overflow.SPOOL, 4, Duration.ofHours(1));
+        awaitWriterParked();
+        for (int i = 0; i < 6; i++) {
+            trail.record(AuditAction.LOGIN, i, null);
+        }
+        assertEquals(2.0, counter("audit.spooled"));
+        assertEquals(0.0, counter("audit.dropped"));
+    }
+
+    private AuditTrail start(AuditTrail.Overflow overflow, int bufferSize, Duration interval) throws Exception {
+        AuditTrail auditTrail = new AuditTrail(jdbcTemplate, () -> Optional.of("admin@mail.com"));
+        ReflectionTestUtils.setField(auditTrail, "bufferSize", bufferSize);
+        ReflectionTestUtils.setField(auditTrail, "overflow", overflow);
+        ReflectionTestUtils.setField(auditTrail, "blockTimeout", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(auditTrail, "batchSize", 32);
+        ReflectionTestUtils.setField(auditTrail, "interval", interval);
+        ReflectionTestUtils.setField(auditTrail, "slowThreshold", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(auditTrail, "maxBackoff", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(auditTrail, "spoolDirectory", spoolDirectory.toString());
+        ReflectionTestUtils.setField(auditTrail, "segmentSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(auditTrail, "maxSpoolSize", DataSize.ofMegabytes(1));
+        auditTrail.start();
+        registry = new SimpleMeterRegistry();
+        auditTrail.bindTo(registry);
+        return auditTrail;
+    }
+
+    private void awaitWriterParked() throws InterruptedException {
+        Thread writer = (Thread) ReflectionTestUtils.getField(trail, "writer");
+        await(() -> writer.getState() == Thread.State.TIMED_WAITING);
+    }
+
+    private int rows() {
+        try {
+            return jdbcTemplate.queryForObject("select count(*) from audit_event", Integer.class);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private double counter(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
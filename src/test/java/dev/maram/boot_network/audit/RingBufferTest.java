@@ -0,0 +1,85 @@
+package dev.maram.boot_network.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void aFullBufferRejectsUntilDrained() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+        assertEquals(0, buffer.peek());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertTrue(buffer.offer(4));
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertNull(buffer.peek());
+        assertEquals(0, buffer.size());
+
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 8;
+        int perProducer = 20_000;
+        RingBuffer<Long> buffer = new RingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                long id = producer;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (long sequence = 0; sequence < perProducer; sequence++) {
+                        while (!buffer.offer(id << 32 | sequence)) {
+                            Thread.yield(); // full, let the consumer run
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long[] next = new long[producers];
+            List<Long> drained = new ArrayList<>(256);
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received < (long) producers * perProducer) {
+                assertTrue(System.nanoTime() < deadline, "received only " + received);
+                drained.clear();
+                if (buffer.drainTo(drained, 256) == 0) {
+                    Thread.yield();
+                }
+                for (long element : drained) {
+                    int producer = (int) (element >>> 32);
+                    assertEquals(next[producer]++, element & 0xFFFFFFFFL);
+                }
+                received += drained.size();
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            assertEquals(0, buffer.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
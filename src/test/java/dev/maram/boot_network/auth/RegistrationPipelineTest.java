@@ -0,0 +1,110 @@
+package dev.maram.boot_network.auth;
+
+import dev.maram.boot_network.exception.RegistrationBacklogFullException;
+import dev.maram.boot_network.exception.UserAlreadyExistsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RegistrationPipelineTest {
+
+    private final AuthService authService = mock(AuthService.class);
+    private final Map<String, RegistrationStatus> stored = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final RegistrationPipeline pipeline;
+
+    RegistrationPipelineTest() {
+        RegistrationStatuses statuses = mock(RegistrationStatuses.class);
+        doAnswer(invocation -> {
+            RegistrationStatus status = invocation.getArgument(0);
+            stored.put(status.registrationId(), status);
+            return null;
+        }).when(statuses).put(any());
+        when(statuses.get(anyString())).thenAnswer(invocation -> stored.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> stored.remove(invocation.<String>getArgument(0))).when(statuses).remove(anyString());
+
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        pipeline = new RegistrationPipeline(authService, statuses, executor);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_answersQueued_andTheWorkerCompletesTheRegistration() throws Exception {
+        RegistrationStatus queued = pipeline.submit(request("ada@mail.com"));
+
+        assertEquals(RegistrationStatus.State.QUEUED, queued.state());
+        RegistrationStatus done = awaitOutcome(queued.registrationId());
+        assertEquals(RegistrationStatus.State.COMPLETED, done.state());
+        assertNull(done.errorCode());
+    }
+
+    @Test
+    void businessFailure_isReportedWithItsErrorCode() throws Exception {
+        doThrow(new UserAlreadyExistsException()).when(authService).register(any());
+
+        RegistrationStatus done = awaitOutcome(pipeline.submit(request("ada@mail.com")).registrationId());
+
+        assertEquals(RegistrationStatus.State.FAILED, done.state());
+        assertEquals(306, done.errorCode());
+        assertEquals("User already exists", done.reason());
+    }
+
+    @Test
+    void fullQueue_isRefused() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(authService).register(any());
+
+        pipeline.submit(request("first@mail.com"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        pipeline.submit(request("second@mail.com")); // waits in the queue
+        assertThrows(RegistrationBacklogFullException.class, () -> pipeline.submit(request("third@mail.com")));
+        assertEquals(2, stored.size(), "no status is kept for the refused registration");
+        release.countDown();
+    }
+
+    private RegistrationStatus awaitOutcome(String registrationId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() - deadline < 0) {
+            RegistrationStatus status = pipeline.status(registrationId);
+            if (status.state() == RegistrationStatus.State.COMPLETED || status.state() == RegistrationStatus.State.FAILED) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        return fail("registration " + registrationId + " still " + pipeline.status(registrationId).state());
+    }
+
+    private static RegistrationRequest request(String email) {
+        return RegistrationRequest.builder()
+                .firstName("Ada")
+                .lastName("Lovelace")
+                .email(email)
+                .password("password123")
+                .build();
+    }
+}
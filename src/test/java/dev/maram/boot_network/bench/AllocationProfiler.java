@@ -0,0 +1,136 @@
+package dev.maram.boot_network.bench;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Allocation of an operation run on the calling thread. The bytes per operation are exact, from the thread's own
+ * allocation counter. Where they are allocated comes from a JFR recording of {@code jdk.ObjectAllocationSample}
+ * events, samples taken at most once per TLAB refill and weighted by the bytes they stand for, so it takes many
+ * more iterations than the measurement to give a stable picture.
+ */
+public final class AllocationProfiler {
+
+    private static final String APPLICATION_PACKAGE = "dev.maram.boot_network.";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Bytes the calling thread allocated so far.
+     */
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Bytes allocated per run of {@code operation}, averaged over {@code iterations} runs.
+     */
+    public long bytesPerOperation(int iterations, Operation operation) throws Exception {
+        long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return (allocatedBytes() - before) / iterations;
+    }
+
+    /**
+     * Allocation sites of {@code iterations} runs of {@code operation}, the largest first.
+     */
+    public List<Site> sites(int iterations, Operation operation) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        Path dump = Files.createTempFile("allocation", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("jdk.ObjectAllocationSample").with("throttle", "10000/s").withStackTrace();
+                recording.start();
+                for (int i = 0; i < iterations; i++) {
+                    operation.run();
+                }
+                recording.stop();
+                recording.dump(dump);
+            }
+            return sites(dump, threadId);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    public static String describe(List<Site> sites, int limit) {
+        StringJoiner report = new StringJoiner("\n");
+        sites.stream().limit(limit).forEach(site -> report.add(String.format(Locale.ROOT, "  %5.1f%%  %s",
+                site.share() * 100, site.frame())));
+        return report.toString();
+    }
+
+    // sampled bytes per allocation site: the allocating frame and the innermost application frame calling it
+    private static List<Site> sites(Path dump, long threadId) throws IOException {
+        List<RecordedEvent> samples = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            if (event.getThread() != null && event.getThread().getJavaThreadId() == threadId) {
+                samples.add(event);
+            }
+        }
+        // the first sample's weight covers everything the thread allocated since its last sample before the recording
+        samples.sort(Comparator.comparing(RecordedEvent::getStartTime));
+        Map<String, Long> bytes = new HashMap<>();
+        long total = 0;
+        for (RecordedEvent event : samples.subList(Math.min(1, samples.size()), samples.size())) {
+            long weight = event.getLong("weight");
+            total += weight;
+            bytes.merge(site(event.getStackTrace()) + " <" + event.getClass("objectClass").getName() + ">", weight, Long::sum);
+        }
+        long sampled = Math.max(1, total);
+        return bytes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .map(site -> new Site(site.getKey(), site.getValue(), (double) site.getValue() / sampled))
+                .toList();
+    }
+
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "?";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String allocating = frame(frames.get(0));
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                String caller = frame(frame);
+                return caller.equals(allocating) ? allocating : allocating + " from " + caller;
+            }
+        }
+        return allocating;
+    }
+
+    private static String frame(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    public record Site(String frame, long sampledBytes, double share) {
+    }
+}
@@ -0,0 +1,81 @@
+package dev.maram.boot_network.bench;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load benchmark for the two hot endpoints, {@code GET /users/{id}} and {@code POST /auth/authenticate}, against an
+ * already running instance. It is run once per configuration under comparison (see {@code bench/README.md}) and
+ * writes {@code target/bench/<label>.json}.
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.label=virtual -Dbench.email=... -Dbench.password=... -Dbench.user-id=1
+ * </pre>
+ */
+public class HotPathLoadBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("bench.base-url", "http://localhost:8088/api/v1");
+        String label = System.getProperty("bench.label", "default");
+        String email = required("bench.email");
+        String password = required("bench.password");
+        int userId = Integer.getInteger("bench.user-id", 1);
+        int rate = Integer.getInteger("bench.rate", 500);
+        int authRate = Integer.getInteger("bench.auth-rate", 50); // BCrypt bound, keep it well below the read rate
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("bench.warmup-seconds", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("bench.duration-seconds", 30));
+        int maxInFlight = Integer.getInteger("bench.max-in-flight", 2_000);
+
+        LoadGenerator generator = new LoadGenerator(maxInFlight);
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+        HttpRequest authenticate = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/authenticate"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build();
+
+        String token = token(generator.client().send(authenticate, HttpResponse.BodyHandlers.ofString()));
+        HttpRequest userById = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + userId))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+
+        // let the JIT and the connection pools settle before measuring
+        generator.run("warmup", i -> userById, 200, rate, warmup);
+
+        List<LoadResult> results = new ArrayList<>();
+        results.add(generator.run("users-by-id", i -> userById, 200, rate, duration));
+        results.add(generator.run("auth-authenticate", i -> authenticate, 200, authRate, duration));
+
+        System.out.println("== " + label);
+        results.forEach(r -> System.out.println(r.summary()));
+        Path out = Path.of("target", "bench", label + ".json");
+        LoadResult.write(out, label, results);
+        System.out.println("results written to " + out.toAbsolutePath());
+        System.exit(0);
+    }
+
+    static String token(HttpResponse<String> response) {
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("authentication failed with status " + response.statusCode() + ": " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    static String required(String property) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("-D" + property + " is required");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,111 @@
+package dev.maram.boot_network.bench;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Open-model HTTP load generator: requests are issued on a fixed schedule whatever the response times are, and
+ * every latency is measured from the moment the request was supposed to start. A stalled server therefore shows
+ * up in the percentiles instead of silently lowering the offered load (coordinated omission).
+ */
+public final class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final HttpClient client;
+    private final int maxInFlight;
+
+    public LoadGenerator(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+    }
+
+    public HttpClient client() {
+        return client;
+    }
+
+    /**
+     * Drives {@code requests} at {@code ratePerSecond} for {@code duration}. The function receives the sequence
+     * number of the request so scenarios can rotate through ids or credentials.
+     */
+    public LoadResult run(String name, LongFunction<HttpRequest> requests, int expectedStatus,
+                          int ratePerSecond, Duration duration) throws InterruptedException {
+        return run(name, (sequence, intendedStart) -> client.sendAsync(requests.apply(sequence), HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() == expectedStatus), ratePerSecond, duration);
+    }
+
+    /**
+     * Starts a {@link Journey} at {@code ratePerSecond} for {@code duration}; the result is the latency of whole
+     * journeys, from their scheduled start until the last step completed.
+     */
+    public LoadResult run(String name, Journey journeys, int ratePerSecond, Duration duration) throws InterruptedException {
+        Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long total = duration.toSeconds() * ratePerSecond;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // if the server is saturated we block here, but the latency still counts from intendedStart
+            inFlight.acquire();
+            CompletableFuture<Boolean> journey;
+            try {
+                journey = journeys.start(i, intendedStart);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                failed.incrementAndGet();
+                continue;
+            }
+            journey.whenComplete((success, error) -> {
+                recorder.recordValue(Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                if (error == null && Boolean.TRUE.equals(success)) {
+                    ok.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+                inFlight.release();
+            });
+        }
+
+        // wait for the stragglers
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        long elapsed = System.nanoTime() - start;
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new LoadResult(name, ratePerSecond, elapsed, ok.get(), failed.get(), histogram);
+    }
+
+    /**
+     * One scheduled unit of work, a single request or a chain of them, completing with whether it succeeded.
+     * {@code intendedStartNanos} is the {@link System#nanoTime()} it was scheduled at, steps measured on their own
+     * should count the first one from there.
+     */
+    @FunctionalInterface
+    public interface Journey {
+        CompletableFuture<Boolean> start(long sequence, long intendedStartNanos);
+    }
+}
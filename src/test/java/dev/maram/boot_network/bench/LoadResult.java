@@ -0,0 +1,60 @@
+package dev.maram.boot_network.bench;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+public record LoadResult(
+        String name,
+        int targetRate,
+        long elapsedNanos,
+        long ok,
+        long failed,
+        Histogram latencies
+) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public double throughput() {
+        return (ok + failed) / (elapsedNanos / 1e9);
+    }
+
+    public double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "%-22s rate=%d/s achieved=%.1f/s ok=%d failed=%d p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                name, targetRate, throughput(), ok, failed,
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                latencies.getMaxValue() / 1e6);
+    }
+
+    public String toJson() {
+        StringJoiner percentiles = new StringJoiner(",", "{", "}");
+        for (double p : PERCENTILES) {
+            percentiles.add(String.format(Locale.ROOT, "\"p%s\":%.3f", trim(p), percentileMillis(p)));
+        }
+        return String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"targetRate\":%d,\"throughput\":%.2f,\"ok\":%d,\"failed\":%d,\"elapsedMs\":%d,\"latencyMs\":%s}",
+                name, targetRate, throughput(), ok, failed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), percentiles);
+    }
+
+    public static void write(Path file, String label, Collection<LoadResult> results) throws IOException {
+        StringJoiner json = new StringJoiner(",", "{\"label\":\"" + label + "\",\"results\":[", "]}\n");
+        results.forEach(r -> json.add(r.toJson()));
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, json.toString());
+    }
+
+    private static String trim(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p).replace('.', '_');
+    }
+}
@@ -0,0 +1,210 @@
+package dev.maram.boot_network.bench;
+
+import dev.maram.boot_network.BootNetworkApiApplication;
+import jakarta.mail.internet.MimeMessage;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test that needs none of the docker-compose services: the application is started in this JVM with
+ * the {@code loadtest} profile against H2 and the in-process Redis, SMTP, Zipkin and Loki stand-ins, then new users
+ * go through register, activation (the code is read from the captured email), authenticate and {@code GET /users}
+ * at a fixed arrival rate. Every step is reported on its own and the whole journey from its scheduled start, so the
+ * percentiles are corrected for coordinated omission. Writes {@code target/bench/<label>.json}.
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.LocalLoadTest -Dbench.rate=20
+ * </pre>
+ */
+public class LocalLoadTest {
+
+    private static final Pattern ACTIVATION_CODE = Pattern.compile("<span>\\s*(\\d{6})\\s*</span>");
+
+    public static void main(String[] args) throws Exception {
+        String label = System.getProperty("bench.label", "local");
+        String profiles = System.getProperty("bench.profiles", "loadtest");
+        int rate = Integer.getInteger("bench.rate", 20); // journeys per second, each one hashes a password twice
+        int reads = Integer.getInteger("bench.reads", 3); // GET /users per journey
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("bench.warmup-seconds", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("bench.duration-seconds", 30));
+        int maxInFlight = Integer.getInteger("bench.max-in-flight", 1_000);
+
+        try (RedisStandIn redis = new RedisStandIn(0);
+             SmtpStandIn smtp = new SmtpStandIn(0);
+             ZipkinStandIn zipkin = new ZipkinStandIn(0);
+             LokiStandIn loki = new LokiStandIn(0, false)) {
+
+            // read by logback-spring.xml, which is configured before the Spring environment exists
+            System.setProperty("LOKI_URL", loki.endpoint().toString());
+            System.setProperty("LOG_SPOOL_DIR", Path.of("target", "bench", "spool").toString());
+
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(BootNetworkApiApplication.class).run(
+                    "--spring.profiles.active=" + profiles,
+                    "--spring.data.redis.port=" + redis.port(),
+                    "--spring.mail.port=" + smtp.port(),
+                    "--management.zipkin.tracing.endpoint=" + zipkin.endpoint());
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/api/v1";
+
+            LoadGenerator generator = new LoadGenerator(maxInFlight);
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+
+            // let the JIT, the pools and the caches settle before measuring
+            Workflow warmupWorkflow = new Workflow(generator.client(), smtp, baseUrl, "warmup-" + runId, reads);
+            generator.run("warmup", warmupWorkflow::start, rate, warmup);
+
+            Workflow workflow = new Workflow(generator.client(), smtp, baseUrl, runId, reads);
+            LoadResult journeys = generator.run("journey", workflow::start, rate, duration);
+            List<LoadResult> results = workflow.results(rate, journeys.elapsedNanos());
+            results.add(journeys);
+
+            System.out.println("== " + label + " (" + profiles + ")");
+            results.forEach(r -> System.out.println(r.summary()));
+            System.out.printf("stand-ins: %d emails, %d redis keys, %d spans%n", smtp.received(), redis.size(), zipkin.spans().size());
+            Path out = Path.of("target", "bench", label + ".json");
+            LoadResult.write(out, label, results);
+            System.out.println("results written to " + out.toAbsolutePath());
+            app.close();
+        }
+        System.exit(0);
+    }
+
+    // register -> activation email -> activate -> authenticate -> GET /users x reads, for a new user each time
+    private static final class Workflow {
+
+        private final HttpClient client;
+        private final SmtpStandIn smtp;
+        private final String baseUrl;
+        private final String runId;
+        private final int reads;
+
+        private final Step register = new Step("register");
+        private final Step activationEmail = new Step("activation-email");
+        private final Step activate = new Step("activate");
+        private final Step authenticate = new Step("authenticate");
+        private final Step users = new Step("users");
+
+        Workflow(HttpClient client, SmtpStandIn smtp, String baseUrl, String runId, int reads) {
+            this.client = client;
+            this.smtp = smtp;
+            this.baseUrl = baseUrl;
+            this.runId = runId;
+            this.reads = reads;
+        }
+
+        CompletableFuture<Boolean> start(long sequence, long intendedStart) {
+            String email = "load-" + runId + "-" + sequence + "@bench.local";
+            String credentials = "{\"email\":\"" + email + "\",\"password\":\"password-" + sequence + "\"}";
+            String registration = "{\"firstName\":\"Load\",\"lastName\":\"User" + sequence + "\"," + credentials.substring(1);
+
+            return call(register, post("/auth/register", registration), 202, intendedStart)
+                    .thenCompose(registered -> registered == null ? failed() : activationCode(email, System.nanoTime()))
+                    .thenCompose(code -> code == null ? failed()
+                            : call(activate, get("/auth/activate-account?token=" + code, null), 200, System.nanoTime()))
+                    .thenCompose(activated -> activated == null ? failed()
+                            : call(authenticate, post("/auth/authenticate", credentials), 200, System.nanoTime()))
+                    .thenCompose(authenticated -> authenticated == null ? failed()
+                            : read(HotPathLoadBenchmark.token(authenticated), reads));
+        }
+
+        List<LoadResult> results(int rate, long elapsedNanos) {
+            List<LoadResult> results = new ArrayList<>();
+            for (Step step : List.of(register, activationEmail, activate, authenticate)) {
+                results.add(step.result(rate, elapsedNanos));
+            }
+            results.add(users.result(rate * reads, elapsedNanos));
+            return results;
+        }
+
+        private CompletableFuture<Boolean> read(String token, int remaining) {
+            if (remaining == 0) {
+                return CompletableFuture.completedFuture(true);
+            }
+            return call(users, get("/users", token), 200, System.nanoTime())
+                    .thenCompose(response -> response == null ? CompletableFuture.completedFuture(false) : read(token, remaining - 1));
+        }
+
+        // the email goes out on the mail executor after register returned, its latency is counted from there
+        private CompletableFuture<String> activationCode(String email, long from) {
+            return smtp.messageTo(email).orTimeout(30, TimeUnit.SECONDS).handle((message, error) -> {
+                String code = error == null ? code(message) : null;
+                activationEmail.record(from, code != null);
+                return code;
+            });
+        }
+
+        private CompletableFuture<HttpResponse<String>> call(Step step, HttpRequest request, int expectedStatus, long from) {
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((response, error) -> {
+                boolean ok = error == null && response.statusCode() == expectedStatus;
+                step.record(from, ok);
+                return ok ? response : null;
+            });
+        }
+
+        private HttpRequest post(String path, String json) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+        }
+
+        private HttpRequest get(String path, String token) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            return request.build();
+        }
+
+        private static String code(MimeMessage message) {
+            try {
+                Matcher matcher = ACTIVATION_CODE.matcher(SmtpStandIn.text(message));
+                return matcher.find() ? matcher.group(1) : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private static <T> CompletableFuture<T> failed() {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // latencies of one step of the journeys, each one from the moment the step was due
+    private static final class Step {
+
+        private final String name;
+        private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toNanos(5), 3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Step(String name) {
+            this.name = name;
+        }
+
+        void record(long fromNanos, boolean success) {
+            recorder.recordValue(Math.min(System.nanoTime() - fromNanos, TimeUnit.MINUTES.toNanos(5)));
+            (success ? ok : failed).increment();
+        }
+
+        LoadResult result(int rate, long elapsedNanos) {
+            return new LoadResult(name, rate, elapsedNanos, ok.sum(), failed.sum(), recorder.getIntervalHistogram());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dev.maram.boot_network.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for the Loki push API ({@code POST /loki/api/v1/push}, JSON, optionally gzipped) keeping the
+ * received lines in memory, or only counting the pushes when {@code retainLines} is false (the load test).
+ * {@link #failNext(int)} answers 503 to the next pushes to simulate an outage. Used by the log shipping tests, and on
+ * its own with {@code LOKI_URL=http://localhost:3100/loki/api/v1/push}:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.LokiStandIn
+ * </pre>
+ */
+public class LokiStandIn implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger pushes = new AtomicInteger();
+    private final boolean retainLines;
+
+    public LokiStandIn(int port) throws IOException {
+        this(port, true);
+    }
+
+    public LokiStandIn(int port, boolean retainLines) throws IOException {
+        this.retainLines = retainLines;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/loki/api/v1/push", this::accept);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (LokiStandIn loki = new LokiStandIn(Integer.getInteger("bench.loki-port", 3100))) {
+            System.out.println("Accepting log pushes on " + loki.endpoint());
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(5_000);
+                System.out.printf("%d lines received in %d pushes%n", loki.entries().size(), loki.pushes());
+            }
+        }
+    }
+
+    public URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/loki/api/v1/push");
+    }
+
+    public List<Entry> entries() {
+        return List.copyOf(entries);
+    }
+
+    public int pushes() {
+        return pushes.get();
+    }
+
+    public void failNext(int pushes) {
+        failures.set(pushes);
+    }
+
+    private void accept(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            pushes.incrementAndGet();
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            InputStream body = exchange.getRequestBody();
+            if (!retainLines) {
+                body.transferTo(OutputStream.nullOutputStream());
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                body = new GZIPInputStream(body);
+            }
+            List<Entry> received = new ArrayList<>();
+            for (JsonNode stream : MAPPER.readTree(body).path("streams")) {
+                for (JsonNode value : stream.path("values")) {
+                    received.add(new Entry(stream.path("stream").toString(), value.get(0).asText(), value.get(1).asText()));
+                }
+            }
+            entries.addAll(received);
+            exchange.sendResponseHeaders(204, -1);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    public record Entry(String labels, String timestampNanos, String line) {
+    }
+}
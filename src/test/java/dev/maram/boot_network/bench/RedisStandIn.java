@@ -0,0 +1,333 @@
+package dev.maram.boot_network.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a Redis server, speaking RESP2 over TCP with the string commands the application uses:
+ * the cache ({@code GET}, {@code SET} with {@code PX}/{@code EX}/{@code NX}/{@code XX}, {@code DEL}, {@code KEYS},
+ * {@code SCAN}), the batch lookups ({@code MGET}, pipelined {@code SET}) and the connection handshake and health
+ * check ({@code HELLO} is refused so Lettuce falls back to RESP2, {@code PING}, {@code INFO}). Keys expire lazily.
+ * One thread per connection, which is fine for the handful of connections Lettuce opens.
+ */
+public class RedisStandIn implements AutoCloseable {
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "redis-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Entry> data = new ConcurrentHashMap<>();
+
+    public RedisStandIn(int port) throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (RedisStandIn redis = new RedisStandIn(Integer.getInteger("bench.redis-port", 6379))) {
+            System.out.println("Serving RESP on port " + redis.port());
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(5_000);
+                System.out.printf("%d keys%n", redis.size());
+            }
+        }
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream(), 1 << 16);
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 1 << 16)) {
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                boolean quit = execute(command, out);
+                // pipelined commands are answered in one write
+                if (quit || in.available() == 0) {
+                    out.flush();
+                }
+                if (quit) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private boolean execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING" -> out.write("+PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+            case "HELLO" -> error(out, "unknown command 'HELLO'");
+            case "AUTH", "SELECT", "CLIENT", "READONLY", "FLUSHDB", "FLUSHALL" -> {
+                if (name.startsWith("FLUSH")) {
+                    data.clear();
+                }
+                out.write(OK);
+            }
+            case "QUIT" -> {
+                out.write(OK);
+                return true;
+            }
+            case "INFO" -> bulk(out, "# Server\r\nredis_version:7.2.0\r\nredis_mode:standalone\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            case "DBSIZE" -> integer(out, data.size());
+            case "GET" -> bulk(out, value(key(command, 1)));
+            case "MGET" -> {
+                array(out, command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    bulk(out, value(key(command, i)));
+                }
+            }
+            case "SET" -> set(command, out);
+            case "DEL", "UNLINK" -> {
+                int removed = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    if (data.remove(key(command, i)) != null) {
+                        removed++;
+                    }
+                }
+                integer(out, removed);
+            }
+            case "EXISTS" -> {
+                int found = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    if (value(key(command, i)) != null) {
+                        found++;
+                    }
+                }
+                integer(out, found);
+            }
+            case "PEXPIRE", "EXPIRE" -> {
+                String key = key(command, 1);
+                long ttl = Long.parseLong(text(command, 2));
+                Entry entry = data.computeIfPresent(key, (k, e) -> e.expired() ? null
+                        : new Entry(e.value(), System.currentTimeMillis() + (name.equals("EXPIRE") ? ttl * 1000 : ttl)));
+                integer(out, entry != null ? 1 : 0);
+            }
+            case "PTTL", "TTL" -> {
+                Entry entry = data.get(key(command, 1));
+                if (entry == null || entry.expired()) {
+                    integer(out, -2);
+                } else if (entry.expiresAt() == 0) {
+                    integer(out, -1);
+                } else {
+                    long millis = entry.expiresAt() - System.currentTimeMillis();
+                    integer(out, name.equals("TTL") ? millis / 1000 : millis);
+                }
+            }
+            case "KEYS" -> keys(out, glob(text(command, 1)));
+            case "SCAN" -> {
+                // everything in one page, cursor 0 ends the iteration
+                Pattern match = null;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (text(command, i).equalsIgnoreCase("MATCH")) {
+                        match = glob(text(command, i + 1));
+                    }
+                }
+                array(out, 2);
+                bulk(out, "0".getBytes(StandardCharsets.US_ASCII));
+                keys(out, match);
+            }
+            case "PUBLISH" -> integer(out, 0);
+            case "COMMAND" -> array(out, 0);
+            default -> error(out, "unknown command '" + name + "'");
+        }
+        return false;
+    }
+
+    private void set(List<byte[]> command, OutputStream out) throws IOException {
+        String key = key(command, 1);
+        byte[] value = command.get(2);
+        long expiresAt = 0;
+        boolean onlyIfAbsent = false;
+        boolean onlyIfPresent = false;
+        for (int i = 3; i < command.size(); i++) {
+            switch (text(command, i).toUpperCase(Locale.ROOT)) {
+                case "PX" -> expiresAt = System.currentTimeMillis() + Long.parseLong(text(command, ++i));
+                case "EX" -> expiresAt = System.currentTimeMillis() + Long.parseLong(text(command, ++i)) * 1000;
+                case "NX" -> onlyIfAbsent = true;
+                case "XX" -> onlyIfPresent = true;
+                default -> {
+                    // KEEPTTL, GET: not used by the application
+                }
+            }
+        }
+        Entry entry = new Entry(value, expiresAt);
+        boolean written;
+        if (onlyIfAbsent) {
+            Entry previous = data.compute(key, (k, e) -> e == null || e.expired() ? entry : e);
+            written = previous == entry;
+        } else if (onlyIfPresent) {
+            written = data.computeIfPresent(key, (k, e) -> e.expired() ? null : entry) == entry;
+        } else {
+            data.put(key, entry);
+            written = true;
+        }
+        out.write(written ? OK : NIL);
+    }
+
+    private byte[] value(String key) {
+        Entry entry = data.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expired()) {
+            data.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    private void keys(OutputStream out, Pattern match) throws IOException {
+        List<String> keys = new ArrayList<>();
+        data.forEach((key, entry) -> {
+            if (!entry.expired() && (match == null || match.matcher(key).matches())) {
+                keys.add(key);
+            }
+        });
+        array(out, keys.size());
+        for (String key : keys) {
+            bulk(out, key.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    // only * and ? are used by the cache patterns
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    // keys are binary, ISO-8859-1 maps every byte to one char and back
+    private static String key(List<byte[]> command, int index) {
+        return new String(command.get(index), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String text(List<byte[]> command, int index) {
+        return new String(command.get(index), StandardCharsets.UTF_8);
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("only RESP arrays are supported, got '" + (char) type + "'");
+        }
+        int count = (int) readNumber(in);
+        List<byte[]> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("bulk string expected");
+            }
+            byte[] argument = in.readNBytes((int) readNumber(in));
+            in.skipNBytes(2); // CRLF
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    private static long readNumber(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            if (c == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (c - '0');
+            }
+        }
+        in.read(); // \n
+        return negative ? -value : value;
+    }
+
+    private static void bulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NIL);
+            return;
+        }
+        out.write(('$' + Integer.toString(value.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(value);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static void array(OutputStream out, int size) throws IOException {
+        out.write(('*' + Integer.toString(size) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void integer(OutputStream out, long value) throws IOException {
+        out.write((':' + Long.toString(value) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void error(OutputStream out, String message) throws IOException {
+        out.write(("-ERR " + message + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+
+    private record Entry(byte[] value, long expiresAt) {
+        boolean expired() {
+            return expiresAt != 0 && System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.maram.boot_network.bench;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SMTP sink standing in for MailDev: accepts every message without authentication or TLS and hands it
+ * to whoever waits for mail to that recipient, see {@link #messageTo(String)}. Messages nobody asks for are kept
+ * until they are.
+ */
+public class SmtpStandIn implements AutoCloseable {
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smtp-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, CompletableFuture<MimeMessage>> inbox = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+
+    public SmtpStandIn(int port) throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * The next message to {@code recipient}, already complete when it arrived before the call.
+     */
+    public CompletableFuture<MimeMessage> messageTo(String recipient) {
+        String key = recipient.toLowerCase(Locale.ROOT);
+        CompletableFuture<MimeMessage> message = inbox.computeIfAbsent(key, k -> new CompletableFuture<>());
+        return message.whenComplete((m, e) -> inbox.remove(key, message));
+    }
+
+    // the text of every text part, HTML included
+    public static String text(MimeMessage message) throws MessagingException, IOException {
+        StringBuilder text = new StringBuilder();
+        appendText(message, text);
+        return text.toString();
+    }
+
+    private static void appendText(Part part, StringBuilder text) throws MessagingException, IOException {
+        Object content = part.getContent();
+        if (content instanceof String string) {
+            text.append(string);
+        } else if (content instanceof Multipart multipart) {
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart body = multipart.getBodyPart(i);
+                appendText(body, text);
+            }
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP stand-in");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String verb = line.length() < 4 ? line.toUpperCase(Locale.ROOT) : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (verb) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                    case "HELO", "NOOP" -> reply(out, "250 OK");
+                    case "MAIL", "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(address(line));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        deliver(recipients, readData(in));
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private void deliver(List<String> recipients, byte[] data) {
+        received.incrementAndGet();
+        for (String recipient : recipients) {
+            try {
+                MimeMessage message = new MimeMessage(SESSION, new ByteArrayInputStream(data));
+                inbox.computeIfAbsent(recipient.toLowerCase(Locale.ROOT), k -> new CompletableFuture<>()).complete(message);
+            } catch (MessagingException e) {
+                inbox.computeIfAbsent(recipient.toLowerCase(Locale.ROOT), k -> new CompletableFuture<>()).completeExceptionally(e);
+            }
+        }
+    }
+
+    private static byte[] readData(BufferedReader in) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream(4096);
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            // dot-stuffing
+            String unstuffed = line.startsWith("..") ? line.substring(1) : line;
+            data.write(unstuffed.getBytes(StandardCharsets.ISO_8859_1));
+            data.write('\r');
+            data.write('\n');
+        }
+        return data.toByteArray();
+    }
+
+    // "RCPT TO:<user@mail.com>" -> user@mail.com
+    private static String address(String line) {
+        int start = line.indexOf('<');
+        int end = line.indexOf('>', start + 1);
+        return start >= 0 && end > start ? line.substring(start + 1, end) : line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,161 @@
+package dev.maram.boot_network.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first successful request: starts the application with {@code bench.command} in a new process, polls the
+ * probe until it answers with a 2xx and stops the process again, {@code bench.runs} times. Each run records when the
+ * port first answered at all and when the probe first succeeded, both from the moment the process was started.
+ * {@code bench/compare-startup.sh} runs it for the packaged jar and the fast-startup build and writes
+ * {@code target/bench/startup-<label>.json}. The resident set size of the process at its first successful request and
+ * its peak until then come from {@code /proc/<pid>/status}, so only on Linux; {@code bench/compare-native.sh} uses
+ * them to put the native executable next to the jar.
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.StartupBenchmark -Dbench.label=jar \
+ *     -Dbench.command="java -jar ../boot-network-0.0.1-SNAPSHOT.jar --spring.profiles.active=prod" \
+ *     -Dbench.directory=target/fast-startup -Dbench.email=... -Dbench.password=...
+ * </pre>
+ *
+ * The probe is {@code POST /auth/authenticate} with {@code bench.email} and {@code bench.password}, the first request
+ * a client sends, or {@code GET} of {@code bench.probe} when that is set (e.g. {@code /actuator/health/ping}).
+ */
+public class StartupBenchmark {
+
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("bench.base-url", "http://localhost:8088/api/v1");
+        String label = System.getProperty("bench.label", "default");
+        List<String> command = Arrays.asList(HotPathLoadBenchmark.required("bench.command").trim().split("\\s+"));
+        Path directory = Path.of(System.getProperty("bench.directory", "."));
+        int runs = Integer.getInteger("bench.runs", 5);
+        Duration timeout = Duration.ofSeconds(Integer.getInteger("bench.timeout-seconds", 120));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+        HttpRequest probe = probe(baseUrl);
+        Path log = Path.of("target", "bench", "startup-" + label + ".log").toAbsolutePath();
+        Files.createDirectories(log.getParent());
+        Files.deleteIfExists(log);
+
+        List<Run> results = new ArrayList<>();
+        for (int i = 1; i <= runs; i++) {
+            Run run = run(command, directory, log, client, probe, timeout);
+            System.out.printf(Locale.ROOT, "run %d: listening after %d ms, first successful request after %d ms, rss %d KB (peak %d KB)%n",
+                    i, run.listeningMillis(), run.firstSuccessMillis(), run.rssKilobytes(), run.peakRssKilobytes());
+            results.add(run);
+        }
+
+        long[] listening = results.stream().mapToLong(Run::listeningMillis).sorted().toArray();
+        long[] firstSuccess = results.stream().mapToLong(Run::firstSuccessMillis).sorted().toArray();
+        System.out.println("== " + label);
+        System.out.printf(Locale.ROOT, "listening      min=%dms median=%dms max=%dms%n",
+                listening[0], listening[listening.length / 2], listening[listening.length - 1]);
+        System.out.printf(Locale.ROOT, "first success  min=%dms median=%dms max=%dms%n",
+                firstSuccess[0], firstSuccess[firstSuccess.length / 2], firstSuccess[firstSuccess.length - 1]);
+        long[] rss = results.stream().mapToLong(Run::rssKilobytes).sorted().toArray();
+        System.out.printf(Locale.ROOT, "rss            min=%dKB median=%dKB max=%dKB%n",
+                rss[0], rss[rss.length / 2], rss[rss.length - 1]);
+
+        Path out = Path.of("target", "bench", "startup-" + label + ".json");
+        write(out, label, String.join(" ", command), results, firstSuccess[firstSuccess.length / 2], rss[rss.length / 2]);
+        System.out.println("results written to " + out.toAbsolutePath() + ", application output in " + log);
+        System.exit(0);
+    }
+
+    private static Run run(List<String> command, Path directory, Path log, HttpClient client, HttpRequest probe,
+                           Duration timeout) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                .start();
+        try {
+            long listening = -1;
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("the application exited with " + process.exitValue() + ", see " + log);
+                }
+                int status = status(client, probe);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (status > 0 && listening < 0) {
+                    listening = elapsed;
+                }
+                if (status >= 200 && status < 300) {
+                    return new Run(listening, elapsed, memory(process, "VmRSS:"), memory(process, "VmHWM:"));
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            throw new IllegalStateException("no successful request within " + timeout.toSeconds() + " s, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // 0 while nothing answers on the port
+    private static int status(HttpClient client, HttpRequest probe) throws InterruptedException {
+        try {
+            return client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // kB value of a line of /proc/<pid>/status, -1 where there is none
+    private static long memory(Process process, String field) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(process.pid()), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith(field))
+                .mapToLong(line -> Long.parseLong(line.substring(field.length()).replace("kB", "").trim()))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private static HttpRequest probe(String baseUrl) {
+        String path = System.getProperty("bench.probe");
+        if (path != null && !path.isBlank()) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(10)).GET().build();
+        }
+        String credentials = "{\"email\":\"" + HotPathLoadBenchmark.required("bench.email")
+                + "\",\"password\":\"" + HotPathLoadBenchmark.required("bench.password") + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/auth/authenticate"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build();
+    }
+
+    private static void write(Path file, String label, String command, List<Run> runs, long medianFirstSuccess,
+                              long medianRss) throws IOException {
+        StringJoiner json = new StringJoiner(",", "{\"label\":\"" + label + "\",\"command\":\"" + command.replace("\"", "\\\"")
+                + "\",\"medianFirstSuccessMs\":" + medianFirstSuccess + ",\"medianRssKb\":" + medianRss + ",\"runs\":[", "]}\n");
+        runs.forEach(run -> json.add("{\"listeningMs\":" + run.listeningMillis() + ",\"firstSuccessMs\":" + run.firstSuccessMillis()
+                + ",\"rssKb\":" + run.rssKilobytes() + ",\"peakRssKb\":" + run.peakRssKilobytes() + "}"));
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, json.toString());
+    }
+
+    private record Run(long listeningMillis, long firstSuccessMillis, long rssKilobytes, long peakRssKilobytes) {
+    }
+}
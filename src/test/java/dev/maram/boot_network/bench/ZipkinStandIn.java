@@ -0,0 +1,91 @@
+package dev.maram.boot_network.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for a Zipkin collector: accepts {@code POST /api/v2/spans} (JSON v2, optionally gzipped) and keeps
+ * the received spans in memory. Used by the tracing tests, and on its own to watch what a running instance reports
+ * without a real Zipkin:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:java -Dbench.main=dev.maram.boot_network.bench.ZipkinStandIn
+ * </pre>
+ */
+public class ZipkinStandIn implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ConcurrentLinkedQueue<Map<String, Object>> spans = new ConcurrentLinkedQueue<>();
+
+    public ZipkinStandIn(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/api/v2/spans", this::accept);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (ZipkinStandIn collector = new ZipkinStandIn(Integer.getInteger("bench.zipkin-port", 9411))) {
+            System.out.println("Collecting spans on " + collector.endpoint());
+            long reported = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(5_000);
+                List<Map<String, Object>> received = collector.spans();
+                long errors = received.stream().filter(ZipkinStandIn::hasError).count();
+                System.out.printf("%d spans received (+%d), %d with an error tag%n", received.size(), received.size() - reported, errors);
+                reported = received.size();
+            }
+        }
+    }
+
+    public URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/api/v2/spans");
+    }
+
+    public List<Map<String, Object>> spans() {
+        return List.copyOf(spans);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static boolean hasError(Map<String, Object> span) {
+        Object tags = span.get("tags");
+        return tags instanceof Map<?, ?> map && ((Map<String, Object>) map).containsKey("error");
+    }
+
+    private void accept(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            InputStream body = exchange.getRequestBody();
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                body = new GZIPInputStream(body);
+            }
+            spans.addAll(MAPPER.readValue(body, new TypeReference<List<Map<String, Object>>>() {
+            }));
+            exchange.sendResponseHeaders(202, -1);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
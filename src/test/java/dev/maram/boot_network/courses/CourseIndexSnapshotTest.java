@@ -0,0 +1,69 @@
+package dev.maram.boot_network.courses;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseIndexSnapshotTest {
+
+    private static final CourseSummary JAVA = new CourseSummary(1, "CS-101", "Introduction to Java", "Ada Lovelace", 0);
+    private static final CourseSummary JAVASCRIPT = new CourseSummary(2, "WEB-110", "JavaScript for the Web", "Grace Hopper", 0);
+    private static final CourseSummary ADVANCED_JAVA = new CourseSummary(3, "CS-301", "Advanced Java", "Alan Turing", 0);
+    private static final CourseSummary CAFE = new CourseSummary(4, "HOS-200", "Café Management", "Ada Lovelace", 0);
+
+    private final CourseIndexSnapshot snapshot = CourseIndexSnapshot.build(List.of(CAFE, ADVANCED_JAVA, JAVA, JAVASCRIPT));
+
+    @Test
+    void lastWordIsAPrefixWhileBeingTyped() {
+        assertEquals(List.of(JAVA, JAVASCRIPT, ADVANCED_JAVA), snapshot.search("jav", 10));
+        assertEquals(List.of(JAVA, ADVANCED_JAVA), snapshot.search("java ", 10));
+        assertEquals(List.of(ADVANCED_JAVA), snapshot.search("advanced ja", 10));
+        assertEquals(List.of(), snapshot.search("advanced web", 10));
+    }
+
+    @Test
+    void matchesCodeInstructorAndAccents() {
+        assertEquals(List.of(ADVANCED_JAVA), snapshot.search("cs 301", 10));
+        assertEquals(List.of(JAVA, CAFE), snapshot.search("lovelace", 10));
+        assertEquals(List.of(CAFE), snapshot.search("CAFE", 10));
+        assertEquals(List.of(JAVA), snapshot.search("lovelace java", 1));
+    }
+
+    @Test
+    void completesWithTheMostFrequentWordsFirst() {
+        assertEquals(List.of(new CourseCompletion("java", 2), new CourseCompletion("javascript", 1)),
+                snapshot.complete("learn ja", 10));
+        assertEquals(List.of(new CourseCompletion("ada", 2)), snapshot.complete("a", 1));
+    }
+
+    @Test
+    void changesProduceANewSnapshotAndLeaveTheOldOneAlone() {
+        CourseSummary renamed = new CourseSummary(1, "CS-101", "Introduction to Kotlin", "Ada Lovelace", 1);
+        CourseSummary added = new CourseSummary(5, "CS-102", "Java Streams", "Ada Lovelace", 0);
+
+        CourseIndexSnapshot changed = snapshot.with(List.of(
+                CourseIndexSnapshot.Change.of(JAVA, renamed),
+                CourseIndexSnapshot.Change.of(null, added),
+                CourseIndexSnapshot.Change.of(CAFE, null)));
+
+        assertEquals(List.of(ADVANCED_JAVA, added), changed.search("java ", 10));
+        assertEquals(List.of(renamed), changed.search("kot", 10));
+        assertEquals(List.of(), changed.search("cafe", 10));
+        assertEquals(List.of(renamed, added), changed.search("lovelace", 10));
+        assertEquals(4, changed.size());
+
+        assertEquals(List.of(JAVA, ADVANCED_JAVA), snapshot.search("java ", 10));
+        assertEquals(List.of(CAFE), snapshot.search("cafe", 10));
+        assertEquals(4, snapshot.size());
+    }
+
+    @Test
+    void removedWordsLeaveNoCompletionBehind() {
+        CourseIndexSnapshot changed = snapshot.with(List.of(CourseIndexSnapshot.Change.of(JAVASCRIPT, null)));
+
+        assertEquals(List.of(new CourseCompletion("java", 2)), changed.complete("jav", 10));
+        assertEquals(List.of(), changed.complete("hopper", 10));
+    }
+}
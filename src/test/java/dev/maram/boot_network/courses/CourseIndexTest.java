@@ -0,0 +1,56 @@
+package dev.maram.boot_network.courses;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CourseIndexTest {
+
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final CourseIndex index = new CourseIndex(courseRepository);
+
+    CourseIndexTest() throws InterruptedException {
+        ReflectionTestUtils.setField(index, "pageSize", 1000);
+        ReflectionTestUtils.setField(index, "retryInterval", Duration.ofSeconds(1));
+        when(courseRepository.findSummariesAfter(anyInt(), any(Limit.class)))
+                .thenReturn(List.of(course(1, "Introduction to Java", 3)));
+        index.build();
+    }
+
+    @Test
+    void anEventOvertakenByALaterChangeIsDropped() {
+        index.onCourseChanged(changed(course(1, "Introduction to Kotlin", 5)));
+        index.onCourseChanged(changed(course(1, "Introduction to Scala", 4)));
+        // already read by the build
+        index.onCourseChanged(changed(course(1, "Introduction to Java", 3)));
+
+        assertEquals(List.of(course(1, "Introduction to Kotlin", 5)), index.search("introduction", 10));
+        assertTrue(index.search("scala", 10).isEmpty());
+    }
+
+    @Test
+    void anUpdateArrivingAfterTheDeletionDoesNotBringTheCourseBack() {
+        index.onCourseChanged(new CourseChangedEvent(1, null, 4));
+        index.onCourseChanged(changed(course(1, "Introduction to Kotlin", 4)));
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("kotlin", 10).isEmpty());
+    }
+
+    private static CourseChangedEvent changed(CourseSummary course) {
+        return new CourseChangedEvent(course.id(), course, course.version());
+    }
+
+    private static CourseSummary course(int id, String title, long version) {
+        return new CourseSummary(id, "CS-" + id, title, "Ada Lovelace", version);
+    }
+}
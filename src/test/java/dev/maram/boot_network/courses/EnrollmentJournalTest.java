@@ -0,0 +1,65 @@
+package dev.maram.boot_network.courses;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void aBatchNotCommittedBeforeARestartIsReadAgainAsReplayed() throws IOException {
+        try (EnrollmentJournal journal = EnrollmentJournal.open(directory, 4, 8)) {
+            for (int userId = 1; userId <= 10; userId++) {
+                assertTrue(journal.append(EnrollmentJournal.ENROLL, 1, userId, userId));
+            }
+            EnrollmentJournal.Batch written = journal.read(6);
+            assertFalse(written.replayed());
+            journal.commit(written);
+            assertEquals(4, journal.read(100).entries().size()); // read, then the process dies
+        }
+
+        try (EnrollmentJournal journal = EnrollmentJournal.open(directory, 4, 8)) {
+            assertTrue(journal.append(EnrollmentJournal.CANCEL, 1, 7, 11));
+
+            EnrollmentJournal.Batch replayed = journal.read(100);
+            assertTrue(replayed.replayed());
+            assertEquals(List.of(7, 8, 9, 10, 7), replayed.entries().stream().map(EnrollmentJournal.Entry::userId).toList());
+            assertEquals(EnrollmentJournal.CANCEL, replayed.entries().get(4).operation());
+            journal.commit(replayed);
+            assertEquals(0, journal.pending());
+        }
+    }
+
+    @Test
+    void pendingRecordsOfACourseAreListedInOrder() throws IOException {
+        try (EnrollmentJournal journal = EnrollmentJournal.open(directory, 4, 8)) {
+            journal.append(EnrollmentJournal.ENROLL, 1, 10, 0);
+            journal.append(EnrollmentJournal.ENROLL, 2, 10, 0);
+            journal.append(EnrollmentJournal.CANCEL, 1, 10, 0);
+
+            assertEquals(List.of(new EnrollmentJournal.Entry(EnrollmentJournal.ENROLL, 1, 10, 0),
+                    new EnrollmentJournal.Entry(EnrollmentJournal.CANCEL, 1, 10, 0)), journal.pending(1));
+        }
+    }
+
+    @Test
+    void refusesRecordsOnceFull() throws IOException {
+        try (EnrollmentJournal journal = EnrollmentJournal.open(directory, 4, 2)) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(journal.append(EnrollmentJournal.ENROLL, 1, i, 0));
+            }
+            assertFalse(journal.append(EnrollmentJournal.ENROLL, 1, 8, 0));
+
+            journal.commit(journal.read(4));
+            assertTrue(journal.append(EnrollmentJournal.ENROLL, 1, 8, 0));
+        }
+    }
+}
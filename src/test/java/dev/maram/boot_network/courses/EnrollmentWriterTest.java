@@ -0,0 +1,149 @@
+package dev.maram.boot_network.courses;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class EnrollmentWriterTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private JdbcTemplate jdbcTemplate;
+    private EnrollmentWriter writer;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table course (id int primary key, capacity int not null)");
+        jdbcTemplate.execute("""
+                create table enrollment (
+                    course_id int not null,
+                    user_id int not null,
+                    enrolled_date timestamp,
+                    primary key (course_id, user_id)
+                )""");
+        jdbcTemplate.execute("""
+                create table enrollment_rejection (
+                    course_id int not null,
+                    user_id int not null,
+                    rejected_date timestamp not null,
+                    primary key (course_id, user_id)
+                )""");
+
+        writer = new EnrollmentWriter(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                mock(EnrollmentRepository.class));
+        ReflectionTestUtils.setField(writer, "directory", journalDirectory.toString());
+        ReflectionTestUtils.setField(writer, "segmentRecords", 64);
+        ReflectionTestUtils.setField(writer, "maxSegments", 8);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "interval", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(writer, "maxBackoff", Duration.ofMillis(50));
+        writer.start();
+        registry = new SimpleMeterRegistry();
+        writer.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.stop();
+    }
+
+    @Test
+    void enrollmentsBeyondTheCapacityAreRejectedAndTheirCourseReloaded() throws Exception {
+        jdbcTemplate.update("insert into course (id, capacity) values (1, 3), (2, 3)");
+        // two seats of course 1 taken through another node
+        jdbcTemplate.update("insert into enrollment (course_id, user_id) values (1, 100), (1, 101)");
+        Set<Integer> reloaded = ConcurrentHashMap.newKeySet();
+        writer.onRejected(reloaded::add);
+
+        for (int userId = 10; userId < 13; userId++) {
+            assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, userId, System.currentTimeMillis()));
+            assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 2, userId, System.currentTimeMillis()));
+        }
+
+        // rejections are reported once their batch is committed
+        await(() -> writer.journal().pending() == 0 && rejected() == 2 && !reloaded.isEmpty());
+        assertEquals(3, count(1));
+        assertEquals(List.of(10), jdbcTemplate.queryForList(
+                "select user_id from enrollment where course_id = 1 and user_id < 100", Integer.class));
+        assertEquals(3, count(2));
+        assertEquals(Set.of(1), reloaded);
+        assertEquals(EnrollmentStatus.State.ENROLLED, writer.status(1, 10));
+        assertEquals(EnrollmentStatus.State.REJECTED, writer.status(1, 11));
+        assertEquals(EnrollmentStatus.State.REJECTED, writer.status(1, 12));
+        assertNull(writer.status(1, 13));
+    }
+
+    @Test
+    void aRejectionIsClearedByTheNextChangeOfTheEnrollment() throws Exception {
+        jdbcTemplate.update("insert into course (id, capacity) values (1, 1)");
+        jdbcTemplate.update("insert into enrollment (course_id, user_id) values (1, 100)");
+        assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, 10, System.currentTimeMillis()));
+        await(() -> writer.journal().pending() == 0 && rejected() == 1);
+        assertEquals(EnrollmentStatus.State.REJECTED, writer.status(1, 10));
+
+        // a seat is freed, the student enrolls again
+        jdbcTemplate.update("delete from enrollment where user_id = 100");
+        assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, 10, System.currentTimeMillis()));
+        await(() -> writer.journal().pending() == 0);
+
+        assertEquals(EnrollmentStatus.State.ENROLLED, writer.status(1, 10));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from enrollment_rejection", Integer.class));
+    }
+
+    @Test
+    void aStudentEnrolledTwiceIsNoDuplicateAndNoRefusal() throws Exception {
+        jdbcTemplate.update("insert into course (id, capacity) values (1, 3)");
+        // enrolled through another node
+        jdbcTemplate.update("insert into enrollment (course_id, user_id) values (1, 10)");
+
+        assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, 10, System.currentTimeMillis()));
+        await(() -> writer.journal().pending() == 0);
+        // the same student again in a later batch, a state forgotten in between
+        assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, 10, System.currentTimeMillis()));
+        assertTrue(writer.journal().append(EnrollmentJournal.ENROLL, 1, 11, System.currentTimeMillis()));
+        await(() -> writer.journal().pending() == 0);
+
+        assertEquals(2, count(1));
+        assertEquals(0.0, rejected());
+        assertEquals(0.0, registry.get("enrollment.write.failures").functionCounter().count());
+    }
+
+    private double rejected() {
+        return registry.get("enrollment.rejected").functionCounter().count();
+    }
+
+    private int count(int courseId) {
+        return jdbcTemplate.queryForObject("select count(*) from enrollment where course_id = ?", Integer.class, courseId);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
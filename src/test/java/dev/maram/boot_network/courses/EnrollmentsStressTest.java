@@ -0,0 +1,166 @@
+package dev.maram.boot_network.courses;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentsStressTest {
+
+    private static final int COURSE = 7;
+    private static final int THREADS = 16;
+
+    @TempDir
+    Path journalDirectory;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private EnrollmentJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void aRushOnTheLastSeatsEnrollsExactlyTheCapacity() throws Exception {
+        int capacity = 100;
+        int students = 5_000;
+        // small segments, so that appending threads create them concurrently
+        Enrollments enrollments = open(capacity, 8, 16);
+        Map<Enrollments.Outcome, LongAdder> outcomes = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int first = thread;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int userId = first; userId < students; userId += THREADS) {
+                    outcomes.computeIfAbsent(enrollments.enroll(COURSE, userId), outcome -> new LongAdder()).increment();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(1, TimeUnit.MINUTES);
+        }
+
+        assertEquals(capacity, outcomes.get(Enrollments.Outcome.ENROLLED).sum());
+        assertEquals(students - capacity, outcomes.get(Enrollments.Outcome.FULL).sum());
+        assertEquals(new CourseSeats(COURSE, capacity, capacity, 0), enrollments.seats(COURSE));
+        assertEquals(capacity, replay().size());
+    }
+
+    @Test
+    void enrollmentsAndCancellationsNeverOverbookAndTheJournalAgrees() throws Exception {
+        int capacity = 50;
+        int studentsPerThread = 25; // 400 students for 50 seats
+        Enrollments enrollments = open(capacity, 4, 4096);
+        // seats known to be held: raised after an enrollment, lowered before a cancellation, never above what the
+        // engine counts as taken
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Set<Integer>>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int first = thread * studentsPerThread;
+            tasks.add(executor.submit(() -> {
+                // each thread owns its students, so it knows which of them are enrolled
+                Set<Integer> enrolled = new HashSet<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    int userId = first + random.nextInt(studentsPerThread);
+                    if (enrolled.contains(userId)) {
+                        held.decrementAndGet();
+                        assertEquals(Enrollments.Outcome.CANCELLED, enrollments.cancel(COURSE, userId));
+                        enrolled.remove(userId);
+                    } else {
+                        Enrollments.Outcome outcome = enrollments.enroll(COURSE, userId);
+                        if (outcome == Enrollments.Outcome.ENROLLED) {
+                            maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                            enrolled.add(userId);
+                        } else {
+                            assertEquals(Enrollments.Outcome.FULL, outcome);
+                        }
+                    }
+                }
+                return enrolled;
+            }));
+        }
+        start.countDown();
+        Set<Integer> enrolled = new HashSet<>();
+        for (Future<Set<Integer>> task : tasks) {
+            enrolled.addAll(task.get(1, TimeUnit.MINUTES));
+        }
+
+        assertTrue(maxHeld.get() <= capacity, "held " + maxHeld.get() + " seats of " + capacity);
+        assertEquals(new CourseSeats(COURSE, capacity, enrolled.size(), capacity - enrolled.size()), enrollments.seats(COURSE));
+        assertEquals(enrolled, replay());
+
+        // what a restart would load: the same students and free seats
+        Enrollments restarted = new Enrollments(journal, courseId -> new Enrollments.Roster(capacity, replay()), 4);
+        assertEquals(enrollments.seats(COURSE), restarted.seats(COURSE));
+    }
+
+    @Test
+    void aReducedCapacityIsOwedUntilEnoughStudentsCancel() {
+        SeatCounter seats = new SeatCounter(10, 8, 4);
+
+        seats.resize(5);
+        assertEquals(0, seats.available());
+        assertFalse(seats.tryTake());
+
+        for (int i = 0; i < 3; i++) {
+            seats.release();
+        }
+        assertFalse(seats.tryTake());
+        seats.release();
+        assertTrue(seats.tryTake());
+        assertFalse(seats.tryTake());
+
+        seats.resize(20);
+        assertEquals(15, seats.available());
+    }
+
+    private Enrollments open(int capacity, int stripes, int segmentRecords) throws IOException {
+        journal = EnrollmentJournal.open(journalDirectory, segmentRecords, 256);
+        return new Enrollments(journal, courseId -> new Enrollments.Roster(capacity, List.of()), stripes);
+    }
+
+    private Set<Integer> replay() {
+        Set<Integer> students = new HashSet<>();
+        for (EnrollmentJournal.Entry entry : journal.read(Integer.MAX_VALUE).entries()) {
+            assertEquals(COURSE, entry.courseId());
+            if (entry.operation() == EnrollmentJournal.ENROLL) {
+                assertTrue(students.add(entry.userId()), "enrolled twice: " + entry.userId());
+            } else {
+                assertTrue(students.remove(entry.userId()), "cancelled while not enrolled: " + entry.userId());
+            }
+        }
+        return students;
+    }
+}
@@ -0,0 +1,187 @@
+package dev.maram.boot_network.idempotency;
+
+import dev.maram.boot_network.bench.RedisStandIn;
+import dev.maram.boot_network.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdempotencyFilterTest {
+
+    // answers like GlobalExceptionHandler, with the status of the error code
+    private static final HandlerExceptionResolver RESOLVER = (request, response, handler, e) -> {
+        response.setStatus(((BusinessException) e).getErrorCode().getHttpStatus().value());
+        return new ModelAndView();
+    };
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private volatile int status = 201;
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+
+    // the handler: counts its runs and answers with the request body
+    private final FilterChain chain = (request, response) -> {
+        runs.incrementAndGet();
+        byte[] body = request.getInputStream().readAllBytes();
+        try {
+            hold.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        response.setContentType("application/json");
+        ((HttpServletResponse) response).setStatus(status);
+        response.getOutputStream().write(body);
+    };
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void retry_getsTheStoredResponse() throws Exception {
+        IdempotencyFilter filter = filter(new InMemoryIdempotencyStore());
+
+        MockHttpServletResponse first = send(filter, "key-1", "{\"email\":\"a@b.c\"}");
+        MockHttpServletResponse retry = send(filter, "key-1", "{\"email\":\"a@b.c\"}");
+
+        assertEquals(1, runs.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    void sameKeyWithAnotherBody_isRejected() throws Exception {
+        IdempotencyFilter filter = filter(new InMemoryIdempotencyStore());
+
+        send(filter, "key-1", "{\"email\":\"a@b.c\"}");
+        MockHttpServletResponse other = send(filter, "key-1", "{\"email\":\"x@y.z\"}");
+
+        assertEquals(1, runs.get());
+        assertEquals(422, other.getStatus());
+    }
+
+    @Test
+    void serverError_isNotStored() throws Exception {
+        IdempotencyFilter filter = filter(new InMemoryIdempotencyStore());
+
+        status = 503;
+        send(filter, "key-1", "{}");
+        status = 201;
+        MockHttpServletResponse retry = send(filter, "key-1", "{}");
+
+        assertEquals(2, runs.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    void duplicateInFlight_waitsForTheFirstResponse() throws Exception {
+        IdempotencyFilter filter = filter(new InMemoryIdempotencyStore());
+        hold = new CountDownLatch(1);
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> sendUnchecked(filter));
+        while (runs.get() == 0) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> sendUnchecked(filter));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone(), "the duplicate waits while the first request runs");
+        hold.countDown();
+
+        assertEquals(201, first.get(10, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = duplicate.get(10, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("true", replayed.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keys_areScopedToTheCaller() throws Exception {
+        IdempotencyFilter filter = filter(new InMemoryIdempotencyStore());
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("a@b.c", null, List.of()));
+        send(filter, "key-1", "{}");
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("x@y.z", null, List.of()));
+        MockHttpServletResponse other = send(filter, "key-1", "{}");
+
+        assertEquals(2, runs.get());
+        assertNull(other.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    void invalidKey_isRejected() throws Exception {
+        MockHttpServletResponse response = send(filter(new InMemoryIdempotencyStore()), "two words", "{}");
+
+        assertEquals(0, runs.get());
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    void redisStore_replaysTheStoredResponse() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn(0)) {
+            LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration("localhost", redis.port()));
+            connectionFactory.afterPropertiesSet();
+            try {
+                IdempotencyFilter filter = filter(new RedisIdempotencyStore(connectionFactory));
+
+                send(filter, "key-1", "{\"email\":\"a@b.c\"}");
+                MockHttpServletResponse retry = send(filter, "key-1", "{\"email\":\"a@b.c\"}");
+
+                assertEquals(1, runs.get());
+                assertEquals("{\"email\":\"a@b.c\"}", retry.getContentAsString());
+                assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED));
+                assertEquals(1, redis.size());
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    private IdempotencyFilter filter(IdempotencyStore store) {
+        return new IdempotencyFilter(store, RESOLVER, Duration.ofHours(1), Duration.ofSeconds(30),
+                Duration.ofSeconds(5), 1024, new SimpleMeterRegistry());
+    }
+
+    private MockHttpServletResponse send(IdempotencyFilter filter, String key, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/register");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse sendUnchecked(IdempotencyFilter filter) {
+        try {
+            return send(filter, "key-1", "{}");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.maram.boot_network.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+
+    @BeforeEach
+    void setUp() {
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.DEBUG);
+        filter.setContext(context);
+        filter.addRule("dev.maram.boot_network.security=0");
+        filter.addRule("dev.maram.boot_network.security.JwtService=1.0");
+        filter.start();
+    }
+
+    @Test
+    void dropsInfoOfASilencedCategory() {
+        assertEquals(FilterReply.DENY, decide("dev.maram.boot_network.security.JwtFilter", Level.INFO, null, null));
+    }
+
+    @Test
+    void mostSpecificRuleWins() {
+        assertEquals(FilterReply.NEUTRAL, decide("dev.maram.boot_network.security.JwtService", Level.INFO, null, null));
+    }
+
+    @Test
+    void keepsWarningsAndExceptions() {
+        String logger = "dev.maram.boot_network.security.JwtFilter";
+        assertEquals(FilterReply.NEUTRAL, decide(logger, Level.WARN, null, null));
+        assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, null, new IllegalStateException()));
+        assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, new Object[]{"id", new IllegalStateException()}, null));
+    }
+
+    @Test
+    void leavesUnmatchedLoggersAlone() {
+        assertEquals(FilterReply.NEUTRAL, decide("org.hibernate.SQL", Level.INFO, null, null));
+    }
+
+    private FilterReply decide(String logger, Level level, Object[] params, Throwable t) {
+        return filter.decide(null, context.getLogger(logger), level, "message", params, t);
+    }
+}
@@ -0,0 +1,140 @@
+package dev.maram.boot_network.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import dev.maram.boot_network.bench.LokiStandIn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpoolingLokiAppenderTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("dev.maram.boot_network.test");
+    private LokiStandIn loki;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        loki = new LokiStandIn(0);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAndStopAllAppenders();
+        loki.close();
+    }
+
+    @Test
+    void shipsEventsWithTheStaticLabels() {
+        SpoolingLokiAppender appender = start(loki.endpoint().toString(), "64KB", "1MB");
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("event \"{}\"", i);
+        }
+
+        await(() -> loki.entries().size() == 100);
+        LokiStandIn.Entry first = loki.entries().get(0);
+        assertEquals("{\"app\":\"boot-network\",\"env\":\"test\"}", first.labels());
+        assertEquals("INFO event \"0\"", first.line());
+        assertEquals(0, appender.dropped());
+    }
+
+    @Test
+    void keepsEventsThroughAnOutage() {
+        loki.failNext(3);
+        SpoolingLokiAppender appender = start(loki.endpoint().toString(), "64KB", "1MB");
+
+        for (int i = 0; i < 50; i++) {
+            logger.info("event {}", i);
+        }
+
+        await(() -> loki.entries().size() == 50);
+        assertTrue(appender.failures() >= 3);
+        assertEquals(List.of("INFO event 0", "INFO event 49"),
+                List.of(loki.entries().get(0).line(), loki.entries().get(49).line()));
+    }
+
+    @Test
+    void resumesSpooledEventsAfterARestart() {
+        // nothing listens there, the events stay in the spool
+        SpoolingLokiAppender offline = start("http://localhost:1/loki/api/v1/push", "4KB", "1MB");
+        for (int i = 0; i < 200; i++) {
+            logger.info("before restart {}", i);
+        }
+        logger.detachAndStopAllAppenders();
+        assertTrue(offline.pendingBytes() > 0);
+
+        start(loki.endpoint().toString(), "4KB", "1MB");
+
+        await(() -> loki.entries().size() == 200);
+        assertEquals("INFO before restart 199", loki.entries().get(199).line());
+    }
+
+    @Test
+    void dropsInsteadOfBlockingWhenTheSpoolIsFull() {
+        loki.failNext(Integer.MAX_VALUE);
+        SpoolingLokiAppender appender = start(loki.endpoint().toString(), "1KB", "2KB");
+
+        for (int i = 0; i < 500; i++) {
+            logger.info("event {}", i);
+        }
+
+        assertTrue(appender.dropped() > 0);
+        assertTrue(appender.pendingBytes() <= 2048);
+    }
+
+    private SpoolingLokiAppender start(String url, String segmentSize, String maxSpoolSize) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%level %msg%n");
+        encoder.start();
+
+        SpoolingLokiAppender appender = new SpoolingLokiAppender();
+        appender.setContext(context);
+        appender.setName("LOKI");
+        appender.setUrl(url);
+        appender.setLabels("app=boot-network, env=test");
+        appender.setSpoolDirectory(spoolDirectory.toString());
+        appender.setSegmentSize(FileSize.valueOf(segmentSize));
+        appender.setMaxSpoolSize(FileSize.valueOf(maxSpoolSize));
+        appender.setPollInterval(Duration.buildByMilliseconds(20));
+        appender.setMaxBackoff(Duration.buildByMilliseconds(50));
+        appender.setFlushTimeout(Duration.buildByMilliseconds(200));
+        appender.setRequestTimeout(Duration.buildByMilliseconds(500));
+        appender.setEncoder(encoder);
+        appender.start();
+        logger.addAppender(appender);
+        return appender;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() - deadline < 0, "condition not met within 10s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.maram.boot_network.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotPathStatsTest {
+
+    @Test
+    void reportsPercentilesOfTheLastIntervalOnly() {
+        HotPathStats stats = new HotPathStats();
+        LatencyStats jwt = stats.jwtVerify();
+        for (int i = 1; i <= 100; i++) {
+            jwt.record(i * 1_000_000L);
+        }
+        assertEquals(0, jwt.snapshot().p99Ms());
+
+        stats.rotate();
+        LatencyStats.Snapshot first = jwt.snapshot();
+        assertEquals(100, first.count());
+        assertEquals(99, first.p99Ms(), 1.0);
+        assertTrue(first.ratePerSecond() > 0);
+
+        stats.rotate();
+        LatencyStats.Snapshot second = jwt.snapshot();
+        assertEquals(100, second.count());
+        assertEquals(0, second.ratePerSecond());
+    }
+
+    @Test
+    void countsHitsMissesAndTheLoadAfterAMiss() {
+        HotPathStats stats = new HotPathStats();
+        CacheStats users = stats.cache("users");
+
+        users.lookup(System.nanoTime(), key(1), true);
+        users.lookup(System.nanoTime(), key(2), false);
+        users.put(System.nanoTime(), key(2));
+        users.lookups(System.nanoTime(), 3, 1);
+        stats.rotate();
+
+        CacheStats.Snapshot snapshot = stats.cacheSnapshots().get("users");
+        assertEquals(4, snapshot.hits());
+        assertEquals(2, snapshot.misses());
+        assertEquals(4 / 6.0, snapshot.hitRatio(), 1e-9);
+        assertEquals(1, snapshot.loads().count());
+        assertEquals(4, snapshot.lookups().count());
+    }
+
+    @Test
+    void missWhoseLoaderThrew_isNotTimedUpToALaterPut() {
+        HotPathStats stats = new HotPathStats();
+        CacheStats users = stats.cache("users");
+
+        users.lookup(System.nanoTime(), key(1), false);
+        // the loader threw, nothing was put for key 1
+        users.put(System.nanoTime(), key(2));
+        users.lookup(System.nanoTime(), key(3), false);
+        // the loader threw again, the next put is of the same key but follows another lookup
+        users.lookup(System.nanoTime(), key(4), true);
+        users.put(System.nanoTime(), key(3));
+        stats.rotate();
+
+        CacheStats.Snapshot snapshot = stats.cacheSnapshots().get("users");
+        assertEquals(2, snapshot.misses());
+        assertEquals(0, snapshot.loads().count());
+    }
+
+    private static byte[] key(int userId) {
+        return ("users::" + userId).getBytes(StandardCharsets.UTF_8);
+    }
+}
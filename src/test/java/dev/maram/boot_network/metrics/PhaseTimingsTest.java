@@ -0,0 +1,48 @@
+package dev.maram.boot_network.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhaseTimingsTest {
+
+    @AfterEach
+    void tearDown() {
+        PhaseTimings.end();
+    }
+
+    @Test
+    void isANoOpOutsideOfARequest() {
+        long start = PhaseTimings.start();
+        PhaseTimings.stop(RequestPhase.DB, start);
+
+        assertEquals(0L, start);
+        assertNull(PhaseTimings.currentServerTiming());
+    }
+
+    @Test
+    void accumulatesRepeatedPhases() {
+        PhaseTimings timings = PhaseTimings.begin();
+        PhaseTimings.stop(RequestPhase.DB, PhaseTimings.start());
+        PhaseTimings.stop(RequestPhase.DB, PhaseTimings.start());
+        timings.finish();
+
+        assertTrue(timings.seen(RequestPhase.DB));
+        assertTrue(timings.nanos(RequestPhase.TOTAL) >= timings.nanos(RequestPhase.DB));
+        assertFalse(timings.seen(RequestPhase.CACHE));
+    }
+
+    @Test
+    void listsOnlyMeasuredPhasesInServerTiming() {
+        PhaseTimings.begin();
+        PhaseTimings.stop(RequestPhase.PASSWORD_HASH, PhaseTimings.start());
+
+        String header = PhaseTimings.currentServerTiming();
+
+        assertTrue(header.matches("password-hash;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"), header);
+    }
+}
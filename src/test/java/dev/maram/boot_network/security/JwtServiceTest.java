@@ -0,0 +1,129 @@
+package dev.maram.boot_network.security;
+
+import dev.maram.boot_network.role.Role;
+import dev.maram.boot_network.role.RoleRepository;
+import dev.maram.boot_network.user.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtServiceTest {
+
+    private static final String SECRET_KEY = "55647a4f7c02d28dd27d54c250bee89714ec2e0e93e02b7e40b605a813d824d2";
+
+    private final List<Role> roles = new ArrayList<>(List.of(role(1, "USER"), role(2, "ADMIN")));
+    private final AuthorityCodec authorityCodec = new AuthorityCodec(roleRepository());
+
+    private final User user = User.builder()
+            .firstName("Ada")
+            .lastName("Lovelace")
+            .email("ada@mail.com")
+            .roles(List.of(roles.get(0), roles.get(1)))
+            .build();
+
+    @Test
+    void compactTokensCarryTheRolesAsABitmaskAndShortClaimNames() {
+        JwtService jwtService = jwtService(JwtService.Format.COMPACT, true);
+        String compact = jwtService.generateToken(Map.of(JwtService.FULL_NAME, user.fullName()), user);
+        String standard = jwtService(JwtService.Format.STANDARD, true)
+                .generateToken(Map.of(JwtService.FULL_NAME, user.fullName()), user);
+
+        Claims claims = jwtService.parse(compact);
+        assertEquals("ada@mail.com", claims.getSubject());
+        assertEquals(user.fullName(), claims.get("n"));
+        assertEquals(3, ((Number) claims.get("r")).intValue());
+        assertNull(claims.get("authorities"));
+        assertTrue(jwtService.isTokenValid(claims, user));
+        assertEquals(authorities("USER", "ADMIN"), jwtService.extractAuthorities(claims));
+        assertTrue(compact.length() < standard.length());
+    }
+
+    @Test
+    void decodedAuthoritiesAreSharedInstances() {
+        JwtService jwtService = jwtService(JwtService.Format.COMPACT, true);
+        String token = jwtService.generateToken(user);
+
+        List<GrantedAuthority> first = jwtService.extractAuthorities(jwtService.parse(token));
+        List<GrantedAuthority> second = jwtService.extractAuthorities(jwtService.parse(jwtService.generateToken(user)));
+        assertSame(first, second);
+
+        // tokens issued before the switch
+        String standard = jwtService(JwtService.Format.STANDARD, true).generateToken(user);
+        List<GrantedAuthority> decoded = jwtService.extractAuthorities(jwtService.parse(standard));
+        assertEquals(first, decoded);
+        assertSame(first.get(0), decoded.get(0));
+    }
+
+    @Test
+    void displayClaimsCanBeLeftOut() {
+        JwtService jwtService = jwtService(JwtService.Format.COMPACT, false);
+        Claims claims = jwtService.parse(jwtService.generateToken(Map.of(JwtService.FULL_NAME, user.fullName()), user));
+
+        assertNull(claims.get("n"));
+        assertNull(claims.get(JwtService.FULL_NAME));
+    }
+
+    @Test
+    void tokensOfAnotherRoleTableFallBackToTheUser() {
+        JwtService jwtService = jwtService(JwtService.Format.COMPACT, true);
+        String token = jwtService.generateToken(user);
+
+        // a node that reads a role table with other roles in it
+        roles.add(role(3, "AUDITOR"));
+        JwtService otherNode = new JwtService(new AuthorityCodec(roleRepository()));
+        configure(otherNode, JwtService.Format.COMPACT, true);
+
+        assertNull(otherNode.extractAuthorities(otherNode.parse(token)));
+    }
+
+    @Test
+    void rolesMissingFromTheTableAreWrittenOut() {
+        JwtService jwtService = jwtService(JwtService.Format.COMPACT, true);
+        User auditor = User.builder().email("auditor@mail.com").roles(List.of(role(9, "AUDITOR"))).build();
+
+        Claims claims = jwtService.parse(jwtService.generateToken(auditor));
+
+        assertNull(claims.get("r"));
+        assertEquals(authorities("AUDITOR"), jwtService.extractAuthorities(claims));
+    }
+
+    private JwtService jwtService(JwtService.Format format, boolean displayClaims) {
+        JwtService jwtService = new JwtService(authorityCodec);
+        configure(jwtService, format, displayClaims);
+        return jwtService;
+    }
+
+    private static void configure(JwtService jwtService, JwtService.Format format, boolean displayClaims) {
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "format", format);
+        ReflectionTestUtils.setField(jwtService, "displayClaims", displayClaims);
+        jwtService.init();
+    }
+
+    private RoleRepository roleRepository() {
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAll(any(Sort.class))).thenReturn(List.copyOf(roles));
+        return roleRepository;
+    }
+
+    private static Role role(int id, String name) {
+        return Role.builder().id(id).name(name).build();
+    }
+
+    private static List<GrantedAuthority> authorities(String... names) {
+        return List.of(names).stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package dev.maram.boot_network.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveSamplerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AdaptiveSampler sampler = new AdaptiveSampler(100, 0.001, Duration.ofSeconds(1), clock::get);
+
+    @Test
+    void lowersTheProbabilityToTheSpanBudget() {
+        // 10,000 traces per second of 4 spans each, 100 spans per second fit 25 traces
+        for (int second = 0; second < 5; second++) {
+            offer(10_000, 4);
+        }
+
+        assertEquals(0.0025, sampler.probability(), 0.0005);
+    }
+
+    @Test
+    void leavesTheBudgetUsedByTheTailSamplerOut() {
+        for (int second = 0; second < 5; second++) {
+            sampler.recordTailKeptSpans(60);
+            offer(1_000, 1);
+        }
+
+        assertEquals(0.04, sampler.probability(), 0.01);
+    }
+
+    @Test
+    void samplesEverythingWhileUnderBudget() {
+        offer(10, 2);
+        offer(10, 2);
+
+        assertEquals(1.0, sampler.probability());
+    }
+
+    // one second of traffic: the given traces, and the spans of the sampled ones as the tail handler would count them
+    private void offer(int traces, int spansPerTrace) {
+        for (int i = 0; i < traces; i++) {
+            if (sampler.isSampled(ThreadLocalRandom.current().nextLong())) {
+                for (int span = 0; span < spansPerTrace; span++) {
+                    sampler.recordReportedSpan();
+                }
+            }
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        sampler.isSampled(0); // the adjustment happens on the first decision of the next window
+    }
+}
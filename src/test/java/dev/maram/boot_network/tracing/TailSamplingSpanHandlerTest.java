@@ -0,0 +1,138 @@
+package dev.maram.boot_network.tracing;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import dev.maram.boot_network.bench.ZipkinStandIn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import zipkin2.reporter.BytesMessageSender;
+import zipkin2.reporter.Encoding;
+import zipkin2.reporter.brave.AsyncZipkinSpanHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailSamplingSpanHandlerTest {
+
+    private ZipkinStandIn collector;
+    private AsyncZipkinSpanHandler zipkin;
+    private TailSamplingSpanHandler tailSampler;
+    private Tracing tracing;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        collector = new ZipkinStandIn(0);
+        zipkin = AsyncZipkinSpanHandler.newBuilder(new HttpSender(collector.endpoint()))
+                .messageTimeout(0, TimeUnit.MILLISECONDS) // reported on flush() only
+                .build();
+        // no budget at all: after the first window nothing is head sampled, what gets reported went through the tail sampler
+        AtomicLong clock = new AtomicLong();
+        AdaptiveSampler sampler = new AdaptiveSampler(0, 0, Duration.ofSeconds(1), clock::get);
+        sampler.isSampled(42);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        tailSampler = new TailSamplingSpanHandler(sampler, () -> zipkin, true, Duration.ofMillis(100), 100, 10, Duration.ofSeconds(30));
+        tracing = Tracing.newBuilder()
+                .currentTraceContext(ThreadLocalCurrentTraceContext.create())
+                .sampler(sampler)
+                .alwaysSampleLocal()
+                .addSpanHandler(zipkin)
+                .addSpanHandler(tailSampler)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+        zipkin.close();
+        collector.close();
+    }
+
+    @Test
+    void discardsFastSuccessfulTraces() {
+        trace(10, false);
+
+        zipkin.flush();
+
+        assertEquals(0, collector.spans().size());
+        assertEquals(0, tailSampler.pendingTraces());
+    }
+
+    @Test
+    void reportsTheWholeTraceWhenAChildFailed() {
+        trace(10, true);
+
+        zipkin.flush();
+
+        assertEquals(2, collector.spans().size());
+        assertTrue(collector.spans().stream().anyMatch(ZipkinStandIn::hasError));
+    }
+
+    @Test
+    void reportsSlowTraces() {
+        trace(250, false);
+
+        zipkin.flush();
+
+        assertEquals(2, collector.spans().size());
+    }
+
+    // a root span of the given duration with one child, timestamps in microseconds
+    private void trace(long durationMillis, boolean childFails) {
+        Tracer tracer = tracing.tracer();
+        long start = 1_700_000_000_000_000L;
+        Span root = tracer.newTrace().name("GET /users/{id}").start(start);
+        Span child = tracer.newChild(root.context()).name("db").start(start + 100);
+        if (childFails) {
+            child.error(new IllegalStateException("connection reset"));
+        }
+        child.finish(start + 200);
+        root.finish(start + durationMillis * 1000);
+    }
+
+    private static final class HttpSender extends BytesMessageSender.Base {
+
+        private final HttpClient client = HttpClient.newHttpClient();
+        private final URI endpoint;
+
+        private HttpSender(URI endpoint) {
+            super(Encoding.JSON);
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public int messageMaxBytes() {
+            return 500_000;
+        }
+
+        @Override
+        public void send(List<byte[]> encodedSpans) throws IOException {
+            HttpRequest request = HttpRequest.newBuilder(endpoint)
+                    .header("Content-Type", encoding.mediaType())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(encoding.encode(encodedSpans)))
+                    .build();
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
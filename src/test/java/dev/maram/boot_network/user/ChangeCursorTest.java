@@ -0,0 +1,33 @@
+package dev.maram.boot_network.user;
+
+import dev.maram.boot_network.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeCursorTest {
+
+    @Test
+    void roundTripsThroughTheToken() {
+        ChangeCursor cursor = new ChangeCursor(LocalDateTime.of(2025, 8, 25, 15, 0, 57, 412_256_000), true, 42);
+
+        ChangeCursor decoded = ChangeCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(42, decoded.deletionsAfterUserId());
+        assertEquals(Integer.MAX_VALUE, decoded.upsertsAfterUserId());
+    }
+
+    @Test
+    void missingTokenStartsFromTheBeginning() {
+        assertTrue(ChangeCursor.decode(null).isStart());
+        assertTrue(ChangeCursor.decode("").isStart());
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(InvalidRequestException.class, () -> ChangeCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,64 @@
+package dev.maram.boot_network.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserChangeServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserTombstoneRepository userTombstoneRepository = mock(UserTombstoneRepository.class);
+    private final UserChangeService service = new UserChangeService(userRepository, userTombstoneRepository);
+
+    UserChangeServiceTest() {
+        ReflectionTestUtils.setField(service, "maxLimit", 1000);
+        ReflectionTestUtils.setField(service, "settleLag", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(service, "tombstoneRetention", Duration.ofDays(30));
+        when(userRepository.findChangedSince(any(), anyInt(), any(), any(Limit.class))).thenReturn(List.of());
+        when(userTombstoneRepository.findDeletedSince(any(), anyInt(), any(), any(Limit.class))).thenReturn(List.of());
+    }
+
+    @Test
+    void emptyPage_movesTheCursorUpToTheSettledTime() {
+        LocalDateTime lastChange = LocalDateTime.now().minusDays(29);
+        String since = new ChangeCursor(lastChange, false, 7).encode();
+
+        UserChangesResponse response = service.getChangesSince(since, 100);
+
+        assertTrue(response.getChanges().isEmpty());
+        assertFalse(response.isHasMore());
+        ChangeCursor next = ChangeCursor.decode(response.getNextCursor());
+        assertTrue(next.timestamp().isAfter(LocalDateTime.now().minusMinutes(1)));
+        // the next poll, long after the cursor would have been 30 days old, is still answered
+        UserChangesResponse later = service.getChangesSince(response.getNextCursor(), 100);
+        assertTrue(later.getChanges().isEmpty());
+        verify(userRepository).findChangedSince(eq(next.timestamp()), eq(Integer.MIN_VALUE), any(), any(Limit.class));
+    }
+
+    @Test
+    void nonEmptyPage_endsAtTheLastChange() {
+        LocalDateTime changedAt = LocalDateTime.now().minusDays(29).truncatedTo(ChronoUnit.MICROS);
+        UserChangeRow row = mock(UserChangeRow.class);
+        when(row.getId()).thenReturn(7);
+        when(row.getLastModifiedDate()).thenReturn(changedAt);
+        when(userRepository.findChangedSince(any(), anyInt(), any(), any(Limit.class))).thenReturn(List.of(row));
+
+        UserChangesResponse response = service.getChangesSince(null, 100);
+
+        assertEquals(1, response.getChanges().size());
+        assertEquals(new ChangeCursor(changedAt, false, 7), ChangeCursor.decode(response.getNextCursor()));
+    }
+}
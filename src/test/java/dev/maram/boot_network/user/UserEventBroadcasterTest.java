@@ -0,0 +1,150 @@
+package dev.maram.boot_network.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A real Tomcat: the emitter only blocks once the socket buffers of a client that does not read are full
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.servlet.context-path=",
+                "server.tomcat.connection-timeout=5s",
+                "application.users.events.sender-threads=1",
+                "application.users.events.buffer-size=8",
+                "application.users.events.send-timeout=200ms"
+        }
+)
+class UserEventBroadcasterTest {
+
+    private static final String FRAME = "\"" + "x".repeat(256 * 1024) + "\"";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserEventBroadcaster broadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void aClientThatNeverReadsIsDisconnectedWithoutStallingThePublisher() throws Exception {
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress("localhost", port));
+            stalled.getOutputStream().write(
+                    "GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            await(() -> subscribers() == 1);
+
+            // its sender blocks on the full socket, then its buffer fills up and it is evicted
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+                while (evictions() == 0) {
+                    broadcaster.broadcast(FRAME);
+                    Thread.sleep(5);
+                }
+            });
+            assertEquals(0, subscribers());
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> broadcaster.heartbeat());
+
+            // the only sender thread is back once the write timeout fails the stuck send
+            try (Socket reader = new Socket("localhost", port)) {
+                reader.getOutputStream().write(
+                        "GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(reader.getInputStream(), StandardCharsets.US_ASCII));
+                await(() -> subscribers() == 1);
+                CompletableFuture<Boolean> received = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String line;
+                        while ((line = lines.readLine()) != null) {
+                            if (line.equals("event:user-change")) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                });
+                broadcaster.broadcast("{\"id\":1}");
+                assertTrue(received.get(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("users.events.subscribers").gauge().value();
+    }
+
+    private double evictions() {
+        return meterRegistry.get("users.events.evictions").counter().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class
+    })
+    @Import({UserEventBroadcaster.class, Events.class})
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @RestController
+    static class Events {
+
+        private final UserEventBroadcaster broadcaster;
+
+        Events(UserEventBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+
+        @GetMapping("/events")
+        SseEmitter events() {
+            return broadcaster.subscribe();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package dev.maram.boot_network.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchSnapshotTest {
+
+    private static final UserSearchHit ADA = new UserSearchHit(1, "Ada", "Lovelace", "ada@analytical.org");
+    private static final UserSearchHit ALAN = new UserSearchHit(2, "Alan", "Turing", "alan.turing@bletchley.uk");
+    private static final UserSearchHit GRACE = new UserSearchHit(3, "Grace", "Hopper", "grace@navy.mil");
+    private static final UserSearchHit ADAM = new UserSearchHit(4, "Adam", "Smith", "adam.smith@example.com");
+    private static final UserSearchHit MARGARET = new UserSearchHit(5, "Margaret", "Hamilton", "mh@apollo.nasa");
+
+    private final UserSearchSnapshot snapshot = UserSearchSnapshot.EMPTY.rebase(UserSearchSnapshot.EMPTY,
+            UserSearchSegment.build(List.of(ADA, ALAN, GRACE, ADAM, MARGARET)));
+
+    private List<UserSearchHit> search(UserSearchSnapshot snapshot, String query) {
+        return snapshot.search(query, 10, 1000);
+    }
+
+    @Test
+    void exactMatchesRankAboveTheWordBeingTyped() {
+        assertEquals(List.of(ADA, ADAM), search(snapshot, "ada"));
+        assertEquals(List.of(ADA), search(snapshot, "ada "));
+        assertEquals(List.of(GRACE), search(snapshot, "grace hop"));
+        assertEquals(List.of(), search(snapshot, "ada turing"));
+        assertEquals(List.of(ADA), snapshot.search("ada", 1, 1000));
+    }
+
+    @Test
+    void toleratesTyposInLongerWords() {
+        assertEquals(List.of(ADA), search(snapshot, "lovelase "));
+        assertEquals(List.of(GRACE), search(snapshot, "hopepr "));
+        assertEquals(List.of(MARGARET), search(snapshot, "margaert hamiltn"));
+        assertEquals(List.of(ADA), search(snapshot, "lovl"));
+        // too short to guess at
+        assertEquals(List.of(), search(snapshot, "adz "));
+    }
+
+    @Test
+    void matchesTheWordsOfTheEmail() {
+        assertEquals(List.of(ALAN), search(snapshot, "bletchley"));
+        assertEquals(List.of(ALAN), search(snapshot, "turing"));
+        assertEquals(List.of(MARGARET), search(snapshot, "apollo nasa"));
+    }
+
+    @Test
+    void changesWinOverTheSegmentAndLeaveTheOldSnapshotAlone() {
+        UserSearchHit renamed = new UserSearchHit(2, "Alan", "Kay", "alan.kay@parc.com");
+        UserSearchHit added = new UserSearchHit(6, "Barbara", "Liskov", "barbara@mit.edu");
+
+        UserSearchSnapshot changed = snapshot.with(1, null).with(2, renamed).with(6, added);
+
+        assertEquals(List.of(ADAM), search(changed, "ada"));
+        assertEquals(List.of(), search(changed, "turing"));
+        assertEquals(List.of(renamed), search(changed, "kay"));
+        assertEquals(List.of(added), search(changed, "liskof "));
+        assertEquals(5, changed.size());
+        assertEquals(3, changed.changeCount());
+
+        assertEquals(List.of(ADA, ADAM), search(snapshot, "ada"));
+        assertEquals(List.of(ALAN), search(snapshot, "turing"));
+        assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    void compactionKeepsOnlyTheChangesMadeSince() {
+        UserSearchHit added = new UserSearchHit(6, "Barbara", "Liskov", "barbara@mit.edu");
+        UserSearchHit later = new UserSearchHit(7, "Edsger", "Dijkstra", "ewd@utexas.edu");
+        UserSearchSnapshot from = snapshot.with(1, null).with(6, added);
+        UserSearchSegment segment = from.compact();
+
+        UserSearchSnapshot compacted = from.with(7, later).rebase(from, segment);
+
+        assertEquals(1, compacted.changeCount());
+        assertEquals(6, compacted.size());
+        assertEquals(List.of(ADAM), search(compacted, "ada"));
+        assertEquals(List.of(added), search(compacted, "barbara"));
+        assertEquals(List.of(later), search(compacted, "dijkstra"));
+    }
+
+    @Test
+    void distanceCountsASwapAsOneTypo() {
+        assertEquals(1, UserSearchQuery.distance("hopepr", "hopper", false, 2));
+        assertEquals(1, UserSearchQuery.distance("lovl", "lovelace", true, 2));
+        assertEquals(0, UserSearchQuery.distance("love", "lovelace", true, 2));
+        assertTrue(UserSearchQuery.distance("grace", "alan", false, 1) > 1);
+    }
+}